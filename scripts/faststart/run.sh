@@ -0,0 +1,19 @@
+#!/usr/bin/env bash
+# Starts the service from the exploded classpath with the faststart profile, using the CDS
+# archive when one has been generated by train-cds.sh. Extra arguments go to the application.
+#   ./run.sh [--server.port=8080 ...]
+set -euo pipefail
+
+# A single local instance; deployments must give each instance its own id
+export ORDER_NODE_ID=${ORDER_NODE_ID:-0}
+OUT=${FASTSTART_DIR:-target/faststart}
+ARCHIVE="$OUT/orderservice.jsa"
+MAIN=com.scalableservices.orderservice.OrderServiceApplication
+
+JVM_OPTS=(-XX:TieredStopAtLevel=1 -Dspring.cloud.bootstrap.enabled=false -Dspring.profiles.active=${SPRING_PROFILES_ACTIVE:-faststart})
+if [[ -f "$ARCHIVE" && "${FASTSTART_CDS:-true}" == "true" ]]; then
+  JVM_OPTS+=(-XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto)
+fi
+
+# The classpath must match the training run exactly for the archive to be used
+exec java "${JVM_OPTS[@]}" ${JAVA_OPTS:-} -cp "$OUT/app/BOOT-INF/classes:$OUT/app/BOOT-INF/lib/*" "$MAIN" "$@"
@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+# Measures time to first successful request: launches the service, polls
+# GET /order/{orderId}/status until it answers with status "success", then stops it.
+# Runs each mode RUNS times and prints every sample and the median in milliseconds.
+#   ORDER_ID=123 RUNS=5 ./startup-benchmark.sh [path/to/orderservice.jar]
+# Modes: default (java -jar, no profile), faststart (exploded, faststart profile),
+# faststart-cds (as faststart with the archive from train-cds.sh).
+set -euo pipefail
+
+JAR=${1:-target/orderservice-0.0.1-SNAPSHOT.jar}
+ORDER_ID=${ORDER_ID:?ORDER_ID of an existing order is required}
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+MODES=${MODES:-"default faststart faststart-cds"}
+TIMEOUT_S=${TIMEOUT_S:-180}
+DIR=$(dirname "$0")
+OUT=${FASTSTART_DIR:-target/faststart}
+# A single local instance; deployments must give each instance its own id
+export ORDER_NODE_ID=${ORDER_NODE_ID:-0}
+URL="http://localhost:$PORT/order/$ORDER_ID/status"
+
+[[ -d "$OUT/app" ]] || "$DIR/unpack.sh" "$JAR" "$OUT"
+
+now_ms() { date +%s%3N; }
+
+launch() {
+  case "$1" in
+    default)
+      java -jar "$JAR" --server.port="$PORT" ;;
+    faststart)
+      FASTSTART_CDS=false "$DIR/run.sh" --server.port="$PORT" ;;
+    faststart-cds)
+      [[ -f "$OUT/orderservice.jsa" ]] || { echo "No archive, run train-cds.sh first" >&2; exit 1; }
+      "$DIR/run.sh" --server.port="$PORT" ;;
+  esac
+}
+
+measure() {
+  local mode=$1 started pid elapsed
+  started=$(now_ms)
+  launch "$mode" >"$OUT/benchmark-$mode.log" 2>&1 &
+  pid=$!
+  while true; do
+    if curl -fs -H 'X-UserType: customer' "$URL" 2>/dev/null | grep -q '"status":"success"'; then
+      elapsed=$(( $(now_ms) - started ))
+      break
+    fi
+    if ! kill -0 "$pid" 2>/dev/null || (( $(now_ms) - started > TIMEOUT_S * 1000 )); then
+      elapsed=-1
+      break
+    fi
+    sleep 0.05
+  done
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+  echo "$elapsed"
+}
+
+for mode in $MODES; do
+  samples=()
+  for ((run = 1; run <= RUNS; run++)); do
+    samples+=("$(measure "$mode")")
+  done
+  median=$(printf '%s\n' "${samples[@]}" | sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')
+  printf '%-14s samples=%s median=%s ms\n' "$mode" "${samples[*]}" "$median"
+done
@@ -0,0 +1,26 @@
+#!/usr/bin/env bash
+# Generates a dynamic class data sharing archive (JDK 13+) from a training run. The application
+# starts with the faststart profile, calls its own track endpoint for TRAINING_ORDER_ID if given,
+# then exits and the JVM writes every class it loaded to the archive.
+#   TRAINING_ORDER_ID=123 ./train-cds.sh [path/to/orderservice.jar]
+set -euo pipefail
+
+# A single local instance; deployments must give each instance its own id
+export ORDER_NODE_ID=${ORDER_NODE_ID:-0}
+JAR=${1:-target/orderservice-0.0.1-SNAPSHOT.jar}
+OUT=${FASTSTART_DIR:-target/faststart}
+ARCHIVE="$OUT/orderservice.jsa"
+MAIN=com.scalableservices.orderservice.OrderServiceApplication
+
+"$(dirname "$0")/unpack.sh" "$JAR" "$OUT"
+
+TRAINING_ARGS=(--order.startup.training-run=true)
+if [[ -n "${TRAINING_ORDER_ID:-}" ]]; then
+  TRAINING_ARGS+=(--order.startup.training-order-id="$TRAINING_ORDER_ID")
+fi
+
+java -XX:TieredStopAtLevel=1 -XX:ArchiveClassesAtExit="$ARCHIVE" \
+  -Dspring.cloud.bootstrap.enabled=false -Dspring.profiles.active=${SPRING_PROFILES_ACTIVE:-faststart} \
+  -cp "$OUT/app/BOOT-INF/classes:$OUT/app/BOOT-INF/lib/*" "$MAIN" "${TRAINING_ARGS[@]}"
+
+echo "Wrote $ARCHIVE ($(du -h "$ARCHIVE" | cut -f1))"
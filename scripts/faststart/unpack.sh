@@ -0,0 +1,13 @@
+#!/usr/bin/env bash
+# Unpacks the Spring Boot fat jar into an exploded classpath. Class data sharing only archives
+# classes loaded from plain jars and directories, not from jars nested inside the boot jar.
+#   ./unpack.sh [path/to/orderservice.jar] [out-dir]
+set -euo pipefail
+
+JAR=$(realpath "${1:-target/orderservice-0.0.1-SNAPSHOT.jar}")
+OUT=${2:-target/faststart}
+
+rm -rf "$OUT"
+mkdir -p "$OUT/app"
+(cd "$OUT/app" && jar -xf "$JAR")
+echo "Unpacked $JAR into $OUT/app"
@@ -0,0 +1,152 @@
+package com.scalableservices.orderservice.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalableservices.orderservice.dto.common.ApiResponse;
+import com.scalableservices.orderservice.dto.order.OrderMenuDetails;
+import com.scalableservices.orderservice.dto.order.OrderRequest;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cost of writing the ready-for-pickup response a delivery agent backend polls, and of reading a
+ * place-order body, as JSON with and without the gzip the server applies, CBOR and Smile. The
+ * encoded sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadEncodingBenchmark {
+
+    private static final String[] AREAS = {"Indiranagar, Bengaluru 560038", "Koramangala 5th Block, Bengaluru 560095",
+            "HSR Layout Sector 2, Bengaluru 560102", "Jayanagar 4th Block, Bengaluru 560011"};
+    private static final String[][] DISHES = {
+            {"Paneer Butter Masala", "Cottage cheese in a rich tomato and butter gravy"},
+            {"Chicken Biryani", "Basmati rice layered with spiced chicken, served with raita"},
+            {"Masala Dosa", "Rice crepe filled with spiced potato, with chutney and sambar"},
+            {"Dal Makhani", "Black lentils slow cooked overnight with cream"},
+            {"Veg Hakka Noodles", "Wok tossed noodles with julienned vegetables"},
+            {"Butter Naan", "Leavened flatbread from the tandoor, brushed with butter"},
+            {"Gulab Jamun", "Two milk dumplings in cardamom syrup"},
+            {"Fish Curry", "Kingfish simmered in a coconut and kokum gravy"},
+            {"Chole Bhature", "Spiced chickpeas with two fried breads"},
+            {"Mango Lassi", "Yoghurt and Alphonso mango, 300 ml"},
+            {"Hyderabadi Haleem", "Wheat and mutton pounded into a slow cooked stew"},
+            {"Caesar Salad", "Romaine, parmesan and croutons with the dressing on the side"}
+    };
+
+    @Param({"json", "json-gzip", "cbor", "smile"})
+    private String encoding;
+
+    @Param({"20"})
+    private int orders;
+
+    private ObjectMapper objectMapper;
+    private boolean gzip;
+    private ApiResponse<List<Order>> response;
+    private byte[] requestBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        gzip = encoding.endsWith("-gzip");
+        objectMapper = encoding.startsWith("json") ? Jackson2ObjectMapperBuilder.json().build()
+                : encoding.equals("cbor") ? Jackson2ObjectMapperBuilder.cbor().build()
+                : Jackson2ObjectMapperBuilder.smile().build();
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        List<Order> readyOrders = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            readyOrders.add(Order.builder()
+                    .id(7_300_000_000_000_000L + i)
+                    .customerId(10_000L + i)
+                    .restaurantId(42L)
+                    .orderStatus(OrderStates.READY)
+                    .orderDetails(json.writeValueAsString(items(i)))
+                    .totalAmount(new BigDecimal("1249.50"))
+                    .isDeleted(false)
+                    .isArchived(false)
+                    .createdAt(LocalDateTime.of(2026, 10, 19, 12, 30).plusMinutes(i))
+                    .updatedAt(LocalDateTime.of(2026, 10, 19, 12, 45).plusMinutes(i))
+                    .customerAddress("Flat " + (101 + i * 13) + ", " + (i % 9 + 1) + "th Cross, " + AREAS[i % AREAS.length])
+                    .build());
+        }
+        response = ApiResponse.<List<Order>>builder().status("success").data(readyOrders).build();
+        requestBody = encode(OrderRequest.builder()
+                .customerId(10_000L)
+                .restaurantId(42L)
+                .items(items(0))
+                .deliveryAddress("Flat 1, 12th Cross, Indiranagar, Bengaluru 560038")
+                .totalAmount(new BigDecimal("1249.50"))
+                .build());
+        System.out.printf("%n%s: response %d bytes, request %d bytes%n", encoding, writeResponse().length, requestBody.length);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws IOException {
+        return encode(response);
+    }
+
+    @Benchmark
+    public OrderRequest readRequest() throws IOException {
+        try (InputStream in = gzip ? new GZIPInputStream(new ByteArrayInputStream(requestBody)) : new ByteArrayInputStream(requestBody)) {
+            return objectMapper.readValue(in, new TypeReference<OrderRequest>() {});
+        }
+    }
+
+    private byte[] encode(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        if (gzip) {
+            try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                objectMapper.writeValue(out, value);
+            }
+        } else {
+            objectMapper.writeValue(bytes, value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<OrderMenuDetails> items(int seed) {
+        List<OrderMenuDetails> items = new ArrayList<>();
+        for (int line = 0; line < 2 + seed % 4; line++) {
+            int dish = (seed * 7 + line * 3) % DISHES.length;
+            int quantity = 1 + (seed + line) % 3;
+            double price = 149.0 + dish * 35;
+            items.add(OrderMenuDetails.builder()
+                    .menuId(500L + dish)
+                    .menuName(DISHES[dish][0])
+                    .menuDescription(DISHES[dish][1])
+                    .menuPrice(price)
+                    .menuQuantity(quantity)
+                    .menuTotalPrice(price * quantity)
+                    .build());
+        }
+        return items;
+    }
+}
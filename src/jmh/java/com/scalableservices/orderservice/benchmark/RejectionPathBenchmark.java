@@ -0,0 +1,117 @@
+package com.scalableservices.orderservice.benchmark;
+
+import com.scalableservices.orderservice.dto.common.ApiResponse;
+import com.scalableservices.orderservice.dto.common.ErrorMessage;
+import com.scalableservices.orderservice.exception.RejectedException;
+import com.scalableservices.orderservice.exception.Rejection;
+import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.statemachine.OrderEvents;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import com.scalableservices.orderservice.utils.CommonOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a successful track with the old and new ways of turning it down. Each call goes
+ * {@code depth} frames down before answering, standing in for the servlet, Spring and proxy
+ * frames above a real service call, since that depth is what a captured stack trace costs.
+ * <p>
+ * {@code legacyRejectionLogged} also renders the trace the way the controller's
+ * {@code log.error(..., e)} used to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectionPathBenchmark {
+
+    @Param({"20", "120"})
+    private int depth;
+
+    private final CommonOperations commonOperations = new CommonOperations();
+    private final Order order = Order.builder().id(42L).orderStatus(OrderStates.PREPARING).build();
+    private long orderId = 42L;
+
+    @Benchmark
+    public ApiResponse<Order> success() {
+        return ApiResponse.<Order>builder().status("success").data(track(depth, true)).build();
+    }
+
+    @Benchmark
+    public ApiResponse<Order> legacyRejection() {
+        try {
+            return ApiResponse.<Order>builder().status("success").data(track(depth, false)).build();
+        } catch (ServiceException e) {
+            return ApiResponse.<Order>builder().status("failed")
+                    .error(ErrorMessage.builder().error("Error while getting order").description(e.getMessage()).build())
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public ApiResponse<Order> legacyRejectionLogged(Blackhole blackhole) {
+        try {
+            return ApiResponse.<Order>builder().status("success").data(track(depth, false)).build();
+        } catch (ServiceException e) {
+            blackhole.consume(e.getStackTrace());
+            return ApiResponse.<Order>builder().status("failed")
+                    .error(ErrorMessage.builder().error("Error while getting order").description(e.getMessage()).build())
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public ApiResponse<Order> stacklessRejection() {
+        try {
+            return ApiResponse.<Order>builder().status("success").data(rejectingTrack(depth)).build();
+        } catch (RejectedException e) {
+            return e.getRejection().response("Error while getting order", e.getMessage());
+        }
+    }
+
+    @Benchmark
+    public Object invalidEventValueOf() {
+        try {
+            return OrderEvents.valueOf("NOT_AN_EVENT");
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object invalidEventLookup() {
+        return commonOperations.toOrderEvent("NOT_AN_EVENT");
+    }
+
+    private Order track(int remaining, boolean found) {
+        if (remaining > 0) {
+            return track(remaining - 1, found);
+        }
+        if (!found) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "Order not found with id: " + orderId);
+        }
+        return order;
+    }
+
+    private Order rejectingTrack(int remaining) {
+        if (remaining > 0) {
+            return rejectingTrack(remaining - 1);
+        }
+        throw Rejection.ORDER_NOT_FOUND.exception();
+    }
+}
@@ -0,0 +1,44 @@
+package com.scalableservices.orderservice.admission;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.admission")
+public class AdmissionProperties {
+
+    // Off until restaurants have been given tiers; with it on, every restaurant not listed is held to the default tier
+    private boolean enabled = false;
+
+    // Tier of every restaurant not listed in restaurantTiers
+    private String defaultTier = "standard";
+
+    private Map<String, Tier> tiers = new HashMap<>();
+
+    // Restaurant id to tier name, for restaurants whose kitchens take more or fewer orders than the default
+    private Map<Long, String> restaurantTiers = new HashMap<>();
+
+    // How often restaurants that have not ordered for a while are forgotten
+    private long evictIntervalMs = 60000;
+
+    public AdmissionProperties() {
+        tiers.put("standard", new Tier(60, 20));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Tier {
+        // Sustained orders per minute one restaurant is admitted at
+        private int ratePerMinute;
+        // Orders admitted back to back after the restaurant has been quiet
+        private int burst;
+    }
+}
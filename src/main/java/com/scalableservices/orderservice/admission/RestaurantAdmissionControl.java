@@ -0,0 +1,141 @@
+package com.scalableservices.orderservice.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how fast each restaurant takes new orders, so one restaurant that goes viral cannot use
+ * up the database for everyone else or collect orders its kitchen will end up cancelling.
+ * <p>
+ * Every restaurant has a token bucket of its tier's burst size, refilled at the tier's rate. It
+ * is kept as the generic cell rate algorithm: a single theoretical arrival time per restaurant,
+ * which admitting an order pushes one emission interval further and which must stay within a
+ * burst of now. Admitting is one compare-and-set and the bucket is one AtomicLong.
+ * <p>
+ * A restaurant whose bucket has filled up again is in the same state as one never seen, so
+ * those entries are dropped periodically and the map only holds restaurants that ordered
+ * recently, however many restaurants there are.
+ */
+@Slf4j
+@Component
+public class RestaurantAdmissionControl {
+
+    private final AdmissionProperties properties;
+    private final Map<String, TierLimit> tierLimits = new HashMap<>();
+    private final ConcurrentHashMap<Long, RestaurantBucket> buckets = new ConcurrentHashMap<>();
+
+    public RestaurantAdmissionControl(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        if (!properties.getTiers().containsKey(properties.getDefaultTier())) {
+            throw new IllegalStateException("order.admission.default-tier " + properties.getDefaultTier()
+                    + " is not one of order.admission.tiers " + properties.getTiers().keySet());
+        }
+        for (Map.Entry<String, AdmissionProperties.Tier> tier : properties.getTiers().entrySet()) {
+            if (tier.getValue().getRatePerMinute() <= 0 || tier.getValue().getBurst() <= 0) {
+                throw new IllegalStateException("order.admission.tiers." + tier.getKey() + " needs a positive rate-per-minute and burst");
+            }
+            tierLimits.put(tier.getKey(), new TierLimit(tier.getKey(), tier.getValue(), meterRegistry));
+        }
+        for (Map.Entry<Long, String> restaurant : properties.getRestaurantTiers().entrySet()) {
+            if (!tierLimits.containsKey(restaurant.getValue())) {
+                throw new IllegalStateException("order.admission.restaurant-tiers." + restaurant.getKey() + " names unknown tier "
+                        + restaurant.getValue());
+            }
+        }
+        Gauge.builder("order.admission.tracked.restaurants", buckets, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Takes a token for one order of {@code restaurantId}. Returns 0 if the order is admitted,
+     * otherwise how many nanoseconds until it would have been.
+     */
+    public long tryAdmit(Long restaurantId) {
+        if (!properties.isEnabled() || restaurantId == null) {
+            return 0;
+        }
+        RestaurantBucket bucket = buckets.computeIfAbsent(restaurantId, id -> new RestaurantBucket(tierOf(id)));
+        TierLimit limit = bucket.limit;
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = bucket.theoreticalArrival.get();
+            long next = Math.max(arrival, now) + limit.emissionIntervalNanos;
+            long wait = next - now - limit.burstToleranceNanos;
+            if (wait > 0) {
+                limit.throttled.increment();
+                return wait;
+            }
+            if (bucket.theoreticalArrival.compareAndSet(arrival, next)) {
+                limit.admitted.increment();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * How many nanoseconds until {@code restaurantId} will be admitted an order again, without
+     * taking a token. 0 if it would be now.
+     */
+    public long retryAfterNanos(Long restaurantId) {
+        RestaurantBucket bucket = restaurantId == null ? null : buckets.get(restaurantId);
+        if (bucket == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long next = Math.max(bucket.theoreticalArrival.get(), now) + bucket.limit.emissionIntervalNanos;
+        return Math.max(0, next - now - bucket.limit.burstToleranceNanos);
+    }
+
+    @Scheduled(fixedDelayString = "${order.admission.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<Long, RestaurantBucket> entry : buckets.entrySet()) {
+            // A full bucket can be recreated as it is; an order racing the removal is at worst admitted from a fresh one
+            if (entry.getValue().theoreticalArrival.get() - now <= 0 && buckets.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle restaurant admission buckets, {} left", evicted, buckets.size());
+        }
+    }
+
+    private TierLimit tierOf(Long restaurantId) {
+        return tierLimits.get(properties.getRestaurantTiers().getOrDefault(restaurantId, properties.getDefaultTier()));
+    }
+
+    private static final class TierLimit {
+        private final long emissionIntervalNanos;
+        private final long burstToleranceNanos;
+        private final Counter admitted;
+        private final Counter throttled;
+
+        private TierLimit(String name, AdmissionProperties.Tier tier, MeterRegistry meterRegistry) {
+            this.emissionIntervalNanos = TimeUnit.MINUTES.toNanos(1) / tier.getRatePerMinute();
+            this.burstToleranceNanos = emissionIntervalNanos * tier.getBurst();
+            this.admitted = meterRegistry.counter("order.admission.admitted", "tier", name);
+            this.throttled = meterRegistry.counter("order.admission.throttled", "tier", name);
+        }
+    }
+
+    private static final class RestaurantBucket {
+        private final TierLimit limit;
+        private final AtomicLong theoreticalArrival;
+
+        private RestaurantBucket(TierLimit limit) {
+            this.limit = limit;
+            // Starts full: the first burst orders are admitted back to back
+            this.theoreticalArrival = new AtomicLong(System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.scalableservices.orderservice.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * CBOR and Smile bodies for internal callers, which ask for them with
+ * {@code Accept: application/cbor} or {@code Accept: application/x-jackson-smile} and may send
+ * place-order and update-status bodies with the same Content-Type. Both are built from the
+ * application's Jackson settings, so they carry the same fields as JSON.
+ * <p>
+ * These replace the defaults Spring MVC registers for the same formats, in the same place: after
+ * the JSON converter, so clients sending no Accept header or {@code *}{@code /*} still get JSON.
+ * Neither type is in server.compression.mime-types, so binary responses also skip gzip.
+ */
+@Configuration
+public class BinaryContentConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.createXmlMapper(false).factory(new SmileFactory()).build());
+    }
+}
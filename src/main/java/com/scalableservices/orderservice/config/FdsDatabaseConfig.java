@@ -1,6 +1,8 @@
 package com.scalableservices.orderservice.config;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateProperties;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateSettings;
 import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
@@ -10,6 +12,7 @@ import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -30,6 +33,7 @@ import java.util.Map;
 public class FdsDatabaseConfig {
     @Primary
     @Bean(name = "fdsOrderDb")
+    @ConditionalOnProperty(name = "order.sharding.enabled", havingValue = "false", matchIfMissing = true)
     @ConfigurationProperties("spring.fds-order-db.datasource.hikari")
     public DataSource primaryDataSource() {
         return DataSourceBuilder.create().build();
@@ -41,10 +45,15 @@ public class FdsDatabaseConfig {
             EntityManagerFactoryBuilder builder,
             @Qualifier("fdsOrderDb") DataSource dataSource,
             JpaProperties jpaProperties,
-            HibernateProperties hibernateProperties) {
+            HibernateProperties hibernateProperties,
+            @Value("${order.startup.background-jpa-bootstrap:false}") boolean backgroundBootstrap) {
         Map<String, Object> properties = hibernateProperties.determineHibernateProperties(
                 jpaProperties.getProperties(),
                 new HibernateSettings());
+        if (backgroundBootstrap) {
+            // Hibernate boots on its own thread; the first caller of the EntityManagerFactory waits for it
+            builder.setBootstrapExecutor(new SimpleAsyncTaskExecutor("jpa-bootstrap-"));
+        }
 
         return builder
                 .dataSource(dataSource)
@@ -0,0 +1,71 @@
+package com.scalableservices.orderservice.config;
+
+import com.scalableservices.orderservice.sharding.ShardRoutingDataSource;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.sharding.ShardingProperties;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single fds order DataSource with one routing over every configured shard.
+ * Each shard is migrated up front so the schema is in place before Hibernate starts.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "order.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Primary
+    @Bean(name = "fdsOrderDb")
+    public DataSource shardedDataSource(ShardingProperties properties, ShardRouter shardRouter,
+                                        @Value("${spring.flyway.enabled:true}") boolean flywayEnabled,
+                                        @Value("${spring.flyway.locations:classpath:db/migration}") String[] flywayLocations) {
+        List<ShardingProperties.Shard> shards = properties.getShards();
+        Map<Object, Object> targets = new HashMap<>();
+        for (int index = 0; index < shardRouter.getShardCount(); index++) {
+            DataSource shardDataSource = buildShardDataSource(index, shards.get(index));
+            if (flywayEnabled) {
+                log.info("Migrating order shard {}", index);
+                Flyway.configure()
+                        .dataSource(shardDataSource)
+                        .locations(flywayLocations)
+                        .baselineOnMigrate(true)
+                        .load()
+                        .migrate();
+            }
+            targets.put(index, shardDataSource);
+        }
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource();
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(targets.get(0));
+        routingDataSource.afterPropertiesSet();
+        return routingDataSource;
+    }
+
+    private DataSource buildShardDataSource(int index, ShardingProperties.Shard shard) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("pluto-pool-shard-" + index);
+        config.setJdbcUrl(shard.getJdbcUrl());
+        config.setUsername(shard.getUsername());
+        config.setPassword(shard.getPassword());
+        config.setDriverClassName(shard.getDriver());
+        config.setMaximumPoolSize(shard.getMaximumPoolSize());
+        config.setMinimumIdle(shard.getMinimumIdle());
+        config.setConnectionTimeout(shard.getConnectionTimeout());
+        config.setIdleTimeout(shard.getIdleTimeout());
+        config.setMaxLifetime(shard.getMaxLifetime());
+        return new HikariDataSource(config);
+    }
+}
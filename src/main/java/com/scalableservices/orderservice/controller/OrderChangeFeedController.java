@@ -0,0 +1,46 @@
+package com.scalableservices.orderservice.controller;
+
+import com.scalableservices.orderservice.dto.common.ApiResponse;
+import com.scalableservices.orderservice.dto.common.ErrorMessage;
+import com.scalableservices.orderservice.dto.order.OrderChangeFeedResponse;
+import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.feed.OrderChangeFeedService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/order")
+public class OrderChangeFeedController {
+
+    @Autowired
+    private OrderChangeFeedService orderChangeFeedService;
+
+    // Orders created or transitioned after the watermark, for downstream systems that keep a copy
+    @GetMapping("/changes")
+    public ApiResponse<OrderChangeFeedResponse> getChanges(@RequestParam(value = "watermark", required = false) String watermark,
+                                                           @RequestParam(value = "limit", required = false) Integer limit,
+                                                           @RequestHeader(value = "X-UserType", required = true) String userType) {
+        try {
+            if(!userType.equalsIgnoreCase(UserTypes.ADMIN.name()) && !userType.equalsIgnoreCase(UserTypes.SYSTEM.name())) {
+                throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only admins and internal systems are allowed to read the order change feed");
+            }
+            return ApiResponse.<OrderChangeFeedResponse>builder().status("success")
+                    .data(orderChangeFeedService.getChanges(watermark, limit)).build();
+        } catch (ServiceException e) {
+            log.error("ServiceException occured while reading order changes after watermark: {}", watermark, e);
+            return ApiResponse.<OrderChangeFeedResponse>builder().status("failed")
+                    .error(ErrorMessage.builder().error(e.getMessage()).description("Error while reading order changes").build())
+                    .build();
+        }
+        catch (Exception e) {
+            log.error("Exception occured while reading order changes after watermark: {}", watermark, e);
+            return ApiResponse.<OrderChangeFeedResponse>builder().status("failed").error(
+                    ErrorMessage.builder().error("Error while reading order changes").description(e.getMessage()).build()
+            ).build();
+        }
+    }
+}
@@ -1,18 +1,38 @@
 package com.scalableservices.orderservice.controller;
 
+import com.scalableservices.orderservice.admission.RestaurantAdmissionControl;
 import com.scalableservices.orderservice.dto.common.ApiResponse;
 import com.scalableservices.orderservice.dto.common.ErrorMessage;
 import com.scalableservices.orderservice.dto.order.*;
 import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.exception.RejectedException;
+import com.scalableservices.orderservice.exception.Rejection;
+import com.scalableservices.orderservice.exception.RejectionLogger;
 import com.scalableservices.orderservice.exception.ServiceException;
 import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.polling.PollingAdvisor;
+import com.scalableservices.orderservice.polling.PollingHint;
+import com.scalableservices.orderservice.projection.OrderField;
+import com.scalableservices.orderservice.readmodel.OrderReadModelService;
+import com.scalableservices.orderservice.readmodel.ReadResult;
+import com.scalableservices.orderservice.rollup.RestaurantRollupService;
 import com.scalableservices.orderservice.service.OrderService;
+import com.scalableservices.orderservice.startup.StartupTimer;
+import com.scalableservices.orderservice.statemachine.OrderStates;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
@@ -21,16 +41,38 @@ public class OrderController {
 
     @Autowired
     private OrderService orderService;
+    @Autowired
+    private RestaurantRollupService restaurantRollupService;
+    @Autowired
+    private StartupTimer startupTimer;
+    @Autowired
+    private OrderReadModelService orderReadModelService;
+    @Autowired
+    private PollingAdvisor pollingAdvisor;
+    @Autowired
+    private RejectionLogger rejectionLogger;
+    @Autowired
+    private RestaurantAdmissionControl restaurantAdmissionControl;
 
     @PostMapping("/place-order")
-    public ApiResponse<OrderResponse> placeOrder(@RequestBody OrderRequest orderRequest, @RequestHeader(value = "X-UserType", required = true) String userType) {
+    public ApiResponse<OrderResponse> placeOrder(@RequestBody OrderRequest orderRequest, @RequestHeader(value = "X-UserType", required = true) String userType,
+                                                 HttpServletResponse response) {
         try{
             if(!userType.equalsIgnoreCase("customer")) {
                 throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only customers are allowed to place orders");
             }
             OrderResponse orderResponse = orderService.createOrder(orderRequest);
             return ApiResponse.<OrderResponse>builder().status("success").data(orderResponse).build();
-        }catch (ServiceException e) {
+        } catch (RejectedException e) {
+            rejectionLogger.rejected(e.getRejection(), "placeOrder", orderRequest.getRestaurantId());
+            if (e.getRejection() == Rejection.RESTAURANT_THROTTLED) {
+                // A real 429 so clients and gateways back off instead of retrying straight away
+                long retryAfterNanos = restaurantAdmissionControl.retryAfterNanos(orderRequest.getRestaurantId());
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999))));
+            }
+            return e.getRejection().response("Error while placing order", e.getMessage());
+        } catch (ServiceException e) {
             log.error("ServiceException occured while placing order for customer with id : {}", orderRequest.getCustomerId(), e);
             return ApiResponse.<OrderResponse>builder().status("failed")
                     .error(ErrorMessage.builder().error("Error while placing order").description(e.getMessage()).build())
@@ -44,37 +86,111 @@ public class OrderController {
         }
     }
 
-    // Track Order
+    // Track Order; fields=summary or fields=id,orderStatus,... returns only those properties
     @GetMapping("/{orderId}/status")
-    public ApiResponse<Order> trackOrder(@PathVariable Long orderId, @RequestHeader(value = "X-UserType", required = true) String userType) {
+    public ApiResponse<Object> trackOrder(@PathVariable Long orderId, @RequestHeader(value = "X-UserType", required = true) String userType,
+                                          @RequestParam(value = "fields", required = false) String fields,
+                                          @RequestHeader(value = "X-Read-Mode", required = false) String readMode, HttpServletResponse response) {
         try {
             if(!userType.equalsIgnoreCase("customer") && !userType.equalsIgnoreCase("restaurant_owner")) {
                 throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only customer and restaurant are allowed to track orders");
             }
-            return ApiResponse.<Order>builder().status("success").data(orderService.getOrderByOrderId(orderId)).build();
-        }catch (ServiceException e) {
+            Set<OrderField> selection = OrderField.parse(fields);
+            if (selection != null) {
+                // The hint's columns are read along with the selection and left out of the response
+                ReadResult<Map<String, Object>> order = orderReadModelService.trackOrder(orderId,
+                        OrderField.withPollingHintFields(selection), orderReadModelService.resolveMode(readMode));
+                startupTimer.firstSuccess("trackOrder");
+                withPollingHint(order.getData(), response);
+                return ApiResponse.<Object>builder().status("success")
+                        .data(OrderField.select(withReadHeaders(order, response), selection)).build();
+            }
+            ReadResult<Order> order = orderReadModelService.trackOrder(orderId, orderReadModelService.resolveMode(readMode));
+            startupTimer.firstSuccess("trackOrder");
+            withPollingHint(order.getData(), response);
+            return ApiResponse.<Object>builder().status("success").data(withReadHeaders(order, response)).build();
+        } catch (RejectedException e) {
+            rejectionLogger.rejected(e.getRejection(), "trackOrder", orderId);
+            return e.getRejection().response("Error while getting order", e.getMessage());
+        } catch (ServiceException e) {
             log.error("ServiceException occured while getting order with id: {}", orderId, e);
-            return ApiResponse.<Order>builder().status("failed")
+            return ApiResponse.<Object>builder().status("failed")
                     .error(ErrorMessage.builder().error("Error while getting order").description(e.getMessage()).build())
                     .build();
         }
         catch (Exception e) {
             log.error("Exception occured while getting order with id: {}", orderId, e);
-            return ApiResponse.<Order>builder().status("failed").error(
+            return ApiResponse.<Object>builder().status("failed").error(
                     ErrorMessage.builder().error("Error while getting order").description(e.getMessage()).build()
             ).build();
         }
     }
 
+    // Track several orders in one request, e.g. a customer with concurrent orders or a restaurant tablet's open tickets
+    @GetMapping("/status")
+    public ApiResponse<OrderStatusBatchResponse> trackOrders(@RequestParam("ids") List<Long> orderIds,
+                                                             @RequestHeader(value = "X-UserType", required = true) String userType,
+                                                             @RequestHeader(value = "X-Read-Mode", required = false) String readMode, HttpServletResponse response) {
+        try {
+            if(!userType.equalsIgnoreCase("customer") && !userType.equalsIgnoreCase("restaurant_owner")) {
+                throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only customer and restaurant are allowed to track orders");
+            }
+            ReadResult<OrderStatusBatchResponse> statuses = orderReadModelService.getOrderStatuses(orderIds, orderReadModelService.resolveMode(readMode));
+            withPollingHint(statuses.getData().getOrders(), response);
+            return ApiResponse.<OrderStatusBatchResponse>builder().status("success").data(withReadHeaders(statuses, response)).build();
+        } catch (ServiceException e) {
+            log.error("ServiceException occured while getting statuses of orders: {}", orderIds, e);
+            return ApiResponse.<OrderStatusBatchResponse>builder().status("failed")
+                    .error(ErrorMessage.builder().error("Error while getting order statuses").description(e.getMessage()).build())
+                    .build();
+        }
+        catch (Exception e) {
+            log.error("Exception occured while getting statuses of orders: {}", orderIds, e);
+            return ApiResponse.<OrderStatusBatchResponse>builder().status("failed").error(
+                    ErrorMessage.builder().error("Error while getting order statuses").description(e.getMessage()).build()
+            ).build();
+        }
+    }
+
+    // List a customer's orders, newest first
+    @GetMapping("/customer/{customerId}/orders")
+    public ApiResponse<CustomerOrderHistoryResponse> getCustomerOrders(@PathVariable("customerId") Long customerId,
+                                                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                                                      @RequestParam(value = "limit", required = false) Integer limit,
+                                                                      @RequestHeader(value = "X-UserType", required = true) String userType) {
+        try {
+            if(!userType.equalsIgnoreCase("customer")) {
+                throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only customers are allowed to list their orders");
+            }
+            return ApiResponse.<CustomerOrderHistoryResponse>builder().status("success").data(orderService.getCustomerOrders(customerId, cursor, limit)).build();
+        } catch (ServiceException e) {
+            log.error("ServiceException occured while getting orders for customer: {}", customerId, e);
+            return ApiResponse.<CustomerOrderHistoryResponse>builder().status("failed")
+                    .error(ErrorMessage.builder().error("Error while getting customer orders").description(e.getMessage()).build())
+                    .build();
+        }
+        catch (Exception e) {
+            log.error("Exception occured while getting orders for customer: {}", customerId, e);
+            return ApiResponse.<CustomerOrderHistoryResponse>builder().status("failed").error(
+                    ErrorMessage.builder().error("Error while getting customer orders").description(e.getMessage()).build()
+            ).build();
+        }
+    }
+
     // View Order History
     @GetMapping("/{orderId}/history")
-    public ApiResponse<List<OrderLogResponse>> getOrderHistory(@PathVariable("orderId") Long orderId, @RequestHeader(value = "X-UserType", required = true) String userType) {
+    public ApiResponse<List<OrderLogResponse>> getOrderHistory(@PathVariable("orderId") Long orderId, @RequestHeader(value = "X-UserType", required = true) String userType,
+                                                              @RequestHeader(value = "X-Read-Mode", required = false) String readMode, HttpServletResponse response) {
         try{
             if(!userType.equalsIgnoreCase("customer") && !userType.equalsIgnoreCase("restaurant_owner")) {
                 throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only customer and restaurant are allowed to view order history");
             }
-            return ApiResponse.<List<OrderLogResponse>>builder().status("success").data(orderService.getOrderLogs(orderId)).build();
-        }catch (ServiceException e) {
+            ReadResult<List<OrderLogResponse>> orderLogs = orderReadModelService.getOrderLogs(orderId, orderReadModelService.resolveMode(readMode));
+            return ApiResponse.<List<OrderLogResponse>>builder().status("success").data(withReadHeaders(orderLogs, response)).build();
+        } catch (RejectedException e) {
+            rejectionLogger.rejected(e.getRejection(), "getOrderHistory", orderId);
+            return e.getRejection().response("Error while getting order logs", e.getMessage());
+        } catch (ServiceException e) {
             log.error("ServiceException occured while getting order logs with id: {}", orderId, e);
             return ApiResponse.<List<OrderLogResponse>>builder().status("failed")
                     .error(ErrorMessage.builder().error("Error while getting order logs").description(e.getMessage()).build())
@@ -97,6 +213,9 @@ public class OrderController {
             }
             OrderStatusUpdateResponse response = orderService.updateOrderStatus(orderId, orderStatusUpdateRequest, UserTypes.valueOf(userType.toUpperCase()));
             return ApiResponse.<OrderStatusUpdateResponse>builder().status("success").data(response).build();
+        } catch (RejectedException e) {
+            rejectionLogger.rejected(e.getRejection(), "updateOrderStatus", orderId);
+            return e.getRejection().response(e.getMessage(), "Error while processing delivery");
         } catch (ServiceException e) {
             log.error("ServiceException occured while processing delivery for order: {}", orderId, e);
             return ApiResponse.<OrderStatusUpdateResponse>builder().status("failed")
@@ -120,6 +239,9 @@ public class OrderController {
             }
             OrderDeliveryAgentMappingResponse response = orderService.mapOrderToDeliveryAgent(orderId, deliveryAgentId);
             return ApiResponse.<OrderDeliveryAgentMappingResponse>builder().status("success").data(response).build();
+        } catch (RejectedException e) {
+            rejectionLogger.rejected(e.getRejection(), "assignDeliveryAgent", orderId);
+            return e.getRejection().response(e.getMessage(), "Error while assigning delivery agent");
         } catch (ServiceException e) {
             log.error("ServiceException occured while assigning delivery agent for order: {}", orderId, e);
             return ApiResponse.<OrderDeliveryAgentMappingResponse>builder().status("failed")
@@ -134,25 +256,106 @@ public class OrderController {
         }
     }
 
+    // Order counts and totals per state for one restaurant and day, served from the rollup table
+    @GetMapping("/restaurant/{restaurantId}/rollup")
+    public ApiResponse<RestaurantRollupResponse> getRestaurantRollup(@PathVariable("restaurantId") Long restaurantId,
+                                                                    @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                                    @RequestHeader(value = "X-UserType", required = true) String userType) {
+        try {
+            if(!userType.equalsIgnoreCase(UserTypes.RESTAURANT_OWNER.name())) {
+                throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only restaurant owners are allowed to view restaurant rollups");
+            }
+            LocalDate businessDate = date == null ? LocalDate.now() : date;
+            return ApiResponse.<RestaurantRollupResponse>builder().status("success").data(restaurantRollupService.getRollup(restaurantId, businessDate)).build();
+        } catch (ServiceException e) {
+            log.error("ServiceException occured while getting rollup for restaurant: {}", restaurantId, e);
+            return ApiResponse.<RestaurantRollupResponse>builder().status("failed")
+                    .error(ErrorMessage.builder().error(e.getMessage()).description("Error while getting restaurant rollup").build())
+                    .build();
+        }
+        catch (Exception e) {
+            log.error("Exception occured while getting rollup for restaurant: {}", restaurantId, e);
+            return ApiResponse.<RestaurantRollupResponse>builder().status("failed").error(
+                    ErrorMessage.builder().error("Error while getting restaurant rollup").description(e.getMessage()).build()
+            ).build();
+        }
+    }
+
     @GetMapping("/ready-for-pickup/{deliverAgentId}")
-    public ApiResponse<List<Order>> getOrdersReadyForPickup(@PathVariable("deliverAgentId") Long deliverAgentId
-            , @RequestHeader(value = "X-UserType", required = true) String userType) {
+    public ApiResponse<Object> getOrdersReadyForPickup(@PathVariable("deliverAgentId") Long deliverAgentId
+            , @RequestHeader(value = "X-UserType", required = true) String userType
+            , @RequestParam(value = "fields", required = false) String fields
+            , @RequestHeader(value = "X-Read-Mode", required = false) String readMode, HttpServletResponse response) {
         try {
             if(!userType.equalsIgnoreCase(UserTypes.DELIVERY_AGENT.name())) {
                 throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only delivery agents are allowed to view orders ready for pickup");
             }
-            return ApiResponse.<List<Order>>builder().status("success").data(orderService.getAllOrdersMappedToDeliveryAgent(deliverAgentId)).build();
+            Set<OrderField> selection = OrderField.parse(fields);
+            if (selection != null) {
+                ReadResult<List<Map<String, Object>>> orders = orderReadModelService.getAgentOrders(deliverAgentId, selection, orderReadModelService.resolveMode(readMode));
+                return ApiResponse.<Object>builder().status("success").data(withReadHeaders(orders, response)).build();
+            }
+            ReadResult<List<Order>> orders = orderReadModelService.getAgentOrders(deliverAgentId, orderReadModelService.resolveMode(readMode));
+            return ApiResponse.<Object>builder().status("success").data(withReadHeaders(orders, response)).build();
+        } catch (RejectedException e) {
+            rejectionLogger.rejected(e.getRejection(), "getOrdersReadyForPickup", deliverAgentId);
+            return e.getRejection().response(e.getMessage(), "Error while getting orders ready for pickup");
         } catch (ServiceException e) {
             log.error("ServiceException occured while getting orders ready for pickup for delivery agent: {}", deliverAgentId, e);
-            return ApiResponse.<List<Order>>builder().status("failed")
+            return ApiResponse.<Object>builder().status("failed")
                     .error(ErrorMessage.builder().error(e.getMessage()).description("Error while getting orders ready for pickup").build())
                     .build();
         }
         catch (Exception e) {
             log.error("Exception occured while getting orders ready for pickup for delivery agent: {}", deliverAgentId, e);
-            return ApiResponse.<List<Order>>builder().status("failed").error(
+            return ApiResponse.<Object>builder().status("failed").error(
                     ErrorMessage.builder().error("Error while getting orders ready for pickup").description(e.getMessage()).build()
             ).build();
         }
     }
+
+    // Tells polling clients when the order is next likely to change
+    private void withPollingHint(Order order, HttpServletResponse response) {
+        PollingHint hint = pollingAdvisor.hintFor(order);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + hint.getMaxAgeSeconds());
+        if (hint.getNextPollAt() != null) {
+            response.setHeader("X-Next-Poll-At", hint.getNextPollAt().toString());
+        }
+    }
+
+    private void withPollingHint(Map<String, Object> order, HttpServletResponse response) {
+        PollingHint hint = pollingAdvisor.hintFor((Long) order.get(OrderField.RESTAURANT_ID.getProperty()),
+                (OrderStates) order.get(OrderField.ORDER_STATUS.getProperty()), (LocalDateTime) order.get(OrderField.UPDATED_AT.getProperty()));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + hint.getMaxAgeSeconds());
+        if (hint.getNextPollAt() != null) {
+            response.setHeader("X-Next-Poll-At", hint.getNextPollAt().toString());
+        }
+    }
+
+    // One response covers several orders, so it may be cached only until the soonest of them is expected to change
+    private void withPollingHint(List<OrderStateEntry> orders, HttpServletResponse response) {
+        PollingHint soonest = null;
+        for (OrderStateEntry order : orders) {
+            PollingHint hint = pollingAdvisor.hintFor(order.getRestaurantId(), order.getOrderStatus(), order.getEnteredAt());
+            if (soonest == null || hint.getMaxAgeSeconds() < soonest.getMaxAgeSeconds()) {
+                soonest = hint;
+            }
+        }
+        if (soonest == null) {
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + soonest.getMaxAgeSeconds());
+        if (soonest.getNextPollAt() != null) {
+            response.setHeader("X-Next-Poll-At", soonest.getNextPollAt().toString());
+        }
+    }
+
+    // Tells the caller which store answered and, for the read model, how current it was
+    private <T> T withReadHeaders(ReadResult<T> result, HttpServletResponse response) {
+        response.setHeader("X-Read-Source", result.getSource().name());
+        if (result.getWatermark() != null) {
+            response.setHeader("X-Read-Model-Watermark", result.getWatermark().toString());
+        }
+        return result.getData();
+    }
 }
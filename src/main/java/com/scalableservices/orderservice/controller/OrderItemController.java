@@ -0,0 +1,126 @@
+package com.scalableservices.orderservice.controller;
+
+import com.scalableservices.orderservice.dto.common.ApiResponse;
+import com.scalableservices.orderservice.dto.common.ErrorMessage;
+import com.scalableservices.orderservice.dto.order.ItemBackfillResponse;
+import com.scalableservices.orderservice.dto.order.MenuItemOrder;
+import com.scalableservices.orderservice.dto.order.MenuItemSales;
+import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.orderitems.OrderItemBackfill;
+import com.scalableservices.orderservice.orderitems.OrderItemService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("/order")
+public class OrderItemController {
+
+    @Autowired
+    private OrderItemService orderItemService;
+    @Autowired
+    private OrderItemBackfill orderItemBackfill;
+
+    // Open orders containing a menu item, e.g. to reach the customers affected when it runs out
+    @GetMapping("/restaurant/{restaurantId}/items/{menuId}/open-orders")
+    public ApiResponse<List<MenuItemOrder>> getOpenOrdersWithMenuItem(@PathVariable("restaurantId") Long restaurantId,
+                                                                      @PathVariable("menuId") Long menuId,
+                                                                      @RequestParam(value = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                                                                      @RequestHeader(value = "X-UserType", required = true) String userType) {
+        try {
+            if(!userType.equalsIgnoreCase(UserTypes.RESTAURANT_OWNER.name())) {
+                throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only restaurant owners are allowed to search orders by menu item");
+            }
+            return ApiResponse.<List<MenuItemOrder>>builder().status("success")
+                    .data(orderItemService.getOpenOrdersWithMenuItem(restaurantId, menuId, since)).build();
+        } catch (ServiceException e) {
+            log.error("ServiceException occured while searching orders of restaurant: {} for menu item: {}", restaurantId, menuId, e);
+            return ApiResponse.<List<MenuItemOrder>>builder().status("failed")
+                    .error(ErrorMessage.builder().error(e.getMessage()).description("Error while searching orders by menu item").build())
+                    .build();
+        }
+        catch (Exception e) {
+            log.error("Exception occured while searching orders of restaurant: {} for menu item: {}", restaurantId, menuId, e);
+            return ApiResponse.<List<MenuItemOrder>>builder().status("failed").error(
+                    ErrorMessage.builder().error("Error while searching orders by menu item").description(e.getMessage()).build()
+            ).build();
+        }
+    }
+
+    // Best selling items of one restaurant and day by quantity
+    @GetMapping("/restaurant/{restaurantId}/items/top")
+    public ApiResponse<List<MenuItemSales>> getTopItems(@PathVariable("restaurantId") Long restaurantId,
+                                                        @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                        @RequestParam(value = "limit", required = false) Integer limit,
+                                                        @RequestHeader(value = "X-UserType", required = true) String userType) {
+        try {
+            if(!userType.equalsIgnoreCase(UserTypes.RESTAURANT_OWNER.name())) {
+                throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only restaurant owners are allowed to view top items");
+            }
+            LocalDate businessDate = date == null ? LocalDate.now() : date;
+            return ApiResponse.<List<MenuItemSales>>builder().status("success")
+                    .data(orderItemService.getTopItems(restaurantId, businessDate, limit)).build();
+        } catch (ServiceException e) {
+            log.error("ServiceException occured while getting top items for restaurant: {}", restaurantId, e);
+            return ApiResponse.<List<MenuItemSales>>builder().status("failed")
+                    .error(ErrorMessage.builder().error(e.getMessage()).description("Error while getting top items").build())
+                    .build();
+        }
+        catch (Exception e) {
+            log.error("Exception occured while getting top items for restaurant: {}", restaurantId, e);
+            return ApiResponse.<List<MenuItemSales>>builder().status("failed").error(
+                    ErrorMessage.builder().error("Error while getting top items").description(e.getMessage()).build()
+            ).build();
+        }
+    }
+
+    @PostMapping("/items/backfill")
+    public ApiResponse<ItemBackfillResponse> startBackfill(@RequestHeader(value = "X-UserType", required = true) String userType) {
+        try {
+            if(!userType.equalsIgnoreCase(UserTypes.ADMIN.name())) {
+                throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only admins are allowed to backfill order items");
+            }
+            return ApiResponse.<ItemBackfillResponse>builder().status("success").data(orderItemBackfill.start()).build();
+        } catch (ServiceException e) {
+            log.error("ServiceException occured while starting order item backfill", e);
+            return ApiResponse.<ItemBackfillResponse>builder().status("failed")
+                    .error(ErrorMessage.builder().error(e.getMessage()).description("Error while starting order item backfill").build())
+                    .build();
+        }
+        catch (Exception e) {
+            log.error("Exception occured while starting order item backfill", e);
+            return ApiResponse.<ItemBackfillResponse>builder().status("failed").error(
+                    ErrorMessage.builder().error("Error while starting order item backfill").description(e.getMessage()).build()
+            ).build();
+        }
+    }
+
+    @GetMapping("/items/backfill")
+    public ApiResponse<ItemBackfillResponse> getBackfill(@RequestHeader(value = "X-UserType", required = true) String userType) {
+        try {
+            if(!userType.equalsIgnoreCase(UserTypes.ADMIN.name())) {
+                throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only admins are allowed to view the order item backfill");
+            }
+            return ApiResponse.<ItemBackfillResponse>builder().status("success").data(orderItemBackfill.getProgress()).build();
+        } catch (ServiceException e) {
+            log.error("ServiceException occured while getting order item backfill", e);
+            return ApiResponse.<ItemBackfillResponse>builder().status("failed")
+                    .error(ErrorMessage.builder().error(e.getMessage()).description("Error while getting order item backfill").build())
+                    .build();
+        }
+        catch (Exception e) {
+            log.error("Exception occured while getting order item backfill", e);
+            return ApiResponse.<ItemBackfillResponse>builder().status("failed").error(
+                    ErrorMessage.builder().error("Error while getting order item backfill").description(e.getMessage()).build()
+            ).build();
+        }
+    }
+}
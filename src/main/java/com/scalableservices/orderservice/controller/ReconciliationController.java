@@ -0,0 +1,130 @@
+package com.scalableservices.orderservice.controller;
+
+import com.scalableservices.orderservice.dto.common.ApiResponse;
+import com.scalableservices.orderservice.dto.common.ErrorMessage;
+import com.scalableservices.orderservice.dto.reconciliation.ImportJobResponse;
+import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.reconciliation.OrderCsvExporter;
+import com.scalableservices.orderservice.reconciliation.OrderCsvImporter;
+import com.scalableservices.orderservice.reconciliation.ReconciliationTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.LocalDate;
+
+/**
+ * CSV dumps and loads of orders and order logs for finance reconciliation. Admin only.
+ * Tables are addressed as {@code orders} or {@code order-logs}.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/order/reconciliation")
+public class ReconciliationController {
+
+    @Autowired
+    private OrderCsvExporter orderCsvExporter;
+    @Autowired
+    private OrderCsvImporter orderCsvImporter;
+
+    // Streams the CSV into the response; returns a body only when the request is rejected up front
+    @GetMapping("/export/{table}")
+    public ApiResponse<Void> export(@PathVariable("table") String table,
+                                    @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                    @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                    @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+                                    @RequestHeader(value = "X-UserType", required = true) String userType,
+                                    HttpServletResponse response) {
+        ReconciliationTable reconciliationTable;
+        try {
+            if(!userType.equalsIgnoreCase(UserTypes.ADMIN.name())) {
+                throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only admins are allowed to export orders");
+            }
+            reconciliationTable = toTable(table);
+            if(!from.isBefore(to)) {
+                throw new ServiceException(HttpStatus.BAD_REQUEST, "from must be before to");
+            }
+        } catch (ServiceException e) {
+            log.error("ServiceException occured while exporting {} from {} to {}", table, from, to, e);
+            return ApiResponse.<Void>builder().status("failed")
+                    .error(ErrorMessage.builder().error(e.getMessage()).description("Error while exporting orders").build())
+                    .build();
+        }
+        String fileName = table + "-" + from + "-" + to + (gzip ? ".csv.gz" : ".csv");
+        response.setContentType(gzip ? "application/gzip" : "text/csv; charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        try {
+            orderCsvExporter.export(reconciliationTable, from, to, gzip, response.getOutputStream());
+        } catch (Exception e) {
+            // Headers are already sent; failing the request aborts the chunked body so the client sees a broken download
+            log.error("Exception occured while exporting {} from {} to {}", table, from, to, e);
+            throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while exporting orders");
+        }
+        return null;
+    }
+
+    // The body is the CSV file as produced by export, gzipped when gzip=true
+    @PostMapping("/import/{table}")
+    public ApiResponse<ImportJobResponse> startImport(@PathVariable("table") String table,
+                                                      @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+                                                      @RequestHeader(value = "X-UserType", required = true) String userType,
+                                                      HttpServletRequest request) {
+        try {
+            if(!userType.equalsIgnoreCase(UserTypes.ADMIN.name())) {
+                throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only admins are allowed to import orders");
+            }
+            ImportJobResponse job = orderCsvImporter.startImport(toTable(table), request.getInputStream(), gzip);
+            return ApiResponse.<ImportJobResponse>builder().status("success").data(job).build();
+        } catch (ServiceException e) {
+            log.error("ServiceException occured while importing {}", table, e);
+            return ApiResponse.<ImportJobResponse>builder().status("failed")
+                    .error(ErrorMessage.builder().error(e.getMessage()).description("Error while importing orders").build())
+                    .build();
+        }
+        catch (Exception e) {
+            log.error("Exception occured while importing {}", table, e);
+            return ApiResponse.<ImportJobResponse>builder().status("failed").error(
+                    ErrorMessage.builder().error("Error while importing orders").description(e.getMessage()).build()
+            ).build();
+        }
+    }
+
+    @GetMapping("/import/jobs/{jobId}")
+    public ApiResponse<ImportJobResponse> getImportJob(@PathVariable("jobId") String jobId,
+                                                       @RequestHeader(value = "X-UserType", required = true) String userType) {
+        try {
+            if(!userType.equalsIgnoreCase(UserTypes.ADMIN.name())) {
+                throw new ServiceException(HttpStatus.UNAUTHORIZED, "Only admins are allowed to view imports");
+            }
+            return ApiResponse.<ImportJobResponse>builder().status("success").data(orderCsvImporter.getJob(jobId)).build();
+        } catch (ServiceException e) {
+            log.error("ServiceException occured while getting import job: {}", jobId, e);
+            return ApiResponse.<ImportJobResponse>builder().status("failed")
+                    .error(ErrorMessage.builder().error(e.getMessage()).description("Error while getting import job").build())
+                    .build();
+        }
+        catch (Exception e) {
+            log.error("Exception occured while getting import job: {}", jobId, e);
+            return ApiResponse.<ImportJobResponse>builder().status("failed").error(
+                    ErrorMessage.builder().error("Error while getting import job").description(e.getMessage()).build()
+            ).build();
+        }
+    }
+
+    private ReconciliationTable toTable(String table) {
+        switch (table) {
+            case "orders":
+                return ReconciliationTable.ORDERS;
+            case "order-logs":
+                return ReconciliationTable.ORDER_LOGS;
+            default:
+                throw new ServiceException(HttpStatus.BAD_REQUEST, "Unknown table: " + table);
+        }
+    }
+}
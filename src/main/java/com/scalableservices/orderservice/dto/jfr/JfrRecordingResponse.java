@@ -0,0 +1,22 @@
+package com.scalableservices.orderservice.dto.jfr;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JfrRecordingResponse {
+    private Long id;
+    private String name;
+    private String state;
+    private Instant startTime;
+    private Instant stopTime;
+    private Long sizeBytes;
+    private String error;
+}
@@ -0,0 +1,18 @@
+package com.scalableservices.orderservice.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerOrderHistoryResponse {
+    private List<OrderSummary> orders;
+    // Pass back as "cursor" to fetch the next page, null on the last page
+    private String nextCursor;
+}
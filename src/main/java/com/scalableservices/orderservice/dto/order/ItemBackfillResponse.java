@@ -0,0 +1,25 @@
+package com.scalableservices.orderservice.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemBackfillResponse {
+    private String status;
+    private Integer shard;
+    private Long lastOrderId;
+    private Long ordersScanned;
+    // Item rows sent, including lines that were already there and were skipped
+    private Long itemsWritten;
+    private Long ordersUnparsable;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
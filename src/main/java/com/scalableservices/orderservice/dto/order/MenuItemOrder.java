@@ -0,0 +1,20 @@
+package com.scalableservices.orderservice.dto.order;
+
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuItemOrder {
+    private Long orderId;
+    private OrderStates orderStatus;
+    private Integer quantity;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,20 @@
+package com.scalableservices.orderservice.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuItemSales {
+    private Long menuId;
+    private String menuName;
+    private Long quantity;
+    private Long orders;
+    private BigDecimal revenue;
+}
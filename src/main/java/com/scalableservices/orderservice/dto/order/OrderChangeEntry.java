@@ -0,0 +1,24 @@
+package com.scalableservices.orderservice.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderChangeEntry {
+    private Long orderId;
+    private Long restaurantId;
+    // CREATED or TRANSITIONED
+    private String changeType;
+    // The state the order entered with this change
+    private String orderStatus;
+    // Who made the transition and their remarks, null for a created order
+    private OrderLogResponse log;
+    private LocalDateTime changedAt;
+}
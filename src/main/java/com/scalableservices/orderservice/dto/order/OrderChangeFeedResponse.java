@@ -0,0 +1,20 @@
+package com.scalableservices.orderservice.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderChangeFeedResponse {
+    private List<OrderChangeEntry> changes;
+    // Pass back as "watermark" to fetch the changes after these; store it to resume after a restart
+    private String watermark;
+    // More changes were already available; ask again straight away rather than after the poll interval
+    private Boolean hasMore;
+}
@@ -12,4 +12,6 @@ import lombok.NoArgsConstructor;
 public class OrderResponse {
     private Long orderId;
     private String orderStatus;
+    // True when the order was journaled locally and is not in the database yet
+    private Boolean provisional;
 }
@@ -0,0 +1,20 @@
+package com.scalableservices.orderservice.dto.order;
+
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStateEntry {
+    private Long orderId;
+    private Long restaurantId;
+    private OrderStates orderStatus;
+    private LocalDateTime enteredAt;
+}
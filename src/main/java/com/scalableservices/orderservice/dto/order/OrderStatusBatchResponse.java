@@ -0,0 +1,19 @@
+package com.scalableservices.orderservice.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusBatchResponse {
+    // In the order the ids were asked for
+    private List<OrderStateEntry> orders;
+    // Ids with no order, which do not fail the rest of the lookup
+    private List<Long> notFound;
+}
@@ -0,0 +1,22 @@
+package com.scalableservices.orderservice.dto.order;
+
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary {
+    private Long orderId;
+    private Long restaurantId;
+    private OrderStates orderStatus;
+    private BigDecimal totalAmount;
+    private LocalDateTime createdAt;
+}
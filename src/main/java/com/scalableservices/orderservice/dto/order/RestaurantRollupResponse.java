@@ -0,0 +1,25 @@
+package com.scalableservices.orderservice.dto.order;
+
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestaurantRollupResponse {
+    private Long restaurantId;
+    private LocalDate businessDate;
+    private Map<OrderStates, Long> ordersByStatus;
+    private Map<OrderStates, BigDecimal> amountByStatus;
+    private Long totalOrders;
+    // Sum over every state except CANCELLED
+    private BigDecimal totalRevenue;
+}
@@ -0,0 +1,27 @@
+package com.scalableservices.orderservice.dto.reconciliation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobResponse {
+    private String jobId;
+    private String table;
+    private String status;
+    private long bytesTotal;
+    private long bytesRead;
+    private Double percentComplete;
+    private long rowsRead;
+    private long rowsWritten;
+    private long rowsRejected;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
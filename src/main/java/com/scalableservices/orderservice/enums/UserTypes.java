@@ -1,7 +1,29 @@
 package com.scalableservices.orderservice.enums;
 
 public enum UserTypes {
-    CUSTOMER,
-    DELIVERY_AGENT,
-    RESTAURANT_OWNER
+    CUSTOMER(1),
+    DELIVERY_AGENT(2),
+    RESTAURANT_OWNER(3),
+    ADMIN(4),
+    SYSTEM(5);
+
+    // Stored in order_log_entries.entered_by; never reuse or renumber a code
+    private final int code;
+
+    UserTypes(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public static UserTypes fromCode(int code) {
+        for (UserTypes userType : values()) {
+            if (userType.code == code) {
+                return userType;
+            }
+        }
+        throw new IllegalArgumentException("Unknown user type code: " + code);
+    }
 }
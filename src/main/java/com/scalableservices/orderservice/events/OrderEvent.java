@@ -0,0 +1,54 @@
+package com.scalableservices.orderservice.events;
+
+import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+
+/**
+ * A preallocated ring buffer slot. Publishers overwrite the fields in place; fields that do
+ * not apply to an event type are left null.
+ */
+@Getter
+@ToString
+public class OrderEvent {
+    private long sequence;
+    private OrderEventType type;
+    private long orderId;
+    private Long restaurantId;
+    private Long customerId;
+    private OrderStates fromState;
+    private OrderStates toState;
+    private UserTypes userType;
+    private Long userId;
+    private Long deliveryAgentId;
+    private String remarks;
+    private BigDecimal totalAmount;
+    private long occurredAt;
+
+    void set(long sequence, OrderEventType type, long orderId, Long restaurantId, Long customerId,
+             OrderStates fromState, OrderStates toState, UserTypes userType, Long userId,
+             Long deliveryAgentId, String remarks, BigDecimal totalAmount, long occurredAt) {
+        this.sequence = sequence;
+        this.type = type;
+        this.orderId = orderId;
+        this.restaurantId = restaurantId;
+        this.customerId = customerId;
+        this.fromState = fromState;
+        this.toState = toState;
+        this.userType = userType;
+        this.userId = userId;
+        this.deliveryAgentId = deliveryAgentId;
+        this.remarks = remarks;
+        this.totalAmount = totalAmount;
+        this.occurredAt = occurredAt;
+    }
+
+    void copyFrom(OrderEvent other) {
+        set(other.sequence, other.type, other.orderId, other.restaurantId, other.customerId,
+                other.fromState, other.toState, other.userType, other.userId,
+                other.deliveryAgentId, other.remarks, other.totalAmount, other.occurredAt);
+    }
+}
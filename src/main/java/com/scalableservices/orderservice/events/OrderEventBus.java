@@ -0,0 +1,347 @@
+package com.scalableservices.orderservice.events;
+
+import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process bus for committed order events.
+ * <p>
+ * Events go into a preallocated ring of {@link OrderEvent} slots. Publishers claim a sequence
+ * with a CAS, write the slot in place and mark it published, so publishing allocates nothing
+ * and never blocks. When the ring is full the {@link SlowConsumerPolicy} decides whether the
+ * new event is dropped or the slowest subscriber is overrun. Every {@link OrderEventHandler}
+ * bean consumes on its own thread with its own {@link WaitStrategy} and reports its lag.
+ * <p>
+ * Events raised inside a transaction are held until it commits by one synchronization per thread,
+ * which is registered with each transaction and reused for the next, so once a thread has seen
+ * its usual number of events per transaction, deferring them allocates nothing.
+ */
+@Slf4j
+@Component
+public class OrderEventBus implements SmartLifecycle {
+
+    private static final long WRITING = Long.MIN_VALUE;
+
+    private final OrderEventBusProperties properties;
+    private final ObjectProvider<OrderEventHandler> handlers;
+    private final MeterRegistry meterRegistry;
+
+    private final OrderEvent[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final Counter publishedCounter;
+    private final Counter droppedCounter;
+
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private volatile Subscriber[] gating = new Subscriber[0];
+    private volatile long cachedGate = -1;
+    private volatile boolean running;
+    private final ThreadLocal<PendingEvents> pendingEvents = ThreadLocal.withInitial(PendingEvents::new);
+
+    public OrderEventBus(OrderEventBusProperties properties, ObjectProvider<OrderEventHandler> handlers, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.handlers = handlers;
+        this.meterRegistry = meterRegistry;
+        int size = Integer.highestOneBit(Math.max(2, properties.getBufferSize() - 1)) << 1;
+        this.slots = new OrderEvent[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new OrderEvent();
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+        this.publishedCounter = meterRegistry.counter("order.events.published");
+        this.droppedCounter = meterRegistry.counter("order.events.dropped");
+    }
+
+    public void publishCreated(Order order) {
+        publishAfterCommit(OrderEventType.CREATED, order, null, order.getOrderStatus(), null, null, null, null);
+    }
+
+    public void publishTransition(Order order, OrderStates fromState, OrderStates toState, UserTypes userType, Long userId, String remarks) {
+        publishAfterCommit(OrderEventType.TRANSITIONED, order, fromState, toState, userType, userId, null, remarks);
+    }
+
+    public void publishAgentAssigned(Order order, Long deliveryAgentId) {
+        publishAfterCommit(OrderEventType.AGENT_ASSIGNED, order, null, order.getOrderStatus(), null, null, deliveryAgentId, null);
+    }
+
+    public void publishSlaEscalated(Order order, OrderStates state) {
+        publishAfterCommit(OrderEventType.SLA_ESCALATED, order, state, state, UserTypes.SYSTEM, null, null, "SLA deadline passed in " + state);
+    }
+
+    private void publishAfterCommit(OrderEventType type, Order order, OrderStates fromState, OrderStates toState,
+                                    UserTypes userType, Long userId, Long deliveryAgentId, String remarks) {
+        if (!running) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingEvents pending = pendingEvents.get();
+            if (!pending.registered) {
+                TransactionSynchronizationManager.registerSynchronization(pending);
+                pending.registered = true;
+            }
+            pending.add(type, order, fromState, toState, userType, userId, deliveryAgentId, remarks);
+        } else {
+            publish(type, order.getId(), order.getRestaurantId(), order.getCustomerId(), fromState, toState,
+                    userType, userId, deliveryAgentId, remarks, order.getTotalAmount());
+        }
+    }
+
+    /**
+     * Writes one event into the ring. Returns false when the event was dropped because the ring
+     * was full under {@link SlowConsumerPolicy#DROP_NEW}.
+     */
+    public boolean publish(OrderEventType type, long orderId, Long restaurantId, Long customerId,
+                           OrderStates fromState, OrderStates toState, UserTypes userType, Long userId,
+                           Long deliveryAgentId, String remarks, BigDecimal totalAmount) {
+        long sequence = tryClaim();
+        if (sequence < 0) {
+            droppedCounter.increment();
+            for (Subscriber subscriber : gating) {
+                subscriber.handler.onEventsLost(1);
+            }
+            return false;
+        }
+        int index = (int) sequence & mask;
+        published.set(index, WRITING);
+        // The volatile store above does not keep the plain slot writes below from moving ahead of it
+        VarHandle.storeStoreFence();
+        slots[index].set(sequence, type, orderId, restaurantId, customerId, fromState, toState, userType, userId,
+                deliveryAgentId, remarks, totalAmount, System.currentTimeMillis());
+        published.set(index, sequence);
+        publishedCounter.increment();
+        return true;
+    }
+
+    // Highest sequence handed to a publisher so far; a subscriber at this sequence has seen everything
+    public long lastClaimedSequence() {
+        return claimed.get();
+    }
+
+    private long tryClaim() {
+        int size = slots.length;
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            long wrapPoint = next - size;
+            if (wrapPoint > cachedGate) {
+                long slowest = slowestSequence(current);
+                cachedGate = slowest;
+                if (wrapPoint > slowest && properties.getSlowConsumerPolicy() == SlowConsumerPolicy.DROP_NEW) {
+                    return -1;
+                }
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private long slowestSequence(long fallback) {
+        long slowest = fallback;
+        for (Subscriber subscriber : gating) {
+            slowest = Math.min(slowest, subscriber.sequence.get());
+        }
+        return slowest;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            log.info("Order event bus is disabled");
+            return;
+        }
+        for (OrderEventHandler handler : handlers) {
+            OrderEventBusProperties.Subscriber settings = properties.getSubscribers().get(handler.name());
+            if (settings != null && !settings.isEnabled()) {
+                continue;
+            }
+            WaitStrategy waitStrategy = settings != null && settings.getWaitStrategy() != null
+                    ? settings.getWaitStrategy() : properties.getWaitStrategy();
+            subscribers.add(new Subscriber(handler, waitStrategy, claimed.get()));
+        }
+        gating = subscribers.toArray(new Subscriber[0]);
+        running = true;
+        subscribers.forEach(Subscriber::start);
+        log.info("Order event bus started with {} slots and subscribers {}", slots.length,
+                subscribers.stream().map(subscriber -> subscriber.handler.name()).toArray());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.thread.interrupt();
+        }
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Events raised in the current transaction of one thread, published in order once it commits
+     * and discarded if it rolls back.
+     */
+    private final class PendingEvents implements TransactionSynchronization {
+        private final List<DeferredEvent> events = new ArrayList<>();
+        private int size;
+        private boolean registered;
+
+        private void add(OrderEventType type, Order order, OrderStates fromState, OrderStates toState,
+                         UserTypes userType, Long userId, Long deliveryAgentId, String remarks) {
+            if (size == events.size()) {
+                events.add(new DeferredEvent());
+            }
+            DeferredEvent event = events.get(size++);
+            event.type = type;
+            event.order = order;
+            event.fromState = fromState;
+            event.toState = toState;
+            event.userType = userType;
+            event.userId = userId;
+            event.deliveryAgentId = deliveryAgentId;
+            event.remarks = remarks;
+        }
+
+        @Override
+        public void suspend() {
+            // A transaction started inside this one holds its events apart until it completes
+            pendingEvents.set(new PendingEvents());
+        }
+
+        @Override
+        public void resume() {
+            pendingEvents.set(this);
+        }
+
+        @Override
+        public void afterCommit() {
+            for (int i = 0; i < size; i++) {
+                DeferredEvent event = events.get(i);
+                Order order = event.order;
+                publish(event.type, order.getId(), order.getRestaurantId(), order.getCustomerId(), event.fromState, event.toState,
+                        event.userType, event.userId, event.deliveryAgentId, event.remarks, order.getTotalAmount());
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            for (int i = 0; i < size; i++) {
+                DeferredEvent event = events.get(i);
+                event.order = null;
+                event.remarks = null;
+            }
+            size = 0;
+            registered = false;
+        }
+    }
+
+    private static final class DeferredEvent {
+        private OrderEventType type;
+        private Order order;
+        private OrderStates fromState;
+        private OrderStates toState;
+        private UserTypes userType;
+        private Long userId;
+        private Long deliveryAgentId;
+        private String remarks;
+    }
+
+    private final class Subscriber implements Runnable {
+        private final OrderEventHandler handler;
+        private final WaitStrategy waitStrategy;
+        // Last sequence this subscriber has fully handled
+        private final AtomicLong sequence;
+        private final OrderEvent event = new OrderEvent();
+        private final Counter lostCounter;
+        private final Counter errorCounter;
+        private final Thread thread;
+
+        private Subscriber(OrderEventHandler handler, WaitStrategy waitStrategy, long startAfter) {
+            this.handler = handler;
+            this.waitStrategy = waitStrategy;
+            this.sequence = new AtomicLong(startAfter);
+            this.lostCounter = meterRegistry.counter("order.events.subscriber.lost", "subscriber", handler.name());
+            this.errorCounter = meterRegistry.counter("order.events.subscriber.errors", "subscriber", handler.name());
+            Gauge.builder("order.events.subscriber.lag", this, subscriber -> claimed.get() - subscriber.sequence.get())
+                    .tag("subscriber", handler.name())
+                    .register(meterRegistry);
+            this.thread = new Thread(this, "order-events-" + handler.name());
+            this.thread.setDaemon(true);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int idleCount = 0;
+            while (running) {
+                int index = (int) next & mask;
+                long available = published.get(index);
+                if (available == next) {
+                    event.copyFrom(slots[index]);
+                    // A publisher that lapped us may have rewritten the slot while it was copied
+                    VarHandle.loadLoadFence();
+                    if (published.get(index) == next) {
+                        dispatch();
+                    } else {
+                        lostCounter.increment();
+                        handler.onEventsLost(1);
+                    }
+                    sequence.set(next);
+                    next++;
+                    idleCount = 0;
+                } else if (available > next) {
+                    long resumeAt = Math.max(next + 1, claimed.get() - slots.length + 1);
+                    lostCounter.increment(resumeAt - next);
+                    handler.onEventsLost(resumeAt - next);
+                    log.warn("Order event subscriber {} was overrun, skipping {} events", handler.name(), resumeAt - next);
+                    sequence.set(resumeAt - 1);
+                    next = resumeAt;
+                } else {
+                    waitStrategy.idle(idleCount++);
+                }
+            }
+        }
+
+        private void dispatch() {
+            try {
+                handler.onEvent(event);
+            } catch (Exception e) {
+                errorCounter.increment();
+                log.error("Order event subscriber {} failed on order {}: {}", handler.name(), event.getOrderId(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.scalableservices.orderservice.events;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.events")
+public class OrderEventBusProperties {
+
+    private boolean enabled = true;
+
+    // Rounded up to a power of two
+    private int bufferSize = 8192;
+
+    private WaitStrategy waitStrategy = WaitStrategy.SLEEPING;
+
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DROP_NEW;
+
+    // Per handler overrides keyed by OrderEventHandler#name()
+    private Map<String, Subscriber> subscribers = new HashMap<>();
+
+    @Data
+    public static class Subscriber {
+        private boolean enabled = true;
+        private WaitStrategy waitStrategy;
+    }
+}
@@ -0,0 +1,24 @@
+package com.scalableservices.orderservice.events;
+
+/**
+ * A downstream consumer of committed order events. Every handler bean gets its own thread.
+ * <p>
+ * The event instance is reused for the next delivery, so handlers copy whatever they need to
+ * keep past the call.
+ */
+public interface OrderEventHandler {
+
+    void onEvent(OrderEvent event);
+
+    /**
+     * Called when {@code count} events will never reach this handler, because the ring was full
+     * under {@link SlowConsumerPolicy#DROP_NEW} or a publisher overran it. May be called from a
+     * publishing thread, so it must not block.
+     */
+    default void onEventsLost(long count) {
+    }
+
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
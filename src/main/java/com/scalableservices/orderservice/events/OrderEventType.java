@@ -0,0 +1,5 @@
+package com.scalableservices.orderservice.events;
+
+public enum OrderEventType {
+    CREATED, TRANSITIONED, AGENT_ASSIGNED, SLA_ESCALATED
+}
@@ -0,0 +1,12 @@
+package com.scalableservices.orderservice.events;
+
+/**
+ * What a publisher does when the ring is full because a subscriber has fallen a whole
+ * buffer behind. Publishers never wait in either case.
+ */
+public enum SlowConsumerPolicy {
+    // The new event is dropped for everyone and counted on order.events.dropped
+    DROP_NEW,
+    // The event is written anyway; the lapped subscriber skips ahead and counts what it lost
+    OVERRUN_SLOWEST
+}
@@ -0,0 +1,51 @@
+package com.scalableservices.orderservice.events;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a subscriber thread idles while it has caught up with the publishers.
+ */
+public enum WaitStrategy {
+    // Lowest latency, burns a core per subscriber
+    BUSY_SPIN {
+        @Override
+        public void idle(int idleCount) {
+            Thread.onSpinWait();
+        }
+    },
+    // Spins briefly, then gives the core away on every miss
+    YIELDING {
+        @Override
+        public void idle(int idleCount) {
+            if (idleCount < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+    // Spins, yields, then parks for a short fixed interval
+    SLEEPING {
+        @Override
+        public void idle(int idleCount) {
+            if (idleCount < 100) {
+                Thread.onSpinWait();
+            } else if (idleCount < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+    },
+    // Parks with a backoff up to a millisecond, for subscribers where latency does not matter
+    PARKING {
+        @Override
+        public void idle(int idleCount) {
+            long micros = Math.min(1000, 10L << Math.min(idleCount, 7));
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+    };
+
+    public abstract void idle(int idleCount);
+}
@@ -0,0 +1,38 @@
+package com.scalableservices.orderservice.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * An expected business outcome reported as an exception, such as an unknown order or a
+ * transition the order cannot take.
+ * <p>
+ * These are raised per request by clients, well-behaved or not, so one instance is shared per
+ * {@link Rejection}, created with suppression and stack traces disabled: throwing one costs
+ * about as much as returning, and nothing a request does can attach state to it. That needs the
+ * protected {@link RuntimeException} constructor, which {@link ServiceException} does not
+ * expose, so handlers that pass a ServiceException through have to pass this on as well; the
+ * message has the same form and {@link RejectedExceptionHandler} answers it with the same status.
+ * The message never carries request data for the same reason.
+ */
+public final class RejectedException extends RuntimeException {
+
+    private final Rejection rejection;
+
+    RejectedException(Rejection rejection) {
+        // Worded like a ResponseStatusException message, which is what these used to be
+        super(rejection.getStatus() + " \"" + rejection.getReason() + "\"", null, false, false);
+        this.rejection = rejection;
+    }
+
+    public Rejection getRejection() {
+        return rejection;
+    }
+
+    public HttpStatus getStatus() {
+        return rejection.getStatus();
+    }
+
+    public String getReason() {
+        return rejection.getReason();
+    }
+}
@@ -0,0 +1,17 @@
+package com.scalableservices.orderservice.exception;
+
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// Rejections no endpoint answers itself get the status and error page a ServiceException would
+@ControllerAdvice
+public class RejectedExceptionHandler {
+
+    @ExceptionHandler(RejectedException.class)
+    public void handleRejection(RejectedException ex, HttpServletResponse response) throws IOException {
+        response.sendError(ex.getStatus().value(), ex.getReason());
+    }
+}
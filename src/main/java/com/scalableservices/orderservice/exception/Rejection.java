@@ -0,0 +1,58 @@
+package com.scalableservices.orderservice.exception;
+
+import com.scalableservices.orderservice.dto.common.ApiResponse;
+import com.scalableservices.orderservice.dto.common.ErrorMessage;
+import org.springframework.http.HttpStatus;
+
+/**
+ * The routine ways a request is turned down, each with its exception built once up front.
+ */
+public enum Rejection {
+    ORDER_NOT_FOUND(HttpStatus.NOT_FOUND, "Order not found"),
+    NO_ORDER_LOGS(HttpStatus.BAD_REQUEST, "No logs found for order"),
+    NO_ORDERS_READY(HttpStatus.BAD_REQUEST, "No orders found ready for delivery agent"),
+    NO_DELIVERY_AGENT_ORDERS(HttpStatus.BAD_REQUEST, "No orders found for delivery agent"),
+    INVALID_ORDER_EVENT(HttpStatus.BAD_REQUEST, "Invalid order status"),
+    ORDER_EVENT_NOT_ALLOWED(HttpStatus.BAD_REQUEST, "User is not eligible to perform this action"),
+    ORDER_CLOSED(HttpStatus.BAD_REQUEST, "Order is already delivered or cancelled"),
+    TRANSITION_FAILED(HttpStatus.BAD_REQUEST, "Order state transition failed"),
+    NOT_READY_FOR_DELIVERY(HttpStatus.BAD_REQUEST, "Order is not ready for delivery"),
+    RESTAURANT_THROTTLED(HttpStatus.TOO_MANY_REQUESTS, "Restaurant is not taking more orders right now, try again shortly");
+
+    private final HttpStatus status;
+    private final String reason;
+    private final RejectedException exception;
+
+    Rejection(HttpStatus status, String reason) {
+        this.status = status;
+        this.reason = reason;
+        this.exception = new RejectedException(this);
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * The shared, stackless exception for this rejection; throw it rather than building a
+     * {@link ServiceException}.
+     */
+    public RejectedException exception() {
+        return exception;
+    }
+
+    /**
+     * A failed response for this rejection. Endpoints pass the same error and description they
+     * use for any other {@link ServiceException}, with the exception message in its usual place,
+     * so clients see the body they always have.
+     */
+    public <T> ApiResponse<T> response(String error, String description) {
+        return ApiResponse.<T>builder().status("failed")
+                .error(ErrorMessage.builder().error(error).description(description).build())
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.scalableservices.orderservice.exception;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts every rejection and logs a few of each kind per interval, without a stack trace.
+ * The first rejection after a quiet interval also reports how many were left out, so a storm
+ * of bad requests shows up as one line per interval instead of one per request.
+ */
+@Slf4j
+@Component
+public class RejectionLogger {
+
+    private final int logsPerInterval;
+    private final long intervalMs;
+    private final Map<Rejection, Counter> counters = new EnumMap<>(Rejection.class);
+    private final Map<Rejection, Window> windows = new EnumMap<>(Rejection.class);
+
+    public RejectionLogger(@Value("${order.rejections.logs-per-interval:5}") int logsPerInterval,
+                           @Value("${order.rejections.log-interval-ms:10000}") long intervalMs,
+                           MeterRegistry meterRegistry) {
+        this.logsPerInterval = logsPerInterval;
+        this.intervalMs = intervalMs;
+        for (Rejection rejection : Rejection.values()) {
+            counters.put(rejection, meterRegistry.counter("order.rejections", "reason", rejection.name()));
+            windows.put(rejection, new Window());
+        }
+    }
+
+    public void rejected(Rejection rejection, String operation, Object subject) {
+        counters.get(rejection).increment();
+        Window window = windows.get(rejection);
+        long now = System.currentTimeMillis();
+        long start = window.start.get();
+        if (now - start >= intervalMs && window.start.compareAndSet(start, now)) {
+            int suppressed = window.suppressed.getAndSet(0);
+            window.logged.set(0);
+            if (suppressed > 0) {
+                log.warn("{} more {} rejections in the last {} ms were not logged", suppressed, rejection, now - start);
+            }
+        }
+        if (window.logged.incrementAndGet() <= logsPerInterval) {
+            log.warn("Rejected {} for {}: {}", operation, subject, rejection.getReason());
+        } else {
+            window.suppressed.incrementAndGet();
+        }
+    }
+
+    private static final class Window {
+        private final AtomicLong start = new AtomicLong();
+        private final AtomicInteger logged = new AtomicInteger();
+        private final AtomicInteger suppressed = new AtomicInteger();
+    }
+}
@@ -0,0 +1,29 @@
+package com.scalableservices.orderservice.feed;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.feed")
+public class FeedProperties {
+
+    // How often committed changes are given feed sequence numbers, i.e. the feed's lag
+    private long sequenceIntervalMs = 200;
+
+    // Changes stamped per sequencer transaction
+    private int sequenceBatchSize = 1000;
+
+    private int defaultPageSize = 100;
+
+    private int maxPageSize = 1000;
+
+    // Changes older than this are purged; a consumer whose watermark is older must start over
+    private Duration retention = Duration.ofDays(7);
+
+    // Rows deleted per purge statement
+    private int purgeBatchSize = 5000;
+}
@@ -0,0 +1,191 @@
+package com.scalableservices.orderservice.feed;
+
+import com.scalableservices.orderservice.dto.order.OrderChangeEntry;
+import com.scalableservices.orderservice.dto.order.OrderChangeFeedResponse;
+import com.scalableservices.orderservice.dto.order.OrderLogResponse;
+import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Reads the order change feed. Each shard numbers its own changes, so the watermark handed to
+ * consumers holds the last number they have seen on every shard. A page takes the next changes of
+ * each shard in number order and interleaves them by time, always as a prefix of each shard's
+ * run, so the returned watermark never skips a change.
+ */
+@Service
+public class OrderChangeFeedService {
+
+    // Log rows are matched by id alone, which leads both primary keys; a change's created_at need not equal its log row's
+    private static final String CHANGES_SQL = "SELECT c.feed_seq, c.order_id, c.restaurant_id, c.order_status, c.created_at,"
+            + " c.order_log_id, l.entered_by, l.entered_by_id, r.remarks FROM order_changes c"
+            + " LEFT JOIN order_log_entries l ON l.id = c.order_log_id"
+            + " LEFT JOIN order_log_remarks r ON r.order_log_id = c.order_log_id"
+            + " WHERE c.feed_seq > ? ORDER BY c.feed_seq LIMIT ?";
+    private static final String CHANGED_SINCE_SQL = "SELECT DISTINCT order_id FROM order_changes WHERE created_at >= ?";
+    // The lowest number still kept; with nothing kept, the next one to be handed out
+    private static final String OLDEST_RETAINED_SQL = "SELECT COALESCE((SELECT MIN(feed_seq) FROM order_changes),"
+            + " (SELECT last_seq + 1 FROM order_change_sequence WHERE id = 1))";
+
+    private final FeedProperties properties;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderChangeFeedService(FeedProperties properties, ShardRouter shardRouter, @Qualifier("fdsOrderDb") DataSource dataSource) {
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * The changes after {@code watermark}, or from the oldest one kept when it is empty. Throws
+     * GONE when changes after the watermark have already been purged, so the consumer has to
+     * start over from an empty watermark and reconcile.
+     */
+    public OrderChangeFeedResponse getChanges(String watermark, Integer limit) {
+        int pageSize = limit == null ? properties.getDefaultPageSize() : Math.min(Math.max(limit, 1), properties.getMaxPageSize());
+        long[] seen = decodeWatermark(watermark);
+        boolean resuming = watermark != null && !watermark.isEmpty();
+        // One extra row per shard tells whether it has more
+        List<ShardChange> fetched = shardRouter.fanOut(shard -> readShard(shard, seen[shard], resuming, pageSize + 1));
+
+        List<List<ShardChange>> byShard = new ArrayList<>();
+        for (int shard = 0; shard < seen.length; shard++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (ShardChange change : fetched) {
+            byShard.get(change.shard).add(change);
+        }
+        int[] taken = new int[seen.length];
+        List<OrderChangeEntry> changes = new ArrayList<>(pageSize);
+        while (changes.size() < pageSize) {
+            ShardChange next = null;
+            for (int shard = 0; shard < seen.length; shard++) {
+                if (taken[shard] < byShard.get(shard).size()) {
+                    ShardChange head = byShard.get(shard).get(taken[shard]);
+                    if (next == null || head.entry.getChangedAt().isBefore(next.entry.getChangedAt())) {
+                        next = head;
+                    }
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            taken[next.shard]++;
+            seen[next.shard] = next.seq;
+            changes.add(next.entry);
+        }
+        boolean hasMore = false;
+        for (int shard = 0; shard < seen.length; shard++) {
+            hasMore |= taken[shard] < byShard.get(shard).size();
+        }
+        return OrderChangeFeedResponse.builder()
+                .changes(changes)
+                .watermark(encodeWatermark(seen))
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Ids of the orders created or transitioned at or after {@code since} on any shard, as far
+     * back as changes are kept.
+     */
+    public List<Long> orderIdsChangedSince(LocalDateTime since) {
+        Timestamp from = Timestamp.valueOf(since);
+        return shardRouter.fanOut(shard -> jdbcTemplate.queryForList(CHANGED_SINCE_SQL, Long.class, from));
+    }
+
+    private List<ShardChange> readShard(int shard, long after, boolean resuming, int rows) {
+        if (resuming) {
+            Long oldestRetained = jdbcTemplate.queryForObject(OLDEST_RETAINED_SQL, Long.class);
+            if (oldestRetained != null && after + 1 < oldestRetained) {
+                throw new ServiceException(HttpStatus.GONE, "Changes after the watermark have been purged, start again without one");
+            }
+        }
+        return jdbcTemplate.query(CHANGES_SQL, (rs, rowNum) -> {
+            rs.getLong("order_log_id");
+            boolean transition = !rs.wasNull();
+            String orderStatus = OrderStates.fromCode(rs.getInt("order_status")).name();
+            OrderLogResponse orderLog = null;
+            if (transition) {
+                int enteredBy = rs.getInt("entered_by");
+                // The log row is gone if its month was archived before the change was purged
+                String userType = rs.wasNull() ? null : UserTypes.fromCode(enteredBy).name();
+                orderLog = OrderLogResponse.builder()
+                        .orderStatus(orderStatus)
+                        .remarks(rs.getString("remarks"))
+                        .userType(userType)
+                        .userId(rs.getLong("entered_by_id"))
+                        .timestamp(rs.getTimestamp("created_at").toLocalDateTime().toString())
+                        .build();
+            }
+            OrderChangeEntry entry = OrderChangeEntry.builder()
+                    .orderId(rs.getLong("order_id"))
+                    .restaurantId(rs.getLong("restaurant_id"))
+                    .changeType(transition ? "TRANSITIONED" : "CREATED")
+                    .orderStatus(orderStatus)
+                    .log(orderLog)
+                    .changedAt(rs.getTimestamp("created_at").toLocalDateTime())
+                    .build();
+            return new ShardChange(shard, rs.getLong("feed_seq"), entry);
+        }, after, rows);
+    }
+
+    private String encodeWatermark(long[] seen) {
+        StringBuilder raw = new StringBuilder();
+        for (int shard = 0; shard < seen.length; shard++) {
+            if (shard > 0) {
+                raw.append(',');
+            }
+            raw.append(seen[shard]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long[] decodeWatermark(String watermark) {
+        long[] seen = new long[shardRouter.getShardCount()];
+        if (watermark == null || watermark.isEmpty()) {
+            return seen;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(watermark), StandardCharsets.UTF_8).split(",");
+            if (parts.length != seen.length) {
+                throw new IllegalArgumentException("Expected " + seen.length + " shards, found " + parts.length);
+            }
+            for (int shard = 0; shard < seen.length; shard++) {
+                seen[shard] = Long.parseLong(parts[shard]);
+                if (seen[shard] < 0) {
+                    throw new IllegalArgumentException("Negative sequence " + seen[shard]);
+                }
+            }
+            return seen;
+        } catch (Exception e) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "Invalid watermark: " + watermark);
+        }
+    }
+
+    private static final class ShardChange {
+        private final int shard;
+        private final long seq;
+        private final OrderChangeEntry entry;
+
+        private ShardChange(int shard, long seq, OrderChangeEntry entry) {
+            this.shard = shard;
+            this.seq = seq;
+            this.entry = entry;
+        }
+    }
+}
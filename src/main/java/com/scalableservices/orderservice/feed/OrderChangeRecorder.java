@@ -0,0 +1,59 @@
+package com.scalableservices.orderservice.feed;
+
+import com.scalableservices.orderservice.idgen.TimeOrderedIdGenerator;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.model.OrderLog;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the order_changes row for an order change. Callers run it inside the transaction that
+ * makes the change, on the order's shard, so a change is in the feed if and only if it committed.
+ */
+@Component
+public class OrderChangeRecorder {
+
+    private static final String INSERT_SQL = "INSERT INTO order_changes (id, order_id, restaurant_id, order_status, order_log_id, created_at)"
+            + " VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final ShardRouter shardRouter;
+    private final TimeOrderedIdGenerator idGenerator;
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderChangeRecorder(ShardRouter shardRouter, TimeOrderedIdGenerator idGenerator, @Qualifier("fdsOrderDb") DataSource dataSource) {
+        this.shardRouter = shardRouter;
+        this.idGenerator = idGenerator;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public void recordCreated(Order order) {
+        jdbcTemplate.update(INSERT_SQL, createdRow(order));
+    }
+
+    public void recordCreated(List<Order> orders) {
+        List<Object[]> rows = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            rows.add(createdRow(order));
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+
+    public void recordTransition(Order order, OrderLog orderLog) {
+        jdbcTemplate.update(INSERT_SQL, idGenerator.nextId(shardRouter.shardForOrder(order.getId())), order.getId(),
+                order.getRestaurantId(), order.getOrderStatus().getCode(), orderLog.getId(), Timestamp.valueOf(orderLog.getCreatedAt()));
+    }
+
+    private Object[] createdRow(Order order) {
+        return new Object[]{idGenerator.nextId(shardRouter.shardForOrder(order.getId())), order.getId(), order.getRestaurantId(),
+                order.getOrderStatus().getCode(), null, Timestamp.valueOf(order.getCreatedAt())};
+    }
+}
@@ -0,0 +1,121 @@
+package com.scalableservices.orderservice.feed;
+
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gives committed order_changes rows their feed sequence numbers, on every shard.
+ * <p>
+ * Writers insert their change rows unnumbered, so numbers are not handed out in the order
+ * transactions start but in the order this sequencer finds them committed: it locks the shard's
+ * order_change_sequence row, numbers the unnumbered rows it can see after the last number and
+ * commits both together. A reader that has seen number N has therefore seen every change that
+ * will ever be numbered below N, and resuming after N loses nothing. READ COMMITTED keeps the
+ * scan for unnumbered rows from gap locking the rows writers are inserting.
+ * <p>
+ * Also purges numbered changes older than {@code order.feed.retention}, always from the low end
+ * of the sequence, so what is kept is an unbroken run of numbers.
+ */
+@Slf4j
+@Component
+public class OrderChangeSequencer {
+
+    private final FeedProperties properties;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderChangeSequencer(FeedProperties properties, ShardRouter shardRouter, @Qualifier("fdsOrderDb") DataSource dataSource,
+                                @Qualifier("fdsOrderDbTransactionManager") PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    @Scheduled(fixedDelayString = "${order.feed.sequence-interval-ms:200}")
+    public void sequence() {
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            try {
+                int stamped;
+                do {
+                    stamped = shardRouter.onShard(shard, this::stampBatch);
+                } while (stamped == properties.getSequenceBatchSize());
+            } catch (Exception e) {
+                log.error("Error while sequencing order changes on shard {}: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(cron = "${order.feed.purge-cron:0 45 * * * *}")
+    public void purge() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(properties.getRetention()));
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            try {
+                long purged = 0;
+                int deleted;
+                do {
+                    deleted = shardRouter.onShard(shard, () -> purgeBatch(cutoff));
+                    purged += deleted;
+                } while (deleted == properties.getPurgeBatchSize());
+                if (purged > 0) {
+                    log.info("Purged {} order changes older than {} on shard {}", purged, cutoff, shard);
+                }
+            } catch (Exception e) {
+                log.error("Error while purging order changes on shard {}: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    private int stampBatch() {
+        Integer stamped = transactionTemplate.execute(status -> {
+            long lastSeq = jdbcTemplate.queryForObject("SELECT last_seq FROM order_change_sequence WHERE id = 1 FOR UPDATE", Long.class);
+            List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM order_changes WHERE feed_seq IS NULL ORDER BY id LIMIT ?",
+                    Long.class, properties.getSequenceBatchSize());
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            List<Object[]> rows = new ArrayList<>(ids.size());
+            long seq = lastSeq;
+            for (Long id : ids) {
+                rows.add(new Object[]{++seq, id});
+            }
+            jdbcTemplate.batchUpdate("UPDATE order_changes SET feed_seq = ? WHERE id = ?", rows);
+            jdbcTemplate.update("UPDATE order_change_sequence SET last_seq = ? WHERE id = 1", seq);
+            return ids.size();
+        });
+        return stamped == null ? 0 : stamped;
+    }
+
+    /**
+     * Deletes up to a batch of the lowest numbered changes, stopping at the first one still within
+     * retention even if older ones follow it.
+     */
+    private int purgeBatch(Timestamp cutoff) {
+        List<Timestamp> createdAts = jdbcTemplate.queryForList(
+                "SELECT created_at FROM order_changes WHERE feed_seq IS NOT NULL ORDER BY feed_seq LIMIT ?",
+                Timestamp.class, properties.getPurgeBatchSize());
+        int expired = 0;
+        while (expired < createdAts.size() && createdAts.get(expired).before(cutoff)) {
+            expired++;
+        }
+        if (expired == 0) {
+            return 0;
+        }
+        return jdbcTemplate.update("DELETE FROM order_changes WHERE feed_seq IS NOT NULL ORDER BY feed_seq LIMIT ?", expired);
+    }
+}
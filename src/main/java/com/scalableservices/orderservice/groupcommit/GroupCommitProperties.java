@@ -0,0 +1,26 @@
+package com.scalableservices.orderservice.groupcommit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.group-commit")
+public class GroupCommitProperties {
+
+    // When on, concurrent new orders are written together, one transaction per batch
+    private boolean enabled = false;
+
+    // A batch is written as soon as it has this many orders
+    private int maxBatchSize = 50;
+
+    // Longest a new order waits for others to join its batch
+    private long maxWaitMicros = 2000;
+
+    // Orders waiting per shard; beyond it new orders are written on their own
+    private int queueCapacity = 1000;
+
+    // Longest a request waits for its batch to commit before it fails with a timeout
+    private long commitTimeoutMs = 5000;
+}
@@ -0,0 +1,313 @@
+package com.scalableservices.orderservice.groupcommit;
+
+import com.scalableservices.orderservice.dto.order.OrderMenuDetails;
+import com.scalableservices.orderservice.feed.OrderChangeRecorder;
+import com.scalableservices.orderservice.idgen.TimeOrderedIdGenerator;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.orderitems.OrderItemService;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.utils.DatabaseFailures;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes concurrent new orders together: each shard has a writer thread that collects the orders
+ * queued for it for up to {@code order.group-commit.max-wait-micros} or
+ * {@code max-batch-size} orders, and inserts them and their items in one transaction. With
+ * rewriteBatchedStatements on the JDBC URL each table gets one multi-row INSERT. The calling
+ * request thread waits for its order's batch, so callers see the same result as a save of their
+ * own.
+ * <p>
+ * If the database rejects a batch, its orders are written again one transaction each, so an order
+ * it rejects fails only its own request. A connection failure or a transient error fails the whole
+ * batch at once instead, since writing its orders one by one into an outage only holds every
+ * request for longer. A request waits at most {@code commit-timeout-ms} for its batch; an order
+ * no writer has picked up by then is taken back and never written by one.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "order.group-commit", name = "enabled", havingValue = "true")
+public class OrderGroupCommitter {
+
+    private static final String INSERT_SQL = "INSERT INTO orders (id, customer_id, restaurant_id, order_status, order_details,"
+            + " total_amount, is_deleted, is_archived, created_at, updated_at, customer_address) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final GroupCommitProperties properties;
+    private final ShardRouter shardRouter;
+    private final TimeOrderedIdGenerator idGenerator;
+    private final OrderItemService orderItemService;
+    private final OrderChangeRecorder orderChangeRecorder;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<BlockingQueue<PendingOrder>> queues = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private final DistributionSummary batchSize;
+    private final Timer batchWait;
+    private final Timer batchCommit;
+    private final Counter retriedAlone;
+    private final Counter overflow;
+    private final Counter timedOut;
+
+    private volatile boolean running = true;
+
+    public OrderGroupCommitter(GroupCommitProperties properties, ShardRouter shardRouter, TimeOrderedIdGenerator idGenerator,
+                               OrderItemService orderItemService, OrderChangeRecorder orderChangeRecorder,
+                               @Qualifier("fdsOrderDb") DataSource dataSource,
+                               @Qualifier("fdsOrderDbTransactionManager") PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.idGenerator = idGenerator;
+        this.orderItemService = orderItemService;
+        this.orderChangeRecorder = orderChangeRecorder;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = DistributionSummary.builder("order.group-commit.batch.size")
+                .publishPercentiles(0.5, 0.99).register(meterRegistry);
+        // Time an order spent waiting for its batch to fill, i.e. the latency batching adds
+        this.batchWait = Timer.builder("order.group-commit.wait")
+                .publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.batchCommit = Timer.builder("order.group-commit.commit")
+                .publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.retriedAlone = meterRegistry.counter("order.group-commit.retried.alone");
+        this.overflow = meterRegistry.counter("order.group-commit.overflow");
+        this.timedOut = meterRegistry.counter("order.group-commit.timed-out");
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            BlockingQueue<PendingOrder> queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+            queues.add(queue);
+            int currentShard = shard;
+            Thread writer = new Thread(() -> write(currentShard, queue), "order-group-commit-" + shard);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    /**
+     * Saves {@code order} with its items as part of the next batch for its shard and returns once
+     * that batch has committed. Assigns the order's id first. Throws what the order's own write
+     * threw if it failed, and a {@link QueryTimeoutException} if the batch did not commit within
+     * {@code commit-timeout-ms}.
+     */
+    public void save(Order order, List<OrderMenuDetails> items) {
+        int shard = shardRouter.shardForRestaurant(order.getRestaurantId());
+        if (order.getId() == null) {
+            order.setId(idGenerator.nextId(shard));
+        }
+        PendingOrder pending = new PendingOrder(order, items);
+        // A writer that died would leave its queue to fill up with orders nobody writes
+        if (!running || !writers.get(shard).isAlive() || !queues.get(shard).offer(pending)) {
+            overflow.increment();
+            shardRouter.onShard(shard, () -> {
+                writeAlone(pending);
+                return null;
+            });
+            return;
+        }
+        try {
+            pending.committed.get(properties.getCommitTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            if (pending.taken.compareAndSet(false, true)) {
+                queues.get(shard).remove(pending);
+                throw new QueryTimeoutException("Order " + order.getId() + " was not picked up for a group commit within "
+                        + properties.getCommitTimeoutMs() + "ms and was not written");
+            }
+            throw new QueryTimeoutException("Group commit of order " + order.getId() + " did not finish within "
+                    + properties.getCommitTimeoutMs() + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for order " + order.getId() + " to commit", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread writer : writers) {
+            writer.interrupt();
+        }
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // Orders queued while the writers were exiting
+        for (int shard = 0; shard < queues.size(); shard++) {
+            List<PendingOrder> leftover = new ArrayList<>();
+            queues.get(shard).drainTo(leftover);
+            leftover.removeIf(pending -> !pending.taken.compareAndSet(false, true));
+            if (!leftover.isEmpty()) {
+                shardRouter.onShard(shard, () -> {
+                    writeBatch(leftover);
+                    return null;
+                });
+            }
+        }
+    }
+
+    private void write(int shard, BlockingQueue<PendingOrder> queue) {
+        List<PendingOrder> batch = new ArrayList<>(properties.getMaxBatchSize());
+        try {
+            writeQueued(shard, queue, batch);
+        } finally {
+            if (running) {
+                // Only reached if the loop itself failed; nobody else would complete these
+                IllegalStateException stopped = new IllegalStateException("Group commit writer for shard " + shard + " stopped");
+                queue.drainTo(batch);
+                for (PendingOrder pending : batch) {
+                    pending.committed.completeExceptionally(stopped);
+                }
+                log.error("Group commit writer for shard {} stopped; new orders for it are written on their own", shard);
+            }
+        }
+    }
+
+    private void writeQueued(int shard, BlockingQueue<PendingOrder> queue, List<PendingOrder> batch) {
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = running ? queue.take() : queue.poll();
+                if (first == null) {
+                    break;
+                }
+                batch.add(first);
+                long deadline = first.queuedAt + TimeUnit.MICROSECONDS.toNanos(properties.getMaxWaitMicros());
+                while (batch.size() < properties.getMaxBatchSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingOrder next = remaining > 0 && running ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Woken by stop(); whatever was collected is still written below
+            }
+            // Orders whose request gave up waiting are no longer the writer's to write
+            batch.removeIf(pending -> !pending.taken.compareAndSet(false, true));
+            if (!batch.isEmpty()) {
+                try {
+                    shardRouter.onShard(shard, () -> {
+                        writeBatch(batch);
+                        return null;
+                    });
+                } catch (Throwable e) {
+                    // writeBatch completes every order it gets to; these are the ones an Error or the routing left waiting
+                    log.error("Group commit of {} orders on shard {} failed", batch.size(), shard, e);
+                    for (PendingOrder pending : batch) {
+                        pending.committed.completeExceptionally(e);
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingOrder> batch) {
+        long started = System.nanoTime();
+        for (PendingOrder pending : batch) {
+            batchWait.record(started - pending.queuedAt, TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(batch.size());
+        try {
+            transactionTemplate.execute(status -> {
+                List<Object[]> orderRows = new ArrayList<>(batch.size());
+                List<Object[]> itemRows = new ArrayList<>();
+                List<Order> orders = new ArrayList<>(batch.size());
+                for (PendingOrder pending : batch) {
+                    orderRows.add(orderRow(pending.order));
+                    itemRows.addAll(orderItemService.itemRows(pending.order, pending.items));
+                    orders.add(pending.order);
+                }
+                jdbcTemplate.batchUpdate(INSERT_SQL, orderRows);
+                orderItemService.insertRows(itemRows);
+                orderChangeRecorder.recordCreated(orders);
+                return null;
+            });
+            batchCommit.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            for (PendingOrder pending : batch) {
+                pending.committed.complete(null);
+            }
+        } catch (Exception e) {
+            if (batch.size() == 1 || DatabaseFailures.isUnavailable(e)) {
+                for (PendingOrder pending : batch) {
+                    pending.committed.completeExceptionally(e);
+                }
+                return;
+            }
+            log.warn("Group commit of {} orders failed, writing them one by one: {}", batch.size(), e.getMessage());
+            Exception unavailable = null;
+            for (PendingOrder pending : batch) {
+                if (unavailable != null) {
+                    pending.committed.completeExceptionally(unavailable);
+                    continue;
+                }
+                retriedAlone.increment();
+                try {
+                    writeAlone(pending);
+                    pending.committed.complete(null);
+                } catch (Exception orderFailure) {
+                    pending.committed.completeExceptionally(orderFailure);
+                    if (DatabaseFailures.isUnavailable(orderFailure)) {
+                        unavailable = orderFailure;
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeAlone(PendingOrder pending) {
+        transactionTemplate.execute(status -> {
+            jdbcTemplate.update(INSERT_SQL, orderRow(pending.order));
+            orderItemService.insertItems(pending.order, pending.items);
+            orderChangeRecorder.recordCreated(pending.order);
+            return null;
+        });
+    }
+
+    private Object[] orderRow(Order order) {
+        return new Object[]{order.getId(), order.getCustomerId(), order.getRestaurantId(), order.getOrderStatus().name(),
+                order.getOrderDetails(), order.getTotalAmount(), order.getIsDeleted(), order.getIsArchived(),
+                Timestamp.valueOf(order.getCreatedAt()), Timestamp.valueOf(order.getUpdatedAt()), order.getCustomerAddress()};
+    }
+
+    private static final class PendingOrder {
+        private final Order order;
+        private final List<OrderMenuDetails> items;
+        private final long queuedAt = System.nanoTime();
+        private final CompletableFuture<Void> committed = new CompletableFuture<>();
+        // Set by whichever of a writer and the waiting request gets to the order first
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        private PendingOrder(Order order, List<OrderMenuDetails> items) {
+            this.order = order;
+            this.items = items;
+        }
+    }
+}
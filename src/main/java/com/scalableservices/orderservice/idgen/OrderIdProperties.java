@@ -0,0 +1,28 @@
+package com.scalableservices.orderservice.idgen;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.id")
+public class OrderIdProperties {
+
+    // Must be unique per running instance, e.g. derived from the pod ordinal. There is no default:
+    // two instances left on the same default would hand out the same ids
+    private Long nodeId;
+
+    private int nodeBits = 10;
+
+    private int sequenceBits = 12;
+
+    // 2024-11-21T00:00:00Z, the date of the first schema migration
+    private long epochMillis = 1732147200000L;
+
+    // Startup is refused when the timestamp bits left by the node, sequence and shard bits run out sooner than this
+    private int minRemainingYears = 10;
+
+    // How far the wall clock may step back before id allocation is refused
+    private long maxBackwardDriftMs = 5000;
+}
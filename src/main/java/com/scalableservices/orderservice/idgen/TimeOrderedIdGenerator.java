@@ -0,0 +1,145 @@
+package com.scalableservices.orderservice.idgen;
+
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates 64-bit ids laid out as {@code [timestamp][node][sequence][shard]}, high to low.
+ * <p>
+ * Ids from one instance are strictly increasing and ids from different nodes never collide.
+ * The last timestamp and sequence are packed into one {@link AtomicLong}, so allocation is a
+ * single CAS. If the wall clock steps back, allocation keeps counting on the last timestamp
+ * it handed out (borrowing the next millisecond once the sequence is exhausted) instead of
+ * reusing old values; a step back larger than {@code order.id.max-backward-drift-ms} is
+ * refused. The shard index sits in the low bits so {@link ShardRouter} can route by id.
+ */
+@Slf4j
+@Component
+public class TimeOrderedIdGenerator {
+
+    private static final long MILLIS_PER_YEAR = 365L * 24 * 60 * 60 * 1000;
+
+    private static volatile TimeOrderedIdGenerator instance;
+
+    private final OrderIdProperties properties;
+    private final ShardRouter shardRouter;
+    private final AtomicLong lastTimestampAndSequence = new AtomicLong();
+
+    private int shardBits;
+    private int sequenceShift;
+    private int nodeShift;
+    private int timestampShift;
+    private long sequenceMask;
+    private long timestampMask;
+    private long shiftedNodeId;
+
+    public TimeOrderedIdGenerator(OrderIdProperties properties, ShardRouter shardRouter) {
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Hibernate instantiates its identifier generators itself, so they reach the Spring managed
+     * generator through this accessor.
+     */
+    public static TimeOrderedIdGenerator getInstance() {
+        TimeOrderedIdGenerator generator = instance;
+        if (generator == null) {
+            throw new IllegalStateException("TimeOrderedIdGenerator has not been initialised");
+        }
+        return generator;
+    }
+
+    @PostConstruct
+    public void init() {
+        shardBits = shardRouter.getShardBits();
+        int timestampBits = 63 - properties.getNodeBits() - properties.getSequenceBits() - shardBits;
+        // The timestamp counts milliseconds from the epoch, so its bits decide when ids run out
+        long exhaustedAt = timestampBits >= 62 ? Long.MAX_VALUE : properties.getEpochMillis() + (1L << timestampBits);
+        long remainingYears = (exhaustedAt - System.currentTimeMillis()) / MILLIS_PER_YEAR;
+        if (remainingYears < properties.getMinRemainingYears()) {
+            throw new IllegalStateException("order.id node-bits, sequence-bits and shard-bits leave " + timestampBits
+                    + " timestamp bits, which run out in " + remainingYears + " years; order.id.min-remaining-years is "
+                    + properties.getMinRemainingYears());
+        }
+        if (properties.getNodeId() == null) {
+            throw new IllegalStateException("order.id.node-id (ORDER_NODE_ID) must be set to an id unique to this instance");
+        }
+        long maxNodeId = (1L << properties.getNodeBits()) - 1;
+        if (properties.getNodeId() < 0 || properties.getNodeId() > maxNodeId) {
+            throw new IllegalStateException("order.id.node-id must be between 0 and " + maxNodeId);
+        }
+        sequenceShift = shardBits;
+        nodeShift = sequenceShift + properties.getSequenceBits();
+        timestampShift = nodeShift + properties.getNodeBits();
+        sequenceMask = (1L << properties.getSequenceBits()) - 1;
+        timestampMask = (1L << timestampBits) - 1;
+        shiftedNodeId = properties.getNodeId() << nodeShift;
+        lastTimestampAndSequence.set(currentTimestamp() << properties.getSequenceBits());
+        instance = this;
+        log.info("Order id generator ready: node {}, {} timestamp bits, {} sequence bits, {} shard bits",
+                properties.getNodeId(), timestampBits, properties.getSequenceBits(), shardBits);
+    }
+
+    public long nextId() {
+        return nextId(0);
+    }
+
+    public long nextId(int shard) {
+        int sequenceBits = properties.getSequenceBits();
+        while (true) {
+            long current = lastTimestampAndSequence.get();
+            long lastTimestamp = current >>> sequenceBits;
+            long sequence = current & sequenceMask;
+            long now = currentTimestamp();
+
+            long timestamp;
+            long nextSequence;
+            if (now > lastTimestamp) {
+                timestamp = now;
+                nextSequence = 0;
+            } else {
+                if (lastTimestamp - now > properties.getMaxBackwardDriftMs()) {
+                    log.error("Clock moved back {} ms, refusing to allocate order ids", lastTimestamp - now);
+                    throw new IllegalStateException("Clock moved back " + (lastTimestamp - now) + " ms");
+                }
+                if (sequence < sequenceMask) {
+                    timestamp = lastTimestamp;
+                    nextSequence = sequence + 1;
+                } else {
+                    timestamp = lastTimestamp + 1;
+                    nextSequence = 0;
+                }
+            }
+            if (lastTimestampAndSequence.compareAndSet(current, (timestamp << sequenceBits) | nextSequence)) {
+                return ((timestamp & timestampMask) << timestampShift)
+                        | shiftedNodeId
+                        | (nextSequence << sequenceShift)
+                        | shard;
+            }
+        }
+    }
+
+    /**
+     * Wall clock time the id was allocated at, useful for diagnostics and keyset cursors.
+     */
+    public long timestampOf(long id) {
+        return (id >>> timestampShift) + properties.getEpochMillis();
+    }
+
+    /**
+     * The lowest id that can have been allocated at or after {@code epochMillis}, on any node or
+     * shard, for scanning a range of ids by time.
+     */
+    public long firstIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - properties.getEpochMillis()) << timestampShift;
+    }
+
+    private long currentTimestamp() {
+        return System.currentTimeMillis() - properties.getEpochMillis();
+    }
+}
@@ -0,0 +1,22 @@
+package com.scalableservices.orderservice.idgen;
+
+import com.scalableservices.orderservice.sharding.ShardContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.io.Serializable;
+
+/**
+ * Hibernate id generator backed by {@link TimeOrderedIdGenerator}. Ids are assigned on
+ * persist, so the INSERT can be deferred to flush and batched.
+ */
+public class TimeOrderedIdentifierGenerator implements IdentifierGenerator {
+
+    public static final String NAME = "time-ordered-id";
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        Integer shard = ShardContext.current();
+        return TimeOrderedIdGenerator.getInstance().nextId(shard == null ? 0 : shard);
+    }
+}
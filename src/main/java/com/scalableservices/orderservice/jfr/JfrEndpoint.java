@@ -0,0 +1,176 @@
+package com.scalableservices.orderservice.jfr;
+
+import com.scalableservices.orderservice.dto.jfr.JfrRecordingResponse;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flight recordings on demand, at /actuator/jfr:
+ * <ul>
+ *     <li>GET lists the recordings started here</li>
+ *     <li>POST /{name} with {@code {"action": "start"}} starts one, optionally with
+ *     {@code "settings": "default"}; {@code {"action": "stop"}} stops it and keeps its data</li>
+ *     <li>GET /{name} dumps what it has recorded so far as a .jfr file</li>
+ *     <li>DELETE /{name} closes it and deletes its data</li>
+ * </ul>
+ * The order service events ({@code com.scalableservices.order.*}) are enabled in every recording
+ * and cost nothing while none is running. Events that copy the environment, system properties or
+ * command line are disabled, since those carry credentials. At most {@code order.jfr.max-recordings}
+ * are kept at once, running or stopped, as each holds up to {@code max-size-mb} on disk.
+ * <p>
+ * Actuator is served on {@code management.server.port}, which must stay off public ingress.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "jfr")
+public class JfrEndpoint {
+
+    // Events whose payload would put credentials in a recording handed out over HTTP
+    private static final String[] SENSITIVE_EVENTS = {
+            "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation"};
+
+    private final JfrProperties properties;
+    private final Map<String, Recording> recordings = new ConcurrentHashMap<>();
+
+    public JfrEndpoint(JfrProperties properties) {
+        this.properties = properties;
+    }
+
+    @ReadOperation
+    public List<JfrRecordingResponse> recordings() {
+        List<JfrRecordingResponse> responses = new ArrayList<>();
+        for (Recording recording : recordings.values()) {
+            responses.add(toResponse(recording));
+        }
+        return responses;
+    }
+
+    @WriteOperation
+    public synchronized WebEndpointResponse<JfrRecordingResponse> control(@Selector String name, String action, @Nullable String settings) {
+        if ("start".equals(action)) {
+            return start(name, settings);
+        }
+        if ("stop".equals(action)) {
+            Recording recording = recordings.get(name);
+            if (recording == null) {
+                return failed(name, "No recording named " + name, WebEndpointResponse.STATUS_NOT_FOUND);
+            }
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+                log.info("Stopped flight recording {}", name);
+            }
+            return new WebEndpointResponse<>(toResponse(recording));
+        }
+        return failed(name, "action must be start or stop", WebEndpointResponse.STATUS_BAD_REQUEST);
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<Resource> dump(@Selector String name) throws IOException {
+        Recording recording = recordings.get(name);
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path dump = dumpPath(name);
+        recording.dump(dump);
+        return new WebEndpointResponse<>(new FileSystemResource(dump));
+    }
+
+    @DeleteOperation
+    public synchronized WebEndpointResponse<JfrRecordingResponse> close(@Selector String name) throws IOException {
+        Recording recording = recordings.remove(name);
+        if (recording == null) {
+            return failed(name, "No recording named " + name, WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        recording.close();
+        Files.deleteIfExists(dumpPath(name));
+        log.info("Closed flight recording {}", name);
+        return new WebEndpointResponse<>(toResponse(recording));
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        for (Recording recording : recordings.values()) {
+            recording.close();
+        }
+        recordings.clear();
+    }
+
+    private WebEndpointResponse<JfrRecordingResponse> start(String name, String settings) {
+        Recording existing = recordings.get(name);
+        if (existing != null && existing.getState() == RecordingState.RUNNING) {
+            return failed(name, "Recording " + name + " is already running", WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        String settingsName = settings == null ? properties.getSettings() : settings;
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settingsName);
+        } catch (Exception e) {
+            return failed(name, "Unknown settings " + settingsName + ", use default or profile", WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        if (existing == null && recordings.size() >= properties.getMaxRecordings()) {
+            return failed(name, properties.getMaxRecordings() + " recordings are already kept, close one first",
+                    WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        if (existing != null) {
+            existing.close();
+        }
+        Recording recording = new Recording(configuration);
+        for (String event : SENSITIVE_EVENTS) {
+            recording.disable(event);
+        }
+        recording.setName(name);
+        recording.setToDisk(true);
+        recording.setMaxSize(properties.getMaxSizeMb() * 1024 * 1024);
+        recording.setMaxAge(properties.getMaxAge());
+        recording.enable(OrderTransitionEvent.class);
+        recording.enable(StateMachinePersistEvent.class);
+        recording.enable(RepositoryCallEvent.class);
+        recording.enable(PlaceOrderEvent.class);
+        recording.start();
+        recordings.put(name, recording);
+        log.info("Started flight recording {} with {} settings", name, settingsName);
+        return new WebEndpointResponse<>(toResponse(recording));
+    }
+
+    private Path dumpPath(String name) {
+        String directory = properties.getDumpDirectory() == null ? System.getProperty("java.io.tmpdir") : properties.getDumpDirectory();
+        return Paths.get(directory, "order-service-" + name.replaceAll("[^A-Za-z0-9_-]", "_") + ".jfr");
+    }
+
+    private WebEndpointResponse<JfrRecordingResponse> failed(String name, String error, int status) {
+        return new WebEndpointResponse<>(JfrRecordingResponse.builder().name(name).error(error).build(), status);
+    }
+
+    private JfrRecordingResponse toResponse(Recording recording) {
+        return JfrRecordingResponse.builder()
+                .id(recording.getId())
+                .name(recording.getName())
+                .state(recording.getState().name())
+                .startTime(recording.getStartTime())
+                .stopTime(recording.getStopTime())
+                .sizeBytes(recording.getSize())
+                .build();
+    }
+}
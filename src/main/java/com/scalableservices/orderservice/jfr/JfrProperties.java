@@ -0,0 +1,27 @@
+package com.scalableservices.orderservice.jfr;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.jfr")
+public class JfrProperties {
+
+    // JDK settings a recording uses unless the start request names others: default or profile
+    private String settings = "profile";
+
+    // Recordings keep at most this much data, the oldest is dropped first
+    private long maxSizeMb = 256;
+
+    private Duration maxAge = Duration.ofMinutes(30);
+
+    // Recordings the endpoint keeps at once, running or stopped; starting another is refused until one is closed
+    private int maxRecordings = 2;
+
+    // Where dumps are written before they are sent; the system temp directory when unset
+    private String dumpDirectory;
+}
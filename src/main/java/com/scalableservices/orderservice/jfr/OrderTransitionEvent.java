@@ -0,0 +1,34 @@
+package com.scalableservices.orderservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.scalableservices.order.Transition")
+@Label("Order Transition")
+@Category({"Order Service", "State Machine"})
+@Description("An event sent to an order's state machine, from restoring its context to persisting it")
+public class OrderTransitionEvent extends Event {
+
+    @Label("Order Id")
+    public long orderId;
+
+    @Label("Event")
+    public String event;
+
+    @Label("From State")
+    public String fromState;
+
+    @Label("To State")
+    public String toState;
+
+    @Label("Accepted")
+    @Description("Whether the state machine took the event")
+    public boolean accepted;
+
+    @Label("Failure")
+    @Description("Class of the exception that ended the transition, if it failed")
+    public String failure;
+}
@@ -0,0 +1,37 @@
+package com.scalableservices.orderservice.jfr;
+
+import com.scalableservices.orderservice.dto.order.OrderResponse;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.scalableservices.order.PlaceOrder")
+@Label("Place Order")
+@Category({"Order Service", "Orders"})
+public class PlaceOrderEvent extends Event {
+
+    @Label("Order Id")
+    public long orderId;
+
+    @Label("Restaurant Id")
+    public long restaurantId;
+
+    @Label("Items")
+    public int items;
+
+    @Label("Write Path")
+    @Description("direct, group-commit or journal, throttled when admission turned it down")
+    public String writePath;
+
+    @Label("Failed")
+    public boolean failed;
+
+    // Records the outcome of a placed order and passes the response on
+    public OrderResponse placed(OrderResponse response) {
+        orderId = response.getOrderId() == null ? 0 : response.getOrderId();
+        failed = false;
+        return response;
+    }
+}
@@ -0,0 +1,27 @@
+package com.scalableservices.orderservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.scalableservices.order.RepositoryCall")
+@Label("Repository Call")
+@Category({"Order Service", "Persistence"})
+@Description("A Spring Data repository method call, including its transaction")
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Key")
+    @Description("The first argument when it is an id, else 0")
+    public long key;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,58 @@
+package com.scalableservices.orderservice.jfr;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Emits a {@link RepositoryCallEvent} around every call to a Spring Data repository, by adding
+ * an interceptor to the front of each repository proxy so the event also covers the repository's
+ * transaction. While no recording has the event enabled, the interceptor only checks that.
+ */
+@Component
+public class RepositoryCallRecorder implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Repository && bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvice(0, new Interceptor(beanName));
+        }
+        return bean;
+    }
+
+    private static final class Interceptor implements MethodInterceptor {
+        private final String repository;
+
+        private Interceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            RepositoryCallEvent event = new RepositoryCallEvent();
+            if (!event.isEnabled()) {
+                return invocation.proceed();
+            }
+            event.begin();
+            boolean failed = true;
+            try {
+                Object result = invocation.proceed();
+                failed = false;
+                return result;
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    Object[] arguments = invocation.getArguments();
+                    event.repository = repository;
+                    event.method = invocation.getMethod().getName();
+                    event.key = arguments.length > 0 && arguments[0] instanceof Long ? (Long) arguments[0] : 0;
+                    event.failed = failed;
+                    event.commit();
+                }
+            }
+        }
+    }
+}
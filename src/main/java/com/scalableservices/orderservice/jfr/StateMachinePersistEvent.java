@@ -0,0 +1,21 @@
+package com.scalableservices.orderservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.scalableservices.order.StateMachinePersist")
+@Label("State Machine Persist")
+@Category({"Order Service", "State Machine"})
+public class StateMachinePersistEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Machine Id")
+    public String machineId;
+
+    @Label("State")
+    public String state;
+}
@@ -0,0 +1,264 @@
+package com.scalableservices.orderservice.journal;
+
+import com.scalableservices.orderservice.dto.order.OrderResponse;
+import com.scalableservices.orderservice.events.OrderEventBus;
+import com.scalableservices.orderservice.feed.OrderChangeRecorder;
+import com.scalableservices.orderservice.idgen.TimeOrderedIdGenerator;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.orderitems.OrderItemService;
+import com.scalableservices.orderservice.rollup.RestaurantRollupService;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.sla.OrderSlaScheduler;
+import com.scalableservices.orderservice.utils.CommonOperations;
+import com.scalableservices.orderservice.utils.DatabaseFailures;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps taking orders while the orders database is failing.
+ * <p>
+ * The first failed insert switches the instance into degraded mode, in which orders skip the
+ * database and are appended to the {@link OrderJournal} under the id they would have been
+ * saved with; the customer gets that id back once the record is on disk, or once
+ * {@code order.journal.sync-timeout-ms} has passed, since the record is replayed either way.
+ * Only failures that mean the database is unavailable lead here; an order the database rejects
+ * fails its own request as before. The replayer drains the journal into orders, skipping ids that
+ * are already there, so a record written twice, or an order whose failed save did reach the
+ * database, is only counted once; records the database rejects go to {@link JournalDeadLetters}.
+ * Order items, change feed entries, rollups, SLA deadlines and events follow only for rows it
+ * actually inserted, the items and feed entries in the same transaction. Degraded mode ends when a replay pass empties the journal.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "order.journal", name = "enabled", havingValue = "true")
+public class DegradedOrderIntake {
+
+    private static final String INSERT_SQL = "INSERT INTO orders (id, customer_id, restaurant_id, order_status, order_details,"
+            + " total_amount, is_deleted, is_archived, created_at, updated_at, customer_address) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String EXISTING_SQL = "SELECT id FROM orders WHERE id IN (:ids)";
+
+    private final JournalProperties properties;
+    private final OrderJournal orderJournal;
+    private final ShardRouter shardRouter;
+    private final TimeOrderedIdGenerator idGenerator;
+    private final RestaurantRollupService restaurantRollupService;
+    private final OrderSlaScheduler orderSlaScheduler;
+    private final OrderEventBus orderEventBus;
+    private final OrderItemService orderItemService;
+    private final CommonOperations commonOperations;
+    private final OrderChangeRecorder orderChangeRecorder;
+    private final JournalDeadLetters deadLetters;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer appendTimer;
+    private final Counter journaledCounter;
+    private final Counter replayedCounter;
+    private final Counter duplicateCounter;
+    private final Counter syncTimeoutCounter;
+    private final Counter deadLetterCounter;
+
+    private volatile boolean degraded;
+
+    public DegradedOrderIntake(JournalProperties properties, OrderJournal orderJournal, ShardRouter shardRouter,
+                               TimeOrderedIdGenerator idGenerator, RestaurantRollupService restaurantRollupService,
+                               OrderSlaScheduler orderSlaScheduler, OrderEventBus orderEventBus,
+                               OrderItemService orderItemService, CommonOperations commonOperations,
+                               OrderChangeRecorder orderChangeRecorder, JournalDeadLetters deadLetters,
+                               @Qualifier("fdsOrderDb") DataSource dataSource,
+                               @Qualifier("fdsOrderDbTransactionManager") PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.orderJournal = orderJournal;
+        this.shardRouter = shardRouter;
+        this.idGenerator = idGenerator;
+        this.restaurantRollupService = restaurantRollupService;
+        this.orderSlaScheduler = orderSlaScheduler;
+        this.orderEventBus = orderEventBus;
+        this.orderItemService = orderItemService;
+        this.commonOperations = commonOperations;
+        this.orderChangeRecorder = orderChangeRecorder;
+        this.deadLetters = deadLetters;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.appendTimer = meterRegistry.timer("order.journal.append");
+        this.journaledCounter = meterRegistry.counter("order.journal.journaled");
+        this.replayedCounter = meterRegistry.counter("order.journal.replayed");
+        this.duplicateCounter = meterRegistry.counter("order.journal.duplicates");
+        this.syncTimeoutCounter = meterRegistry.counter("order.journal.sync-timeouts");
+        this.deadLetterCounter = meterRegistry.counter("order.journal.dead-letters");
+        Gauge.builder("order.journal.backlog", orderJournal, OrderJournal::backlog).register(meterRegistry);
+        Gauge.builder("order.journal.degraded", this, intake -> intake.degraded ? 1 : 0).register(meterRegistry);
+        // Anything left from before a restart means the database had not caught up
+        this.degraded = orderJournal.backlog() > 0;
+    }
+
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    /**
+     * Journals {@code order} and acknowledges it with its id. {@code cause} is the database
+     * failure that led here, or null when the instance is already degraded.
+     */
+    public OrderResponse accept(Order order, Exception cause) {
+        if (!degraded) {
+            degraded = true;
+            log.warn("Orders database unavailable, journaling new orders locally: {}", cause == null ? null : cause.getMessage());
+        }
+        // A save that failed after assigning an id keeps it, so a save that did commit is not inserted twice
+        if (order.getId() == null) {
+            order.setId(idGenerator.nextId(shardRouter.shardForRestaurant(order.getRestaurantId())));
+        }
+        long started = System.nanoTime();
+        long sequence = orderJournal.append(JournalEntry.of(order));
+        appendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        // The record is already in the journal and is replayed once synced, so asking the customer to retry
+        // would place the order twice; the id is returned either way
+        if (!orderJournal.awaitDurable(sequence, properties.getSyncTimeoutMs())) {
+            syncTimeoutCounter.increment();
+            log.error("Journal record {} for order {} was not synced in time, acknowledging it unsynced", sequence, order.getId());
+        }
+        journaledCounter.increment();
+        return OrderResponse.builder()
+                .orderId(order.getId())
+                .orderStatus(order.getOrderStatus().name())
+                .provisional(true)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${order.journal.replay-interval-ms:1000}")
+    public void replay() {
+        int batchSize = properties.getReplayBatchSize();
+        try {
+            List<JournalEntry> batch;
+            do {
+                batch = orderJournal.readBatch(batchSize);
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    orderJournal.acknowledge(batch.get(batch.size() - 1).getSequence());
+                    replayedCounter.increment(batch.size());
+                }
+            } while (batch.size() == batchSize);
+            if (degraded && orderJournal.backlog() == 0) {
+                probe();
+                degraded = false;
+                log.info("Order journal drained, writing orders to the database again");
+            }
+        } catch (Exception e) {
+            orderJournal.rewind();
+            log.warn("Journal replay paused with {} records pending: {}", orderJournal.backlog(), e.getMessage());
+        }
+    }
+
+    private void writeBatch(List<JournalEntry> batch) {
+        Map<Integer, List<JournalEntry>> byShard = new LinkedHashMap<>();
+        for (JournalEntry entry : batch) {
+            byShard.computeIfAbsent(shardRouter.shardForOrder(entry.getOrderId()), shard -> new ArrayList<>()).add(entry);
+        }
+        for (Map.Entry<Integer, List<JournalEntry>> shardBatch : byShard.entrySet()) {
+            List<Order> inserted = shardRouter.onShard(shardBatch.getKey(), () -> writeShardBatch(shardBatch.getValue()));
+            for (Order order : inserted) {
+                restaurantRollupService.recordCreated(order);
+                orderSlaScheduler.onStateEntered(order.getId(), order.getOrderStatus(), order.getCreatedAt());
+                orderEventBus.publishCreated(order);
+            }
+        }
+    }
+
+    /**
+     * Inserts {@code entries} in one transaction. If the database rejects the batch, the records are
+     * written again one transaction each and those it still rejects are dead-lettered, so one bad
+     * record cannot hold up the journal. Failures that mean the database is unavailable are thrown,
+     * so the replay pass stops and the same records are read again on the next one.
+     */
+    private List<Order> writeShardBatch(List<JournalEntry> entries) {
+        try {
+            return insertAll(entries);
+        } catch (RuntimeException e) {
+            if (DatabaseFailures.isUnavailable(e)) {
+                throw e;
+            }
+            if (entries.size() > 1) {
+                log.warn("Replay of {} journal records was rejected, writing them one by one: {}", entries.size(), e.getMessage());
+            }
+        }
+        List<Order> inserted = new ArrayList<>();
+        for (JournalEntry entry : entries) {
+            try {
+                inserted.addAll(insertAll(Collections.singletonList(entry)));
+            } catch (RuntimeException e) {
+                if (DatabaseFailures.isUnavailable(e)) {
+                    throw e;
+                }
+                deadLetters.add(entry, e);
+                deadLetterCounter.increment();
+            }
+        }
+        return inserted;
+    }
+
+    // Orders already in the database, from an earlier pass or from a save that failed after committing, are skipped
+    private List<Order> insertAll(List<JournalEntry> entries) {
+        return transactionTemplate.execute(status -> {
+            Set<Long> existing = existingOrderIds(entries);
+            List<Order> orders = new ArrayList<>();
+            for (JournalEntry entry : entries) {
+                if (existing.contains(entry.getOrderId())) {
+                    duplicateCounter.increment();
+                    continue;
+                }
+                Order order = entry.toOrder();
+                insert(order);
+                orderItemService.insertItems(order, commonOperations.getOrderMenuDetails(order.getOrderDetails()));
+                orders.add(order);
+            }
+            orderChangeRecorder.recordCreated(orders);
+            return orders;
+        });
+    }
+
+    private Set<Long> existingOrderIds(List<JournalEntry> entries) {
+        List<Long> orderIds = entries.stream().map(JournalEntry::getOrderId).collect(Collectors.toList());
+        return new HashSet<>(namedJdbcTemplate.queryForList(EXISTING_SQL,
+                Collections.singletonMap("ids", orderIds), Long.class));
+    }
+
+    private void insert(Order order) {
+        jdbcTemplate.update(INSERT_SQL, order.getId(), order.getCustomerId(), order.getRestaurantId(),
+                order.getOrderStatus().name(), order.getOrderDetails(), order.getTotalAmount(), order.getIsDeleted(),
+                order.getIsArchived(), Timestamp.valueOf(order.getCreatedAt()), Timestamp.valueOf(order.getUpdatedAt()),
+                order.getCustomerAddress());
+    }
+
+    // An empty journal says nothing about the database, so degraded mode only ends once every shard answers
+    private void probe() {
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            shardRouter.onShard(shard, () -> jdbcTemplate.queryForObject("SELECT 1", Integer.class));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.scalableservices.orderservice.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Journaled orders the database rejected during replay, set aside so the records behind them
+ * can still be replayed. Each one is appended to {@code dead-letters.jsonl} in the journal
+ * directory as a JSON line holding the record and the error, and forced to disk before the
+ * replayer acknowledges it; the file is for an operator to work through, nothing reads it back.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "order.journal", name = "enabled", havingValue = "true")
+public class JournalDeadLetters {
+
+    static final String FILE_NAME = "dead-letters.jsonl";
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    public JournalDeadLetters(JournalProperties properties, ObjectMapper objectMapper) {
+        this.path = Paths.get(properties.getDirectory()).resolve(FILE_NAME);
+        this.objectMapper = objectMapper;
+    }
+
+    public synchronized void add(JournalEntry entry, Exception failure) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("failedAt", LocalDateTime.now().toString());
+        line.put("error", failure.getClass().getName() + ": " + failure.getMessage());
+        line.put("entry", entry);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            byte[] json = objectMapper.writeValueAsBytes(line);
+            ByteBuffer buffer = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n');
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not dead-letter journal record " + entry.getSequence(), e);
+        }
+        log.error("Journal record {} for order {} was rejected by the database and moved to {}: {}",
+                entry.getSequence(), entry.getOrderId(), path, failure.getMessage());
+    }
+}
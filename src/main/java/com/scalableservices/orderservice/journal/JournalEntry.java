@@ -0,0 +1,122 @@
+package com.scalableservices.orderservice.journal;
+
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * An accepted order as it is kept in the journal, with the id it was acknowledged under.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntry {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private long sequence;
+    private long orderId;
+    private long customerId;
+    private long restaurantId;
+    private BigDecimal totalAmount;
+    private String orderDetails;
+    private String customerAddress;
+    private LocalDateTime createdAt;
+
+    public static JournalEntry of(Order order) {
+        return JournalEntry.builder()
+                .orderId(order.getId())
+                .customerId(order.getCustomerId())
+                .restaurantId(order.getRestaurantId())
+                .totalAmount(order.getTotalAmount())
+                .orderDetails(order.getOrderDetails())
+                .customerAddress(order.getCustomerAddress())
+                .createdAt(order.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * The order as createOrder would have saved it.
+     */
+    public Order toOrder() {
+        return Order.builder()
+                .id(orderId)
+                .customerId(customerId)
+                .restaurantId(restaurantId)
+                .orderStatus(OrderStates.PLACED)
+                .orderDetails(orderDetails)
+                .totalAmount(totalAmount)
+                .customerAddress(customerAddress)
+                .isDeleted(false)
+                .isArchived(false)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+
+    byte[] encode() {
+        byte[] amount = utf8(totalAmount == null ? null : totalAmount.toPlainString());
+        byte[] details = utf8(orderDetails);
+        byte[] address = utf8(customerAddress);
+        ByteBuffer buffer = ByteBuffer.allocate(4 * Long.BYTES + 3 * Integer.BYTES
+                + length(amount) + length(details) + length(address));
+        buffer.putLong(orderId).putLong(customerId).putLong(restaurantId)
+                .putLong(createdAt.atZone(ZONE).toInstant().toEpochMilli());
+        putBytes(buffer, amount);
+        putBytes(buffer, details);
+        putBytes(buffer, address);
+        return buffer.array();
+    }
+
+    static JournalEntry decode(long sequence, ByteBuffer buffer) {
+        JournalEntry entry = new JournalEntry();
+        entry.sequence = sequence;
+        entry.orderId = buffer.getLong();
+        entry.customerId = buffer.getLong();
+        entry.restaurantId = buffer.getLong();
+        entry.createdAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZONE);
+        String amount = getString(buffer);
+        entry.totalAmount = amount == null ? null : new BigDecimal(amount);
+        entry.orderDetails = getString(buffer);
+        entry.customerAddress = getString(buffer);
+        return entry;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    // A length of -1 stands for null
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
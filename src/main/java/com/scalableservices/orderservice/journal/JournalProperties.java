@@ -0,0 +1,32 @@
+package com.scalableservices.orderservice.journal;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.journal")
+public class JournalProperties {
+
+    // When on, orders that cannot be written to the database are journaled locally instead of refused
+    private boolean enabled = false;
+
+    // Must be on a local disk that survives a restart of the instance, e.g. a persistent volume
+    private String directory = "order-journal";
+
+    // Segments are preallocated and mapped whole; one is rotated out once the next record does not fit
+    private int segmentSizeBytes = 64 * 1024 * 1024;
+
+    // Appends are forced to disk together at most this often; placing an order waits for its force
+    private long syncIntervalMs = 2;
+
+    // How long placing an order waits for its record to be forced before acknowledging it anyway
+    private long syncTimeoutMs = 1000;
+
+    // How often the replayer tries to drain the journal into orders, which also probes the database
+    private long replayIntervalMs = 1000;
+
+    // Records read and written per replay transaction
+    private int replayBatchSize = 500;
+}
@@ -0,0 +1,508 @@
+package com.scalableservices.orderservice.journal;
+
+import com.scalableservices.orderservice.exception.ServiceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local write-ahead journal of accepted orders, kept in memory-mapped segment files.
+ * <p>
+ * A record is {@code [length][crc32][sequence][payload]}; sequences are contiguous across
+ * segments and each segment file is named after its first one. An append copies the record
+ * into the mapped active segment under a lock, which takes microseconds. A sync thread forces
+ * everything appended so far every {@code order.journal.sync-interval-ms}, so one fsync covers
+ * every order that arrived in between; callers wait for theirs with {@link #awaitDurable}.
+ * <p>
+ * Segments are preallocated by writing zeros over their full size before they are mapped, so a
+ * full disk fails creating a segment instead of faulting a later store into the mapping. A
+ * preallocator thread keeps the next segment ready, and rotating to it under the lock is a
+ * rename; the full segment and the directory are forced by the sync thread, outside the lock.
+ * <p>
+ * The replayer reads durable records in order and {@linkplain #acknowledge acknowledges} them
+ * once they are in the database; the acknowledged sequence is kept in a checkpoint file and
+ * fully acknowledged segments are deleted. On startup every segment is scanned up to its first
+ * torn or corrupt record, appends continue in a fresh segment, and reading resumes right after
+ * the checkpoint, so exactly the records the database has not confirmed are replayed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "order.journal", name = "enabled", havingValue = "true")
+public class OrderJournal {
+
+    static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "replayed.checkpoint";
+    private static final String SPARE_FILE = "next.spare";
+    private static final int ZERO_CHUNK_BYTES = 1024 * 1024;
+
+    private final JournalProperties properties;
+    private final Path directory;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Object durableMonitor = new Object();
+
+    // Guarded by this
+    private Segment active;
+    private long nextSequence;
+    private List<Segment> rotatedUnforced = new ArrayList<>();
+    private boolean directoryChanged;
+
+    // Set only by the preallocator thread and cleared only by rotate
+    private volatile MappedByteBuffer spare;
+
+    private volatile long appendedSequence;
+    private volatile long durableSequence;
+    private volatile long acknowledgedSequence;
+    private volatile boolean running;
+    private FileChannel checkpointChannel;
+    private Thread syncThread;
+    private Thread preallocatorThread;
+
+    // Owned by the replayer thread
+    private Segment readSegment;
+    private ByteBuffer readBuffer;
+    private int readOffset;
+    private long readSequence;
+
+    public OrderJournal(JournalProperties properties) {
+        this.properties = properties;
+        this.directory = Paths.get(properties.getDirectory());
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        acknowledgedSequence = readCheckpoint();
+        long lastValid = acknowledgedSequence;
+        for (Path file : segmentFiles()) {
+            Segment segment = map(file, firstSequenceOf(file));
+            segments.put(segment.firstSequence, segment);
+            long expected = segment.firstSequence;
+            int offset = 0;
+            while (validRecordAt(segment.buffer, offset, expected)) {
+                offset += RECORD_HEADER_BYTES + segment.buffer.getInt(offset);
+                expected++;
+            }
+            lastValid = Math.max(lastValid, expected - 1);
+        }
+        nextSequence = lastValid + 1;
+        appendedSequence = lastValid;
+        durableSequence = lastValid;
+        // A last segment holding nothing valid is replaced, so stale bytes can never pass for new records
+        Segment stale = segments.remove(nextSequence);
+        if (stale != null) {
+            Files.deleteIfExists(stale.path);
+        }
+        Files.deleteIfExists(directory.resolve(SPARE_FILE));
+        synchronized (this) {
+            active = createSegment(nextSequence);
+        }
+        seek(acknowledgedSequence + 1);
+        running = true;
+        syncThread = new Thread(this::runSync, "order-journal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+        preallocatorThread = new Thread(this::runPreallocator, "order-journal-preallocator");
+        preallocatorThread.setDaemon(true);
+        preallocatorThread.start();
+        log.info("Order journal opened in {} with {} unreplayed records", directory.toAbsolutePath(), lastValid - acknowledgedSequence);
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        for (Thread thread : new Thread[]{syncThread, preallocatorThread}) {
+            if (thread == null) {
+                continue;
+            }
+            thread.interrupt();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sync();
+        try {
+            checkpointChannel.close();
+        } catch (IOException e) {
+            log.warn("Could not close journal checkpoint: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Appends {@code entry} and returns its sequence. The record is not durable until
+     * {@link #awaitDurable} says so.
+     */
+    public long append(JournalEntry entry) {
+        byte[] payload = entry.encode();
+        int recordBytes = RECORD_HEADER_BYTES + payload.length;
+        // Room is always left for the zero length that ends a segment
+        if (recordBytes + Integer.BYTES > properties.getSegmentSizeBytes()) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "Order is too large to journal");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        synchronized (this) {
+            if (!running) {
+                throw new ServiceException(HttpStatus.SERVICE_UNAVAILABLE, "Order journal is closed");
+            }
+            if (active.writePosition + recordBytes + Integer.BYTES > active.buffer.capacity()) {
+                rotate();
+            }
+            long sequence = nextSequence++;
+            int position = active.writePosition;
+            MappedByteBuffer buffer = active.buffer;
+            buffer.position(position + Integer.BYTES);
+            buffer.putInt((int) crc.getValue()).putLong(sequence).put(payload);
+            buffer.putInt(position, payload.length);
+            active.writePosition = position + recordBytes;
+            appendedSequence = sequence;
+            return sequence;
+        }
+    }
+
+    /**
+     * Waits until the record with {@code sequence} has been forced to disk. Returns false if
+     * that takes longer than {@code timeoutMs}.
+     */
+    public boolean awaitDurable(long sequence, long timeoutMs) {
+        if (durableSequence >= sequence) {
+            return true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (durableMonitor) {
+            while (durableSequence < sequence) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(durableMonitor, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Records appended but not yet acknowledged by the replayer.
+     */
+    public long backlog() {
+        return appendedSequence - acknowledgedSequence;
+    }
+
+    /**
+     * Reads up to {@code maxRecords} durable records after the last one read. Only the replayer
+     * thread may call this, {@link #acknowledge} and {@link #rewind}.
+     */
+    public List<JournalEntry> readBatch(int maxRecords) {
+        List<JournalEntry> entries = new ArrayList<>();
+        long durable = durableSequence;
+        while (entries.size() < maxRecords && readSequence <= durable) {
+            if (!validRecordAt(readBuffer, readOffset, readSequence)) {
+                // End of the segment, or a torn tail left by a crash; the sequence continues in the next one
+                Map.Entry<Long, Segment> next = segments.higherEntry(readSegment.firstSequence);
+                if (next == null) {
+                    log.error("Journal record {} is missing or corrupt", readSequence);
+                    break;
+                }
+                if (next.getKey() > readSequence) {
+                    log.error("Journal records {} to {} are missing or corrupt", readSequence, next.getKey() - 1);
+                    readSequence = next.getKey();
+                }
+                openForRead(next.getValue());
+                continue;
+            }
+            int length = readBuffer.getInt(readOffset);
+            ByteBuffer payload = readBuffer.duplicate();
+            payload.position(readOffset + RECORD_HEADER_BYTES).limit(readOffset + RECORD_HEADER_BYTES + length);
+            entries.add(JournalEntry.decode(readSequence, payload.slice()));
+            readOffset += RECORD_HEADER_BYTES + length;
+            readSequence++;
+        }
+        return entries;
+    }
+
+    /**
+     * Marks every record up to {@code sequence} as written to the database and deletes the
+     * segments that no longer hold anything else.
+     */
+    public void acknowledge(long sequence) {
+        if (sequence <= acknowledgedSequence) {
+            return;
+        }
+        writeCheckpoint(sequence);
+        acknowledgedSequence = sequence;
+        Iterator<Map.Entry<Long, Segment>> iterator = segments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next().getValue();
+            Long nextFirst = segments.higherKey(segment.firstSequence);
+            if (nextFirst == null || nextFirst > sequence + 1 || segment == readSegment || isActive(segment)) {
+                break;
+            }
+            iterator.remove();
+            try {
+                // The mapping itself is released when the buffer is collected
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("Could not delete replayed journal segment {}: {}", segment.path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Moves reading back to the first unacknowledged record, after a replay that failed.
+     */
+    public void rewind() {
+        seek(acknowledgedSequence + 1);
+    }
+
+    private synchronized boolean isActive(Segment segment) {
+        return segment == active;
+    }
+
+    private void seek(long sequence) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(sequence);
+        if (entry == null) {
+            entry = segments.firstEntry();
+        }
+        openForRead(entry.getValue());
+        readSequence = Math.max(sequence, readSegment.firstSequence);
+        long current = readSegment.firstSequence;
+        while (current < readSequence && validRecordAt(readBuffer, readOffset, current)) {
+            readOffset += RECORD_HEADER_BYTES + readBuffer.getInt(readOffset);
+            current++;
+        }
+    }
+
+    private void openForRead(Segment segment) {
+        readSegment = segment;
+        readBuffer = segment.buffer.duplicate();
+        readOffset = 0;
+    }
+
+    private boolean validRecordAt(ByteBuffer buffer, int offset, long expectedSequence) {
+        if (offset + RECORD_HEADER_BYTES > buffer.capacity()) {
+            return false;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || offset + RECORD_HEADER_BYTES + length > buffer.capacity()
+                || buffer.getLong(offset + 2 * Integer.BYTES) != expectedSequence) {
+            return false;
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(offset + RECORD_HEADER_BYTES).limit(offset + RECORD_HEADER_BYTES + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(offset + Integer.BYTES);
+    }
+
+    // Called with the lock held; the full segment is left for the sync thread to force
+    private void rotate() {
+        rotatedUnforced.add(active);
+        active = createSegment(nextSequence);
+        LockSupport.unpark(preallocatorThread);
+    }
+
+    private void runSync() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getSyncIntervalMs());
+        while (running) {
+            LockSupport.parkNanos(intervalNanos);
+            try {
+                sync();
+            } catch (Exception e) {
+                log.error("Error while syncing the order journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void sync() {
+        long target;
+        Segment segment;
+        List<Segment> rotated;
+        boolean newSegments;
+        synchronized (this) {
+            target = appendedSequence;
+            if (target <= durableSequence) {
+                return;
+            }
+            segment = active;
+            rotated = rotatedUnforced;
+            rotatedUnforced = new ArrayList<>();
+            newSegments = directoryChanged;
+            directoryChanged = false;
+        }
+        try {
+            for (Segment full : rotated) {
+                full.buffer.force();
+            }
+            segment.buffer.force();
+            // A segment created or renamed since the last sync is only found after a crash once its directory entry is durable
+            if (newSegments) {
+                forceDirectory();
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                rotatedUnforced.addAll(0, rotated);
+                directoryChanged |= newSegments;
+            }
+            throw e;
+        }
+        synchronized (durableMonitor) {
+            durableSequence = target;
+            durableMonitor.notifyAll();
+        }
+    }
+
+    // Called with the lock held; takes the spare when the preallocator has one ready
+    private Segment createSegment(long firstSequence) {
+        Path path = directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+        try {
+            MappedByteBuffer buffer = spare;
+            if (buffer != null) {
+                Files.move(directory.resolve(SPARE_FILE), path, StandardCopyOption.ATOMIC_MOVE);
+                spare = null;
+            } else {
+                buffer = preallocate(path);
+            }
+            Segment segment = new Segment(firstSequence, path, buffer);
+            segments.put(firstSequence, segment);
+            directoryChanged = true;
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment " + path, e);
+        }
+    }
+
+    private void runPreallocator() {
+        Path path = directory.resolve(SPARE_FILE);
+        while (running) {
+            if (spare == null) {
+                try {
+                    spare = preallocate(path);
+                } catch (IOException | UncheckedIOException e) {
+                    if (!running) {
+                        // Interrupted by close(); open() deletes the partial spare
+                        break;
+                    }
+                    log.error("Could not preallocate the next journal segment: {}", e.getMessage());
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException deleteFailure) {
+                        log.warn("Could not delete partial journal segment {}: {}", path, deleteFailure.getMessage());
+                    }
+                    LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+                    continue;
+                }
+            }
+            LockSupport.park(this);
+        }
+    }
+
+    // Zeros are written rather than the file extended, so its blocks are allocated before anything is stored through the mapping
+    private MappedByteBuffer preallocate(Path path) throws IOException {
+        long size = properties.getSegmentSizeBytes();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer zeros = ByteBuffer.allocateDirect((int) Math.min(ZERO_CHUNK_BYTES, size));
+            long position = 0;
+            while (position < size) {
+                zeros.clear().limit((int) Math.min(zeros.capacity(), size - position));
+                position += channel.write(zeros, position);
+            }
+            channel.force(true);
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not sync journal directory " + directory, e);
+        }
+    }
+
+    private Segment map(Path path, long firstSequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(firstSequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private long firstSequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // The sequence is stored next to its complement so a torn write reads as no checkpoint
+    private long readCheckpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+        if (checkpointChannel.read(buffer, 0) < buffer.capacity()) {
+            return 0;
+        }
+        long sequence = buffer.getLong(0);
+        return buffer.getLong(Long.BYTES) == ~sequence ? sequence : 0;
+    }
+
+    private void writeCheckpoint(long sequence) {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+        buffer.putLong(sequence).putLong(~sequence).flip();
+        try {
+            checkpointChannel.write(buffer, 0);
+            checkpointChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write journal checkpoint", e);
+        }
+    }
+
+    private static final class Segment {
+        private final long firstSequence;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        // Guarded by the journal lock
+        private int writePosition;
+
+        private Segment(long firstSequence, Path path, MappedByteBuffer buffer) {
+            this.firstSequence = firstSequence;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.scalableservices.orderservice.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.scalableservices.orderservice.idgen.TimeOrderedIdentifierGenerator;
 import com.scalableservices.orderservice.statemachine.OrderStates;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,7 +23,7 @@ import java.time.LocalDateTime;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = TimeOrderedIdentifierGenerator.NAME)
     private Long id;
 
     @Column(name = "customer_id", nullable = false)
@@ -1,6 +1,7 @@
 package com.scalableservices.orderservice.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.scalableservices.orderservice.idgen.TimeOrderedIdentifierGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,7 +20,7 @@ import java.time.LocalDateTime;
 public class OrderDeliveryAgent {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = TimeOrderedIdentifierGenerator.NAME)
     private Long id;
 
     @ManyToOne
@@ -1,6 +1,8 @@
 package com.scalableservices.orderservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.scalableservices.orderservice.idgen.TimeOrderedIdentifierGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,24 +16,34 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @JsonIgnoreProperties
 @Entity
-@Table(name = "order_logs")
+@Table(name = "order_log_entries")
+// Most transitions carry no remarks, so they live in their own table and a row is only written when there are some
+@SecondaryTable(name = "order_log_remarks", pkJoinColumns = @PrimaryKeyJoinColumn(name = "order_log_id"))
+@org.hibernate.annotations.Table(appliesTo = "order_log_remarks", optional = true)
 public class OrderLog {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = TimeOrderedIdentifierGenerator.NAME)
     private Long id;
 
     @ManyToOne
     @JoinColumn(name = "order_id", nullable = false, foreignKey = @ForeignKey(name = "fk_order_logs_order_id"))
     private Order order;
 
-    @Column(name = "order_status", length = 50, nullable = false)
+    @Convert(converter = OrderStateCodeConverter.class)
+    @Column(name = "order_status", nullable = false, columnDefinition = "TINYINT UNSIGNED")
     private String orderSubStatus;
 
-    @Column(name = "remarks", length = 500, nullable = false)
+    @Column(name = "remarks", table = "order_log_remarks", length = 500)
     private String remarks;
 
-    @Column(name = "entered_by", length = 50, nullable = false)
+    // The remarks row is partitioned by the created_at of its log row; null when there are no remarks, so no row is written
+    @JsonIgnore
+    @Column(name = "created_at", table = "order_log_remarks")
+    private LocalDateTime remarksCreatedAt;
+
+    @Convert(converter = UserTypeCodeConverter.class)
+    @Column(name = "entered_by", nullable = false, columnDefinition = "TINYINT UNSIGNED")
     private String enteredBy;
 
     @Column(name = "entered_by_id", nullable = false)
@@ -43,8 +55,16 @@ public class OrderLog {
     @Column(name = "is_archived", nullable = false)
     private Boolean isArchived = false;
 
-    @Column(name = "created_at", columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
+    @Column(name = "created_at", nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
     private LocalDateTime createdAt;
 
+    @PrePersist
+    void stampRemarks() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        remarksCreatedAt = remarks == null ? null : createdAt;
+    }
+
     // Getters and setters omitted for brevity
 }
@@ -0,0 +1,24 @@
+package com.scalableservices.orderservice.model;
+
+import com.scalableservices.orderservice.statemachine.OrderStates;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores an order state name as its {@link OrderStates#getCode() code}, so entities and
+ * responses keep working with names.
+ */
+@Converter
+public class OrderStateCodeConverter implements AttributeConverter<String, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(String state) {
+        return state == null ? null : OrderStates.valueOf(state).getCode();
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer code) {
+        return code == null ? null : OrderStates.fromCode(code).name();
+    }
+}
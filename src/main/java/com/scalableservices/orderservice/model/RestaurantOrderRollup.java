@@ -0,0 +1,44 @@
+package com.scalableservices.orderservice.model;
+
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(RestaurantOrderRollupId.class)
+@Table(name = "restaurant_order_rollups")
+public class RestaurantOrderRollup {
+
+    @Id
+    @Column(name = "restaurant_id", nullable = false)
+    private Long restaurantId;
+
+    @Id
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "order_status", nullable = false)
+    private OrderStates orderStatus;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 16, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,18 @@
+package com.scalableservices.orderservice.model;
+
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestaurantOrderRollupId implements Serializable {
+    private Long restaurantId;
+    private LocalDate businessDate;
+    private OrderStates orderStatus;
+}
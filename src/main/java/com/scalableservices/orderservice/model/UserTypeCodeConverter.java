@@ -0,0 +1,24 @@
+package com.scalableservices.orderservice.model;
+
+import com.scalableservices.orderservice.enums.UserTypes;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores a user type name as its {@link UserTypes#getCode() code}, so entities and responses
+ * keep working with names.
+ */
+@Converter
+public class UserTypeCodeConverter implements AttributeConverter<String, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(String userType) {
+        return userType == null ? null : UserTypes.valueOf(userType).getCode();
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer code) {
+        return code == null ? null : UserTypes.fromCode(code).name();
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Order entities. Ids of generated entities come from the shared time ordered generator.
+ */
+@GenericGenerator(name = TimeOrderedIdentifierGenerator.NAME, strategy = "com.scalableservices.orderservice.idgen.TimeOrderedIdentifierGenerator")
+package com.scalableservices.orderservice.model;
+
+import com.scalableservices.orderservice.idgen.TimeOrderedIdentifierGenerator;
+import org.hibernate.annotations.GenericGenerator;
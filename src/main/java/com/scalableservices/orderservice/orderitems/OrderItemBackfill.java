@@ -0,0 +1,140 @@
+package com.scalableservices.orderservice.orderitems;
+
+import com.scalableservices.orderservice.dto.order.ItemBackfillResponse;
+import com.scalableservices.orderservice.dto.order.OrderMenuDetails;
+import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.utils.CommonOperations;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts order_items for orders created before the table existed.
+ * <p>
+ * Each shard is walked in id order a chunk at a time, resuming after the last id seen, so every
+ * query is a short primary key range scan and only one chunk of order_details is held in memory.
+ * A chunk's items are written in one transaction with INSERT IGNORE, so orders that already have
+ * their items, including those created while the backfill runs, are left alone and a failed
+ * backfill can simply be started again.
+ */
+@Slf4j
+@Component
+public class OrderItemBackfill {
+
+    private static final String CHUNK_SQL = "SELECT id, restaurant_id, order_details, created_at FROM orders WHERE id > ? ORDER BY id LIMIT ?";
+
+    private final OrderItemService orderItemService;
+    private final OrderItemProperties properties;
+    private final ShardRouter shardRouter;
+    private final CommonOperations commonOperations;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile ItemBackfillResponse progress = ItemBackfillResponse.builder().status("IDLE").build();
+
+    public OrderItemBackfill(OrderItemService orderItemService, OrderItemProperties properties, ShardRouter shardRouter,
+                             CommonOperations commonOperations, @Qualifier("fdsOrderDb") DataSource dataSource,
+                             @Qualifier("fdsOrderDbTransactionManager") PlatformTransactionManager transactionManager) {
+        this.orderItemService = orderItemService;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.commonOperations = commonOperations;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public synchronized ItemBackfillResponse start() {
+        if ("RUNNING".equals(progress.getStatus())) {
+            throw new ServiceException(HttpStatus.CONFLICT, "Order item backfill is already running");
+        }
+        progress = ItemBackfillResponse.builder()
+                .status("RUNNING")
+                .shard(0)
+                .lastOrderId(0L)
+                .ordersScanned(0L)
+                .itemsWritten(0L)
+                .ordersUnparsable(0L)
+                .startedAt(LocalDateTime.now())
+                .build();
+        Thread backfill = new Thread(this::run, "order-item-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+        log.info("Started order item backfill");
+        return getProgress();
+    }
+
+    public ItemBackfillResponse getProgress() {
+        ItemBackfillResponse current = progress;
+        return current.toBuilder().build();
+    }
+
+    private void run() {
+        ItemBackfillResponse current = progress;
+        try {
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                current.setShard(shard);
+                current.setLastOrderId(0L);
+                int scanned;
+                do {
+                    int currentShard = shard;
+                    scanned = shardRouter.onShard(shard, () -> backfillChunk(currentShard, current));
+                    if (properties.getBackfillPauseMs() > 0) {
+                        Thread.sleep(properties.getBackfillPauseMs());
+                    }
+                } while (scanned == properties.getBackfillChunkSize());
+            }
+            current.setStatus("COMPLETED");
+            log.info("Order item backfill finished: {} orders scanned, {} items written, {} unparsable",
+                    current.getOrdersScanned(), current.getItemsWritten(), current.getOrdersUnparsable());
+        } catch (Exception e) {
+            current.setError(e.getMessage());
+            current.setStatus("FAILED");
+            log.error("Order item backfill failed on shard {} after order {}: {}", current.getShard(), current.getLastOrderId(), e.getMessage());
+        } finally {
+            current.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    private int backfillChunk(int shard, ItemBackfillResponse current) {
+        List<Order> orders = jdbcTemplate.query(CHUNK_SQL, (resultSet, rowNum) -> Order.builder()
+                .id(resultSet.getLong(1))
+                .restaurantId(resultSet.getLong(2))
+                .orderDetails(resultSet.getString(3))
+                .createdAt(resultSet.getTimestamp(4).toLocalDateTime())
+                .build(), current.getLastOrderId(), properties.getBackfillChunkSize());
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        long unparsable = 0;
+        for (Order order : orders) {
+            List<OrderMenuDetails> items = order.getOrderDetails() == null ? null : commonOperations.getOrderMenuDetails(order.getOrderDetails());
+            if (items == null) {
+                unparsable++;
+                continue;
+            }
+            rows.addAll(orderItemService.itemRows(order, items));
+        }
+        transactionTemplate.execute(status -> {
+            orderItemService.insertRows(rows);
+            return null;
+        });
+        current.setLastOrderId(orders.get(orders.size() - 1).getId());
+        current.setOrdersScanned(current.getOrdersScanned() + orders.size());
+        current.setItemsWritten(current.getItemsWritten() + rows.size());
+        current.setOrdersUnparsable(current.getOrdersUnparsable() + unparsable);
+        log.debug("Backfilled items of {} orders on shard {} up to order {}", orders.size(), shard, current.getLastOrderId());
+        return orders.size();
+    }
+}
@@ -0,0 +1,26 @@
+package com.scalableservices.orderservice.orderitems;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.items")
+public class OrderItemProperties {
+
+    // Orders read, parsed and written per backfill transaction
+    private int backfillChunkSize = 1000;
+
+    // Pause between backfill chunks, to leave the primary room for live traffic
+    private long backfillPauseMs = 0;
+
+    // How far back the open orders search looks when no since is given
+    private Duration openOrdersLookback = Duration.ofHours(24);
+
+    private int defaultTopItems = 10;
+
+    private int maxTopItems = 100;
+}
@@ -0,0 +1,199 @@
+package com.scalableservices.orderservice.orderitems;
+
+import com.scalableservices.orderservice.dto.order.MenuItemOrder;
+import com.scalableservices.orderservice.dto.order.MenuItemSales;
+import com.scalableservices.orderservice.dto.order.OrderMenuDetails;
+import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.feed.OrderChangeRecorder;
+import com.scalableservices.orderservice.idgen.TimeOrderedIdGenerator;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.model.OrderItem;
+import com.scalableservices.orderservice.repository.OrderItemRepository;
+import com.scalableservices.orderservice.repository.OrderRepository;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes and queries order_items, the per item rows extracted from order_details.
+ * <p>
+ * New orders are saved together with their items in one transaction, so Hibernate sends the
+ * item inserts as one JDBC batch right after the order's. Orders written outside JPA, by the
+ * backfill and the journal replay, get their items through INSERT IGNORE, which is
+ * idempotent on (order_id, line_no).
+ */
+@Slf4j
+@Service
+public class OrderItemService {
+
+    private static final Set<OrderStates> OPEN_STATES = EnumSet.complementOf(EnumSet.of(OrderStates.DELIVERED, OrderStates.CANCELLED));
+    private static final String INSERT_SQL = "INSERT IGNORE INTO order_items (id, order_id, line_no, restaurant_id, menu_id, menu_name,"
+            + " quantity, unit_price, total_price, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private OrderItemProperties properties;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private TimeOrderedIdGenerator idGenerator;
+    @Autowired
+    private OrderChangeRecorder orderChangeRecorder;
+    @Autowired
+    @Qualifier("fdsOrderDb")
+    private DataSource dataSource;
+    @Autowired
+    @Qualifier("fdsOrderDbTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Saves {@code order}, one order_items row per entry of {@code items} and its change feed
+     * entry in one transaction. Must run on the order's shard.
+     */
+    public void saveOrderWithItems(Order order, List<OrderMenuDetails> items) {
+        transactionTemplate.execute(status -> {
+            orderRepository.save(order);
+            orderItemRepository.saveAll(toItems(order, items));
+            orderChangeRecorder.recordCreated(order);
+            return null;
+        });
+    }
+
+    /**
+     * Inserts the items of an order already in the database, skipping lines that are there.
+     * Must run on the order's shard, inside the caller's transaction if it has one.
+     */
+    public void insertItems(Order order, List<OrderMenuDetails> items) {
+        insertRows(itemRows(order, items));
+    }
+
+    /**
+     * Arguments for one INSERT IGNORE per item of {@code order}, with ids drawn for the order's
+     * shard, so callers can batch the items of many orders into one {@link #insertRows} call.
+     */
+    public List<Object[]> itemRows(Order order, List<OrderMenuDetails> items) {
+        List<Object[]> rows = new ArrayList<>();
+        List<OrderItem> orderItems = toItems(order, items);
+        if (orderItems.isEmpty()) {
+            return rows;
+        }
+        int shard = shardRouter.shardForOrder(order.getId());
+        for (OrderItem item : orderItems) {
+            rows.add(new Object[]{idGenerator.nextId(shard), order.getId(), item.getLineNo(), item.getRestaurantId(),
+                    item.getMenuId(), item.getMenuName(), item.getQuantity(), item.getUnitPrice(), item.getTotalPrice(),
+                    Timestamp.valueOf(item.getCreatedAt())});
+        }
+        return rows;
+    }
+
+    public void insertRows(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+
+    /**
+     * One item per entry with a menu id, numbered by its position in {@code items}. Entries
+     * without a menu id cannot be searched by menu and are left out.
+     */
+    private List<OrderItem> toItems(Order order, List<OrderMenuDetails> items) {
+        List<OrderItem> orderItems = new ArrayList<>();
+        if (items == null) {
+            return orderItems;
+        }
+        LocalDateTime createdAt = order.getCreatedAt() == null ? LocalDateTime.now() : order.getCreatedAt();
+        for (int line = 0; line < items.size(); line++) {
+            OrderMenuDetails item = items.get(line);
+            if (item == null || item.getMenuId() == null) {
+                continue;
+            }
+            int quantity = item.getMenuQuantity() == null ? 1 : item.getMenuQuantity();
+            BigDecimal unitPrice = toAmount(item.getMenuPrice());
+            BigDecimal totalPrice = item.getMenuTotalPrice() != null ? toAmount(item.getMenuTotalPrice())
+                    : unitPrice == null ? null : unitPrice.multiply(BigDecimal.valueOf(quantity));
+            orderItems.add(OrderItem.builder()
+                    .order(order)
+                    .lineNo(line)
+                    .restaurantId(order.getRestaurantId())
+                    .menuId(item.getMenuId())
+                    .menuName(item.getMenuName())
+                    .quantity(quantity)
+                    .unitPrice(unitPrice)
+                    .totalPrice(totalPrice)
+                    .createdAt(createdAt)
+                    .build());
+        }
+        return orderItems;
+    }
+
+    /**
+     * The restaurant's open orders placed since {@code since} that contain {@code menuId}, oldest
+     * first, e.g. to find who is affected when the item sells out.
+     */
+    public List<MenuItemOrder> getOpenOrdersWithMenuItem(Long restaurantId, Long menuId, LocalDateTime since) {
+        try {
+            LocalDateTime from = since == null ? LocalDateTime.now().minus(properties.getOpenOrdersLookback()) : since;
+            return shardRouter.onRestaurantShard(restaurantId,
+                    () -> orderItemRepository.findOrdersWithMenuItem(restaurantId, menuId, OPEN_STATES, from));
+        } catch (ServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error while searching orders of restaurant {} for menu item {}: {}", restaurantId, menuId, e.getMessage());
+            throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while searching orders by menu item");
+        }
+    }
+
+    /**
+     * The restaurant's best selling items on {@code businessDate} by quantity, cancelled orders
+     * included.
+     */
+    public List<MenuItemSales> getTopItems(Long restaurantId, LocalDate businessDate, Integer limit) {
+        try {
+            int size = limit == null ? properties.getDefaultTopItems() : Math.min(Math.max(limit, 1), properties.getMaxTopItems());
+            LocalDateTime from = businessDate.atStartOfDay();
+            return shardRouter.onRestaurantShard(restaurantId,
+                    () -> orderItemRepository.findTopItems(restaurantId, from, from.plusDays(1), PageRequest.of(0, size)));
+        } catch (ServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error while reading top items of restaurant {} on {}: {}", restaurantId, businessDate, e.getMessage());
+            throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while fetching top items");
+        }
+    }
+
+    private BigDecimal toAmount(Double value) {
+        return value == null ? null : BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
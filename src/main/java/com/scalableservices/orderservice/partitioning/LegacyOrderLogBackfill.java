@@ -0,0 +1,205 @@
+package com.scalableservices.orderservice.partitioning;
+
+import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.idgen.TimeOrderedIdGenerator;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies into order_log_entries and order_log_remarks the order_logs rows that only the
+ * previous release wrote, for as long as {@code order.legacy-order-logs.enabled} is on. Rows
+ * this release writes land in both tables in one transaction and are skipped.
+ * <p>
+ * Each shard is first walked from the lowest id in batches, with progress kept in its
+ * order_logs_backfill row, which is locked for each batch so only one instance copies a shard at
+ * a time and a restarted one continues where the last left off. Once a batch comes back short the
+ * shard is caught up, and later passes only recheck the ids allocated in the last
+ * {@code backfill-lookback-minutes}, where rows from instances still on the previous release keep
+ * arriving until the rollout ends.
+ */
+@Slf4j
+@Component
+public class LegacyOrderLogBackfill {
+
+    private static final String CHECKPOINT_SQL = "SELECT last_id, caught_up FROM order_logs_backfill WHERE id = 1 FOR UPDATE SKIP LOCKED";
+    private static final String UPDATE_CHECKPOINT_SQL = "UPDATE order_logs_backfill SET last_id = ?, caught_up = ? WHERE id = 1";
+    private static final String MISSING_SQL = "SELECT l.id, l.order_id, l.order_status, l.remarks, l.entered_by, l.entered_by_id,"
+            + " l.is_deleted, l.is_archived, COALESCE(l.created_at, o.created_at, CURRENT_TIMESTAMP)"
+            + " FROM order_logs l JOIN orders o ON o.id = l.order_id"
+            + " WHERE l.id > ? AND NOT EXISTS (SELECT 1 FROM order_log_entries e WHERE e.id = l.id)"
+            + " ORDER BY l.id LIMIT ?";
+    private static final String INSERT_ENTRY_SQL = "INSERT INTO order_log_entries (id, order_id, order_status, entered_by, entered_by_id,"
+            + " is_deleted, is_archived, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_REMARKS_SQL = "INSERT INTO order_log_remarks (order_log_id, created_at, remarks) VALUES (?, ?, ?)";
+
+    private final LegacyOrderLogProperties properties;
+    private final ShardRouter shardRouter;
+    private final TimeOrderedIdGenerator idGenerator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // As last read from each shard's checkpoint, for the gauge
+    private final boolean[] caughtUp;
+    private final Counter copied;
+    private final Counter skipped;
+
+    public LegacyOrderLogBackfill(LegacyOrderLogProperties properties, ShardRouter shardRouter, TimeOrderedIdGenerator idGenerator,
+                                  @Qualifier("fdsOrderDb") DataSource dataSource,
+                                  @Qualifier("fdsOrderDbTransactionManager") PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.idGenerator = idGenerator;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.caughtUp = new boolean[shardRouter.getShardCount()];
+        this.copied = meterRegistry.counter("order.legacy-order-logs.backfill.copied");
+        this.skipped = meterRegistry.counter("order.legacy-order-logs.backfill.skipped");
+        Gauge.builder("order.legacy-order-logs.backfill.caught-up", this, LegacyOrderLogBackfill::caughtUpShards).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${order.legacy-order-logs.backfill-interval-ms:5000}")
+    public synchronized void backfill() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (int shard = 0; shard < caughtUp.length; shard++) {
+            int currentShard = shard;
+            try {
+                shardRouter.onShard(shard, () -> {
+                    backfillShard(currentShard);
+                    return null;
+                });
+            } catch (Exception e) {
+                log.warn("order_logs backfill paused on shard {}: {}", currentShard, e.getMessage());
+            }
+        }
+    }
+
+    private double caughtUpShards() {
+        int count = 0;
+        for (boolean shardCaughtUp : caughtUp) {
+            count += shardCaughtUp ? 1 : 0;
+        }
+        return count;
+    }
+
+    private void backfillShard(int shard) {
+        int batchSize = properties.getBackfillBatchSize();
+        Long after = null;
+        Batch batch;
+        do {
+            Long start = after;
+            batch = transactionTemplate.execute(status -> copyBatch(shard, start, batchSize));
+            if (batch == null) {
+                return;
+            }
+            after = batch.lastId;
+        } while (batch.rows == batchSize);
+    }
+
+    /**
+     * Copies the next batch after {@code after}, or after where the checkpoint says the pass
+     * starts when it is null. Returns null when another instance holds the checkpoint.
+     */
+    private Batch copyBatch(int shard, Long after, int batchSize) {
+        List<Object[]> checkpoints = jdbcTemplate.query(CHECKPOINT_SQL,
+                (resultSet, rowNum) -> new Object[]{resultSet.getLong(1), resultSet.getBoolean(2)});
+        if (checkpoints.isEmpty()) {
+            return null;
+        }
+        long lastId = (Long) checkpoints.get(0)[0];
+        boolean shardCaughtUp = (Boolean) checkpoints.get(0)[1];
+        caughtUp[shard] = shardCaughtUp;
+        long from;
+        if (after != null) {
+            from = after;
+        } else if (shardCaughtUp) {
+            from = idGenerator.firstIdAt(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(properties.getBackfillLookbackMinutes())) - 1;
+        } else {
+            from = lastId;
+        }
+
+        List<Object[]> entries = new ArrayList<>();
+        List<Object[]> remarks = new ArrayList<>();
+        Batch batch = new Batch(from);
+        jdbcTemplate.query(MISSING_SQL, resultSet -> {
+            long id = resultSet.getLong(1);
+            batch.rows++;
+            batch.lastId = id;
+            String status = resultSet.getString(3);
+            String enteredBy = resultSet.getString(5);
+            Timestamp createdAt = resultSet.getTimestamp(9);
+            Integer statusCode = stateCode(status);
+            Integer enteredByCode = userTypeCode(enteredBy);
+            if (statusCode == null || enteredByCode == null) {
+                // Left for the contract migration, which fails on it rather than storing a wrong code
+                log.error("order_logs row {} has unknown order_status {} or entered_by {}, not copied", id, status, enteredBy);
+                skipped.increment();
+                return;
+            }
+            entries.add(new Object[]{id, resultSet.getLong(2), statusCode, enteredByCode, resultSet.getLong(6),
+                    resultSet.getBoolean(7), resultSet.getBoolean(8), createdAt});
+            String remark = resultSet.getString(4);
+            if (remark != null && !remark.trim().isEmpty()) {
+                remarks.add(new Object[]{id, createdAt, remark});
+            }
+        }, from, batchSize);
+        if (!entries.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, entries);
+            jdbcTemplate.batchUpdate(INSERT_REMARKS_SQL, remarks);
+            copied.increment(entries.size());
+        }
+        // The walk's progress commits with the rows it copied; a caught-up shard keeps its checkpoint
+        if (!shardCaughtUp) {
+            boolean nowCaughtUp = batch.rows < batchSize;
+            jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, batch.lastId, nowCaughtUp);
+            if (nowCaughtUp) {
+                log.info("order_logs backfill caught up on shard {}", shard);
+            }
+        }
+        return batch;
+    }
+
+    private static Integer stateCode(String name) {
+        for (OrderStates state : OrderStates.values()) {
+            if (state.name().equals(name)) {
+                return state.getCode();
+            }
+        }
+        return null;
+    }
+
+    private static Integer userTypeCode(String name) {
+        for (UserTypes userType : UserTypes.values()) {
+            if (userType.name().equals(name)) {
+                return userType.getCode();
+            }
+        }
+        return null;
+    }
+
+    private static final class Batch {
+        private int rows;
+        private long lastId;
+
+        private Batch(long after) {
+            this.lastId = after;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.scalableservices.orderservice.partitioning;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writing and backfilling order_logs while order_log_entries replaces it. Turn {@code enabled}
+ * off once no instance runs a release that writes only order_logs and the backfill has caught
+ * up on every shard; then add classpath:db/contract to spring.flyway.locations to drop it.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.legacy-order-logs")
+public class LegacyOrderLogProperties {
+
+    // Write every new log to order_logs too and copy the rows only order_logs has into order_log_entries
+    private boolean enabled = true;
+
+    // Rows copied per backfill transaction
+    private int backfillBatchSize = 1000;
+
+    private long backfillIntervalMs = 5000;
+
+    // Once caught up, each pass rechecks the ids allocated this far back, since ids from different instances interleave
+    private long backfillLookbackMinutes = 30;
+}
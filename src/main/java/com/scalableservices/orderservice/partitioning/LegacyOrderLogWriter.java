@@ -0,0 +1,43 @@
+package com.scalableservices.orderservice.partitioning;
+
+import com.scalableservices.orderservice.model.OrderLog;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+
+/**
+ * Writes each new order log to order_logs as well, in its old shape, for as long as
+ * {@code order.legacy-order-logs.enabled} is on. Instances on the previous release read and
+ * write only order_logs, so it has to stay complete until the last of them is gone.
+ */
+@Component
+public class LegacyOrderLogWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO order_logs (id, order_id, order_status, remarks, entered_by, entered_by_id,"
+            + " is_deleted, is_archived, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final LegacyOrderLogProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+
+    public LegacyOrderLogWriter(LegacyOrderLogProperties properties, @Qualifier("fdsOrderDb") DataSource dataSource) {
+        this.properties = properties;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Inserts {@code orderLog}, which must already have its id, into order_logs. Call it in the
+     * transaction that saves the log, so both tables get the row or neither does.
+     */
+    public void write(OrderLog orderLog) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        // order_logs.remarks is NOT NULL; the previous release stored missing remarks as empty
+        jdbcTemplate.update(INSERT_SQL, orderLog.getId(), orderLog.getOrder().getId(), orderLog.getOrderSubStatus(),
+                orderLog.getRemarks() == null ? "" : orderLog.getRemarks(), orderLog.getEnteredBy(), orderLog.getEnteredById(),
+                orderLog.getIsDeleted(), orderLog.getIsArchived(), Timestamp.valueOf(orderLog.getCreatedAt()));
+    }
+}
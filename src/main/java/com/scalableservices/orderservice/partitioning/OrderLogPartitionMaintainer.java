@@ -0,0 +1,179 @@
+package com.scalableservices.orderservice.partitioning;
+
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the monthly RANGE partitions of order_log_entries and order_log_remarks in shape on every
+ * shard: partitions for the coming months are split off p_future ahead of time, and once
+ * {@code order.log-partitions.retention-months} is set, months past it are exchanged into
+ * archive tables or dropped. Either is a metadata change, however many rows the month holds.
+ * <p>
+ * Runs on startup and nightly, holding a MySQL named lock on each shard so only one instance
+ * changes its partitions at a time. Every step of archiving a month first checks what an earlier,
+ * interrupted run left behind, so running it again resumes the month instead of repeating a step;
+ * an exchange in particular is only done while the archive table is empty, since a second one
+ * would swap the rows back.
+ */
+@Slf4j
+@Component
+public class OrderLogPartitionMaintainer {
+
+    private static final List<String> TABLES = Arrays.asList("order_log_entries", "order_log_remarks");
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final String LOCK_NAME = "order_log_partitions";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final PartitionProperties properties;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderLogPartitionMaintainer(PartitionProperties properties, ShardRouter shardRouter, @Qualifier("fdsOrderDb") DataSource dataSource) {
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Thread maintainer = new Thread(this::maintain, "order-log-partitions");
+        maintainer.setDaemon(true);
+        maintainer.start();
+    }
+
+    @Scheduled(cron = "${order.log-partitions.cron:0 15 3 * * *}")
+    public synchronized void maintain() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            for (String table : TABLES) {
+                int currentShard = shard;
+                try {
+                    shardRouter.onShard(shard, () -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                        // One connection for the whole run, since the named lock belongs to it
+                        JdbcTemplate locked = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                        if (!Integer.valueOf(1).equals(locked.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, LOCK_NAME))) {
+                            log.info("Partitions of {} on shard {} are being maintained by another instance", table, currentShard);
+                            return null;
+                        }
+                        try {
+                            maintainTable(locked, table);
+                        } finally {
+                            locked.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+                        }
+                        return null;
+                    }));
+                } catch (Exception e) {
+                    log.error("Error while maintaining partitions of {} on shard {}: {}", table, currentShard, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void maintainTable(JdbcTemplate jdbcTemplate, String table) {
+        List<Partition> partitions = jdbcTemplate.query("SELECT PARTITION_NAME, FROM_UNIXTIME(PARTITION_DESCRIPTION) FROM information_schema.PARTITIONS"
+                        + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION",
+                (resultSet, rowNum) -> {
+                    Timestamp bound = resultSet.getTimestamp(2);
+                    return new Partition(resultSet.getString(1), bound == null ? null : bound.toLocalDateTime());
+                }, table);
+        if (partitions.isEmpty() || !FUTURE_PARTITION.equals(partitions.get(partitions.size() - 1).name)) {
+            log.warn("{} is not partitioned by month, skipping partition maintenance", table);
+            return;
+        }
+        addAhead(jdbcTemplate, table, partitions);
+        if (properties.getRetentionMonths() > 0) {
+            removeExpired(jdbcTemplate, table, partitions);
+        }
+    }
+
+    private void addAhead(JdbcTemplate jdbcTemplate, String table, List<Partition> partitions) {
+        LocalDateTime coveredUntil = partitions.size() > 1 ? partitions.get(partitions.size() - 2).upperBound : null;
+        YearMonth month = coveredUntil == null ? YearMonth.now() : YearMonth.from(coveredUntil);
+        YearMonth last = YearMonth.now().plusMonths(properties.getMonthsAhead());
+        for (; !month.isAfter(last); month = month.plusMonths(1)) {
+            String bound = month.plusMonths(1).atDay(1).atStartOfDay().format(BOUND);
+            jdbcTemplate.execute("ALTER TABLE " + table + " REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+                    + "PARTITION " + month.format(PARTITION_NAME) + " VALUES LESS THAN (UNIX_TIMESTAMP('" + bound + "')), "
+                    + "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE)");
+            log.info("Added partition {} to {}", month.format(PARTITION_NAME), table);
+        }
+    }
+
+    private void removeExpired(JdbcTemplate jdbcTemplate, String table, List<Partition> partitions) {
+        LocalDateTime cutoff = YearMonth.now().minusMonths(properties.getRetentionMonths()).atDay(1).atStartOfDay();
+        for (Partition partition : partitions) {
+            if (partition.upperBound == null || partition.upperBound.isAfter(cutoff)) {
+                continue;
+            }
+            if (properties.isArchiveExpired() && !archive(jdbcTemplate, table, partition.name)) {
+                continue;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP PARTITION " + partition.name);
+            log.info("Dropped partition {} of {}", partition.name, table);
+        }
+    }
+
+    /**
+     * Moves the rows of {@code partition} into its archive table. Returns true once the partition
+     * is empty and the archive holds them, whether this run or an earlier one did the work.
+     */
+    private boolean archive(JdbcTemplate jdbcTemplate, String table, String partition) {
+        String archive = table + "_archive_" + partition;
+        if (count(jdbcTemplate, "SELECT COUNT(*) FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?", archive) == 0) {
+            jdbcTemplate.execute("CREATE TABLE " + archive + " LIKE " + table);
+        }
+        if (count(jdbcTemplate, "SELECT COUNT(*) FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?"
+                + " AND PARTITION_NAME IS NOT NULL", archive) > 0) {
+            jdbcTemplate.execute("ALTER TABLE " + archive + " REMOVE PARTITIONING");
+        }
+        boolean partitionEmpty = count(jdbcTemplate, "SELECT COUNT(*) FROM (SELECT 1 FROM " + table + " PARTITION (" + partition + ") LIMIT 1) rows_left") == 0;
+        if (partitionEmpty) {
+            return true;
+        }
+        if (count(jdbcTemplate, "SELECT COUNT(*) FROM (SELECT 1 FROM " + archive + " LIMIT 1) rows_archived") > 0) {
+            log.error("Partition {} of {} and {} both hold rows, leaving them for an operator", partition, table, archive);
+            return false;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " EXCHANGE PARTITION " + partition + " WITH TABLE " + archive);
+        log.info("Archived partition {} of {} into {}", partition, table, archive);
+        return true;
+    }
+
+    private long count(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args);
+        return count == null ? 0 : count;
+    }
+
+    private static final class Partition {
+        private final String name;
+        // Null for p_future
+        private final LocalDateTime upperBound;
+
+        private Partition(String name, LocalDateTime upperBound) {
+            this.name = name;
+            this.upperBound = upperBound;
+        }
+    }
+}
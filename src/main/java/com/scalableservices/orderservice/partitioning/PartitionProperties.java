@@ -0,0 +1,22 @@
+package com.scalableservices.orderservice.partitioning;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.log-partitions")
+public class PartitionProperties {
+
+    private boolean enabled = true;
+
+    // Monthly partitions are created this many months ahead, so inserts never land in p_future
+    private int monthsAhead = 3;
+
+    // Months of order logs kept in the live tables; older partitions are removed. 0 keeps everything.
+    private int retentionMonths = 0;
+
+    // Move expired partitions into <table>_archive_<partition> tables instead of dropping them
+    private boolean archiveExpired = true;
+}
@@ -0,0 +1,89 @@
+package com.scalableservices.orderservice.polling;
+
+/**
+ * Streaming quantile sketch for durations with a fixed memory footprint.
+ * <p>
+ * Values are counted in logarithmically spaced buckets, so any quantile is returned within
+ * {@code relativeAccuracy} of a true sample however many samples were added. Durations below
+ * one second or above the ceiling are clamped into the first and last bucket. Once the sample
+ * count reaches {@code maxSamples} every bucket is halved, which keeps the counts bounded and
+ * weights the sketch towards recent behaviour.
+ */
+final class DurationSketch {
+
+    private static final double MIN_SECONDS = 1;
+
+    private final double gamma;
+    private final double logGamma;
+    private final int[] counts;
+    private final int maxSamples;
+    private int total;
+
+    DurationSketch(double relativeAccuracy, long maxSeconds, int maxSamples) {
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.counts = new int[indexOf(maxSeconds) + 1];
+        this.maxSamples = maxSamples;
+    }
+
+    synchronized void add(double seconds) {
+        counts[indexOf(seconds)]++;
+        if (++total >= maxSamples) {
+            total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] >>= 1;
+                total += counts[i];
+            }
+        }
+    }
+
+    synchronized int count() {
+        return total;
+    }
+
+    /**
+     * Fraction of samples no longer than {@code seconds}.
+     */
+    synchronized double cdf(double seconds) {
+        if (total == 0) {
+            return 0;
+        }
+        int index = indexOf(seconds);
+        long below = 0;
+        for (int i = 0; i <= index; i++) {
+            below += counts[i];
+        }
+        return (double) below / total;
+    }
+
+    synchronized double quantile(double q) {
+        if (total == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.ceil(Math.max(0, Math.min(1, q)) * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+                return valueOf(i);
+            }
+        }
+        return valueOf(counts.length - 1);
+    }
+
+    private int indexOf(double seconds) {
+        if (seconds <= MIN_SECONDS) {
+            return 0;
+        }
+        int index = (int) Math.ceil(Math.log(seconds / MIN_SECONDS) / logGamma);
+        return counts == null ? index : Math.min(index, counts.length - 1);
+    }
+
+    // Midpoint of the bucket in relative terms, which bounds the relative error by the accuracy
+    private double valueOf(int index) {
+        if (index == 0) {
+            return MIN_SECONDS;
+        }
+        return MIN_SECONDS * 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+}
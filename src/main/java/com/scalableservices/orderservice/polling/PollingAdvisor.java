@@ -0,0 +1,49 @@
+package com.scalableservices.orderservice.polling;
+
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Turns learned stage durations into a polling hint for one order.
+ * <p>
+ * Given how long the order has already been in its state, the hint points at the time by which
+ * {@code targetQuantile} of the orders that stayed at least that long had moved on, clamped to
+ * the configured bounds. Early in a long stage such as PREPARING that is minutes away; once
+ * the order is overdue by the restaurant's own history it drops to the minimum.
+ */
+@Component
+public class PollingAdvisor {
+
+    private final PollingProperties properties;
+    private final StageDurationLearner learner;
+
+    public PollingAdvisor(PollingProperties properties, StageDurationLearner learner) {
+        this.properties = properties;
+        this.learner = learner;
+    }
+
+    public PollingHint hintFor(Order order) {
+        return hintFor(order.getRestaurantId(), order.getOrderStatus(), order.getUpdatedAt() == null ? order.getCreatedAt() : order.getUpdatedAt());
+    }
+
+    public PollingHint hintFor(Long restaurantId, OrderStates state, LocalDateTime enteredAt) {
+        LocalDateTime now = LocalDateTime.now();
+        if (state == OrderStates.DELIVERED || state == OrderStates.CANCELLED) {
+            return new PollingHint(properties.getTerminalMaxAgeSeconds(), null);
+        }
+        long intervalSeconds = properties.getDefaultIntervalSeconds();
+        DurationSketch sketch = properties.isEnabled() ? learner.sketchFor(restaurantId, state) : null;
+        if (sketch != null) {
+            double elapsed = enteredAt == null ? 0 : Math.max(0, Duration.between(enteredAt, now).toMillis() / 1000.0);
+            double alreadyDone = sketch.cdf(elapsed);
+            double expected = sketch.quantile(alreadyDone + (1 - alreadyDone) * properties.getTargetQuantile());
+            intervalSeconds = (long) Math.ceil(expected - elapsed);
+        }
+        intervalSeconds = Math.max(properties.getMinIntervalSeconds(), Math.min(properties.getMaxIntervalSeconds(), intervalSeconds));
+        return new PollingHint(intervalSeconds, now.plusSeconds(intervalSeconds));
+    }
+}
@@ -0,0 +1,14 @@
+package com.scalableservices.orderservice.polling;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * When a client should next poll an order, and how long the current answer may be cached.
+ */
+@Value
+public class PollingHint {
+    long maxAgeSeconds;
+    LocalDateTime nextPollAt;
+}
@@ -0,0 +1,37 @@
+package com.scalableservices.orderservice.polling;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.polling")
+public class PollingProperties {
+
+    private boolean enabled = true;
+
+    // Bounds of the suggested interval between two polls of the same order
+    private long minIntervalSeconds = 2;
+    private long maxIntervalSeconds = 120;
+
+    // Used until a stage has enough samples to learn from
+    private long defaultIntervalSeconds = 10;
+    private int minSamples = 20;
+
+    // Poll when this share of the orders still in the stage are expected to have moved on
+    private double targetQuantile = 0.25;
+
+    // max-age for delivered and cancelled orders, which never change again
+    private long terminalMaxAgeSeconds = 3600;
+
+    private double relativeAccuracy = 0.05;
+    private long maxStageSeconds = 21600;
+    // Samples per sketch before its counts are halved
+    private int maxSamplesPerSketch = 2000;
+    // Restaurants beyond this share the global per-state sketches
+    private int maxRestaurants = 20000;
+
+    // Days of order logs replayed on startup to seed the sketches; 0 starts empty
+    private int seedDays = 7;
+}
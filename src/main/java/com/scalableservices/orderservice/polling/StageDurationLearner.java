@@ -0,0 +1,140 @@
+package com.scalableservices.orderservice.polling;
+
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Learns how long orders stay in each state, per restaurant and across all restaurants.
+ * <p>
+ * Every transition adds the time the order spent in the state it left, the same interval the
+ * order log timestamps record. Each restaurant and state gets a {@link DurationSketch} of a
+ * few hundred bytes, and the number of restaurants tracked is capped, so memory stays bounded.
+ * On startup the last few days of order_log_entries are replayed in the background to seed them.
+ */
+@Slf4j
+@Component
+public class StageDurationLearner {
+
+    private static final OrderStates[] STATES = OrderStates.values();
+
+    private final PollingProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    // Keyed by restaurantId * STATES.length + state ordinal
+    private final Map<Long, DurationSketch> restaurantSketches = new ConcurrentHashMap<>();
+    private final Map<OrderStates, DurationSketch> globalSketches = new EnumMap<>(OrderStates.class);
+
+    public StageDurationLearner(PollingProperties properties, @Qualifier("fdsOrderDb") DataSource dataSource,
+                                ShardRouter shardRouter, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.shardRouter = shardRouter;
+        for (OrderStates state : STATES) {
+            globalSketches.put(state, newSketch());
+        }
+        Gauge.builder("order.polling.sketches", restaurantSketches, Map::size).register(meterRegistry);
+    }
+
+    public void record(Long restaurantId, OrderStates state, LocalDateTime enteredAt, LocalDateTime leftAt) {
+        if (restaurantId == null || state == null || enteredAt == null || leftAt == null) {
+            return;
+        }
+        double seconds = Duration.between(enteredAt, leftAt).toMillis() / 1000.0;
+        if (seconds < 0) {
+            return;
+        }
+        globalSketches.get(state).add(seconds);
+        long key = key(restaurantId, state);
+        DurationSketch sketch = restaurantSketches.get(key);
+        if (sketch == null) {
+            if (restaurantSketches.size() >= properties.getMaxRestaurants() * STATES.length) {
+                return;
+            }
+            sketch = restaurantSketches.computeIfAbsent(key, ignored -> newSketch());
+        }
+        sketch.add(seconds);
+    }
+
+    /**
+     * The restaurant's sketch for the state once it has enough samples, otherwise the global one,
+     * or null when neither has.
+     */
+    DurationSketch sketchFor(Long restaurantId, OrderStates state) {
+        DurationSketch sketch = restaurantId == null ? null : restaurantSketches.get(key(restaurantId, state));
+        if (sketch != null && sketch.count() >= properties.getMinSamples()) {
+            return sketch;
+        }
+        DurationSketch global = globalSketches.get(state);
+        return global.count() >= properties.getMinSamples() ? global : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOnStartup() {
+        if (!properties.isEnabled() || properties.getSeedDays() <= 0) {
+            return;
+        }
+        Thread seeder = new Thread(this::seed, "order-polling-seed");
+        seeder.setDaemon(true);
+        seeder.start();
+    }
+
+    // Streams recent logs in order per order and replays each stage the order went through
+    private void seed() {
+        long started = System.currentTimeMillis();
+        Timestamp since = Timestamp.valueOf(LocalDateTime.now().minusDays(properties.getSeedDays()));
+        String sql = "SELECT o.id, o.restaurant_id, o.created_at, l.order_status, l.created_at FROM order_log_entries l"
+                + " JOIN orders o ON o.id = l.order_id WHERE o.created_at >= ? AND l.created_at >= ? ORDER BY l.order_id, l.created_at, l.id";
+        long[] samples = {0};
+        try {
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                shardRouter.onShard(shard, () -> {
+                    long[] currentOrder = {-1};
+                    Object[] current = new Object[2];
+                    jdbcTemplate.query(sql, resultSet -> {
+                        long orderId = resultSet.getLong(1);
+                        if (orderId != currentOrder[0]) {
+                            currentOrder[0] = orderId;
+                            current[0] = OrderStates.PLACED;
+                            current[1] = resultSet.getTimestamp(3).toLocalDateTime();
+                        }
+                        OrderStates nextState = OrderStates.fromCode(resultSet.getInt(4));
+                        LocalDateTime at = resultSet.getTimestamp(5).toLocalDateTime();
+                        record(resultSet.getLong(2), (OrderStates) current[0], (LocalDateTime) current[1], at);
+                        samples[0]++;
+                        current[0] = nextState;
+                        current[1] = at;
+                    }, since, since);
+                    return null;
+                });
+            }
+            log.info("Seeded stage durations from {} order log rows in {} ms", samples[0], System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Error while seeding stage durations after {} rows: {}", samples[0], e.getMessage());
+        }
+    }
+
+    private DurationSketch newSketch() {
+        return new DurationSketch(properties.getRelativeAccuracy(), properties.getMaxStageSeconds(), properties.getMaxSamplesPerSketch());
+    }
+
+    private long key(Long restaurantId, OrderStates state) {
+        return restaurantId * STATES.length + state.ordinal();
+    }
+}
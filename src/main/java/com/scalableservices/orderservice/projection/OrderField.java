@@ -0,0 +1,106 @@
+package com.scalableservices.orderservice.projection;
+
+import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.model.Order;
+import org.springframework.http.HttpStatus;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The order attributes a read can be narrowed to with {@code fields}. Each name is the entity
+ * attribute and the JSON property at once, so a projected order looks like the full one with
+ * properties left out.
+ */
+public enum OrderField {
+    ID("id", Order::getId),
+    CUSTOMER_ID("customerId", Order::getCustomerId),
+    RESTAURANT_ID("restaurantId", Order::getRestaurantId),
+    ORDER_STATUS("orderStatus", Order::getOrderStatus),
+    ORDER_DETAILS("orderDetails", Order::getOrderDetails),
+    TOTAL_AMOUNT("totalAmount", Order::getTotalAmount),
+    CUSTOMER_ADDRESS("customerAddress", Order::getCustomerAddress),
+    IS_DELETED("isDeleted", Order::getIsDeleted),
+    IS_ARCHIVED("isArchived", Order::getIsArchived),
+    CREATED_AT("createdAt", Order::getCreatedAt),
+    UPDATED_AT("updatedAt", Order::getUpdatedAt);
+
+    // What polling clients need: which order, where it is and since when
+    public static final String SUMMARY = "summary";
+    private static final Set<OrderField> SUMMARY_FIELDS =
+            Collections.unmodifiableSet(EnumSet.of(ID, RESTAURANT_ID, ORDER_STATUS, UPDATED_AT));
+    // Read along with any selection on tracking, so the polling hint never depends on what was asked for
+    private static final Set<OrderField> POLLING_HINT_FIELDS =
+            Collections.unmodifiableSet(EnumSet.of(RESTAURANT_ID, ORDER_STATUS, UPDATED_AT));
+
+    private final String property;
+    private final Function<Order, Object> getter;
+
+    OrderField(String property, Function<Order, Object> getter) {
+        this.property = property;
+        this.getter = getter;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Parses a {@code fields} parameter: {@code summary} or a comma separated list of property
+     * names. Returns null when it is empty, meaning the whole order. The id is always included.
+     */
+    public static Set<OrderField> parse(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        if (fields.trim().equalsIgnoreCase(SUMMARY)) {
+            return SUMMARY_FIELDS;
+        }
+        Set<OrderField> selected = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            selected.add(fromProperty(name.trim()));
+        }
+        return selected;
+    }
+
+    // The selected attributes of an order already in memory, e.g. from the read model
+    public static Map<String, Object> project(Order order, Set<OrderField> fields) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (OrderField field : fields) {
+            projected.put(field.property, field.getter.apply(order));
+        }
+        return projected;
+    }
+
+    // The fields to read for a tracking selection: the selection plus what the polling hint needs
+    public static Set<OrderField> withPollingHintFields(Set<OrderField> fields) {
+        if (fields.containsAll(POLLING_HINT_FIELDS)) {
+            return fields;
+        }
+        Set<OrderField> read = EnumSet.copyOf(fields);
+        read.addAll(POLLING_HINT_FIELDS);
+        return Collections.unmodifiableSet(read);
+    }
+
+    // A new map with only the selected properties of a projected row, which may be shared and is left as it is
+    public static Map<String, Object> select(Map<String, Object> row, Set<OrderField> fields) {
+        Map<String, Object> selected = new LinkedHashMap<>();
+        for (OrderField field : fields) {
+            selected.put(field.property, row.get(field.property));
+        }
+        return selected;
+    }
+
+    private static OrderField fromProperty(String property) {
+        for (OrderField field : values()) {
+            if (field.property.equalsIgnoreCase(property)) {
+                return field;
+            }
+        }
+        throw new ServiceException(HttpStatus.BAD_REQUEST, "Unknown field: " + property);
+    }
+}
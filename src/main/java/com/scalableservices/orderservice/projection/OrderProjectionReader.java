@@ -0,0 +1,95 @@
+package com.scalableservices.orderservice.projection;
+
+import com.scalableservices.orderservice.exception.Rejection;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.singleflight.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads only the selected attributes of orders, with a JPQL select list built from
+ * {@link OrderField}s, so MySQL sends and Hibernate hydrates nothing else. Rows come back as
+ * maps keyed by property name and are serialized as they are.
+ * <p>
+ * Tracking reads of the same order and selection share one query while it runs, as the full
+ * tracking read does through {@code OrderService.trackOrder}.
+ */
+@Component
+public class OrderProjectionReader {
+
+    private final EntityManager entityManager;
+    private final ShardRouter shardRouter;
+    private final SingleFlight<TrackKey, Map<String, Object>> trackReads;
+
+    public OrderProjectionReader(EntityManager entityManager, ShardRouter shardRouter, MeterRegistry meterRegistry) {
+        this.entityManager = entityManager;
+        this.shardRouter = shardRouter;
+        this.trackReads = new SingleFlight<>("trackOrderFields", meterRegistry);
+    }
+
+    // The returned row is shared with concurrent callers of the same selection and must not be modified
+    public Map<String, Object> findById(Long orderId, Set<OrderField> fields) {
+        return trackReads.load(new TrackKey(orderId, fields), () -> {
+            List<Map<String, Object>> rows = shardRouter.onOrderShard(orderId, () -> toMaps(entityManager
+                    .createQuery("SELECT " + selectList(fields) + " FROM Order o WHERE o.id = :orderId", Tuple.class)
+                    .setParameter("orderId", orderId)
+                    .getResultList()));
+            if (rows.isEmpty()) {
+                throw Rejection.ORDER_NOT_FOUND.exception();
+            }
+            return rows.get(0);
+        });
+    }
+
+    // Same orders as OrderService.getAllOrdersMappedToDeliveryAgent, from every shard in parallel
+    public List<Map<String, Object>> findMappedToDeliveryAgent(Long deliveryAgentId, Set<OrderField> fields) {
+        String query = "SELECT " + selectList(fields) + " FROM OrderDeliveryAgent oda JOIN oda.order o WHERE oda.deliveryAgentId = :deliveryAgentId";
+        List<Map<String, Object>> rows = shardRouter.fanOut(shard -> toMaps(entityManager.createQuery(query, Tuple.class)
+                .setParameter("deliveryAgentId", deliveryAgentId)
+                .getResultList()));
+        if (rows.isEmpty()) {
+            throw Rejection.NO_DELIVERY_AGENT_ORDERS.exception();
+        }
+        return rows;
+    }
+
+    // Only enum constants go into the query text, never request input
+    private static String selectList(Set<OrderField> fields) {
+        StringBuilder select = new StringBuilder();
+        for (OrderField field : fields) {
+            if (select.length() > 0) {
+                select.append(", ");
+            }
+            select.append("o.").append(field.getProperty()).append(" AS ").append(field.getProperty());
+        }
+        return select.toString();
+    }
+
+    private static List<Map<String, Object>> toMaps(List<Tuple> tuples) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (TupleElement<?> element : tuple.getElements()) {
+                row.put(element.getAlias(), tuple.get(element));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Value
+    private static class TrackKey {
+        Long orderId;
+        Set<OrderField> fields;
+    }
+}
@@ -0,0 +1,52 @@
+package com.scalableservices.orderservice.readmodel;
+
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One order as the read endpoints see it: current state, assigned agent and the status
+ * timeline embedded, so tracking, history and agent listings are each a single document read.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderReadDocument {
+
+    @Id
+    private Long orderId;
+    private Long customerId;
+    private Long restaurantId;
+    private OrderStates orderStatus;
+    private String orderDetails;
+    private BigDecimal totalAmount;
+    private String customerAddress;
+    private Boolean isDeleted;
+    private Boolean isArchived;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Long deliveryAgentId;
+    private List<TimelineEntry> timeline;
+    // Event time of the last event applied to this document
+    private LocalDateTime projectedAt;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TimelineEntry {
+        private String orderStatus;
+        private String remarks;
+        private String userType;
+        private Long userId;
+        private LocalDateTime timestamp;
+    }
+}
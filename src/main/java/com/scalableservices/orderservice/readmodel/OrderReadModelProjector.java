@@ -0,0 +1,330 @@
+package com.scalableservices.orderservice.readmodel;
+
+import com.mongodb.client.result.UpdateResult;
+import com.scalableservices.orderservice.events.OrderEvent;
+import com.scalableservices.orderservice.events.OrderEventBus;
+import com.scalableservices.orderservice.events.OrderEventHandler;
+import com.scalableservices.orderservice.feed.OrderChangeFeedService;
+import com.scalableservices.orderservice.idgen.OrderIdProperties;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.model.OrderDeliveryAgent;
+import com.scalableservices.orderservice.model.OrderLog;
+import com.scalableservices.orderservice.repository.OrderDeliveryAgentRepository;
+import com.scalableservices.orderservice.repository.OrderLogRepository;
+import com.scalableservices.orderservice.service.OrderService;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps {@link OrderReadDocument}s up to date from committed order events.
+ * <p>
+ * A create loads the order from the primary once and writes the whole document; transitions
+ * and agent assignments patch the state, append to the timeline or set the agent in place.
+ * Events arrive in commit order on the bus thread, so patches never overtake each other. An
+ * order enters each state at most once, so a transition already on the timeline is skipped,
+ * and a document never written by a create is treated as missing by readers.
+ * <p>
+ * Once the bus reports an event lost, the watermark stays at the last event applied before it
+ * until a resync has rebuilt from the primary every order changed since then. Each instance
+ * only projects its own writes, so it reports its watermark to MongoDB and readers go by the
+ * lowest one among the instances still reporting.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order.read-model.enabled", havingValue = "true")
+public class OrderReadModelProjector implements OrderEventHandler {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final long NOT_LOST = -1;
+    private static final int REBUILD_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectProvider<OrderService> orderService;
+    private final OrderEventBus orderEventBus;
+    private final OrderChangeFeedService orderChangeFeedService;
+    private final OrderLogRepository orderLogRepository;
+    private final OrderDeliveryAgentRepository orderDeliveryAgentRepository;
+    private final ShardRouter shardRouter;
+    private final ReadModelProperties properties;
+    private final String collection;
+    private final String watermarkCollection;
+    private final String instanceId;
+
+    private volatile long lastAppliedSequence = -1;
+    private volatile long lastAppliedAt = System.currentTimeMillis();
+    // Event time of the last event applied before one was lost, until a resync covers it; guarded by this
+    private long lostSince = NOT_LOST;
+    // Events lost so far, so a resync can tell whether more were lost while it ran; guarded by this
+    private long lostEvents;
+    // Lowest watermark among the instances still reporting, as last read from MongoDB
+    private volatile LocalDateTime sharedWatermark;
+
+    public OrderReadModelProjector(MongoTemplate mongoTemplate, ObjectProvider<OrderService> orderService,
+                                   OrderEventBus orderEventBus, OrderChangeFeedService orderChangeFeedService,
+                                   OrderLogRepository orderLogRepository, OrderDeliveryAgentRepository orderDeliveryAgentRepository,
+                                   ShardRouter shardRouter, OrderIdProperties orderIdProperties, ReadModelProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.orderService = orderService;
+        this.orderEventBus = orderEventBus;
+        this.orderChangeFeedService = orderChangeFeedService;
+        this.orderLogRepository = orderLogRepository;
+        this.orderDeliveryAgentRepository = orderDeliveryAgentRepository;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.collection = properties.getCollection();
+        this.watermarkCollection = properties.getCollection() + "_watermarks";
+        // Node ids are unique per running instance, which the id generator already relies on
+        this.instanceId = String.valueOf(orderIdProperties.getNodeId());
+    }
+
+    @PostConstruct
+    public void createIndexes() {
+        try {
+            mongoTemplate.indexOps(collection).ensureIndex(new Index("deliveryAgentId", Sort.Direction.ASC).sparse());
+        } catch (Exception e) {
+            log.warn("Could not create read model indexes: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void withdrawWatermark() {
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(instanceId)), watermarkCollection);
+        } catch (Exception e) {
+            log.warn("Could not withdraw read model watermark, it expires on its own: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public String name() {
+        return "readModelProjector";
+    }
+
+    @Override
+    public void onEvent(OrderEvent event) {
+        try {
+            switch (event.getType()) {
+                case CREATED:
+                    projectCreated(event);
+                    break;
+                case TRANSITIONED:
+                    projectTransition(event);
+                    break;
+                case AGENT_ASSIGNED:
+                    patch(event, new Update().set("deliveryAgentId", event.getDeliveryAgentId()));
+                    break;
+                default:
+                    break;
+            }
+        } catch (Exception e) {
+            // Drop the document so readers fall back to the primary instead of serving a gap
+            log.error("Error while projecting {} for order {}: {}", event.getType(), event.getOrderId(), e.getMessage());
+            try {
+                mongoTemplate.remove(Query.query(Criteria.where("_id").is(event.getOrderId())), collection);
+            } catch (Exception ignored) {
+                // Mongo is down; reads fail over to the primary on their own
+            }
+        } finally {
+            lastAppliedSequence = event.getSequence();
+            lastAppliedAt = event.getOccurredAt();
+        }
+    }
+
+    @Override
+    public synchronized void onEventsLost(long count) {
+        if (lostSince == NOT_LOST) {
+            lostSince = lastAppliedAt;
+            log.warn("Read model projector lost events, holding its watermark until a resync");
+        }
+        lostEvents += count;
+    }
+
+    /**
+     * Time up to which every committed change has been projected by every instance still
+     * reporting, or null before this instance has read it once.
+     */
+    public LocalDateTime watermark() {
+        return sharedWatermark;
+    }
+
+    /**
+     * Reports this instance's watermark and reads the lowest one reported within
+     * {@code instance-expiry-ms}. While MongoDB is unreachable the last value read ages, so reads
+     * soon go to the primary.
+     */
+    @Scheduled(fixedDelayString = "${order.read-model.watermark-interval-ms:500}")
+    public void publishWatermark() {
+        try {
+            long now = System.currentTimeMillis();
+            mongoTemplate.upsert(Query.query(Criteria.where("_id").is(instanceId)),
+                    new Update().set("watermark", toLocalDateTime(localWatermark())).set("reportedAt", toLocalDateTime(now)),
+                    watermarkCollection);
+            Query reporting = Query.query(Criteria.where("reportedAt").gte(toLocalDateTime(now - properties.getInstanceExpiryMs())))
+                    .with(Sort.by(Sort.Direction.ASC, "watermark"))
+                    .limit(1);
+            Document lowest = mongoTemplate.findOne(reporting, Document.class, watermarkCollection);
+            sharedWatermark = lowest == null ? null : toLocalDateTime(lowest.getDate("watermark").getTime());
+        } catch (Exception e) {
+            log.warn("Could not exchange read model watermarks: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds from the primary every order changed since the projector first lost an event,
+     * then releases the watermark. Events lost while it runs were published after it started,
+     * so they hold the watermark from that point for the next pass.
+     */
+    @Scheduled(fixedDelayString = "${order.read-model.resync-interval-ms:10000}")
+    public void resync() {
+        long since;
+        long lostBefore;
+        synchronized (this) {
+            if (lostSince == NOT_LOST) {
+                return;
+            }
+            since = lostSince;
+            lostBefore = lostEvents;
+        }
+        long startedAt = System.currentTimeMillis();
+        try {
+            // order_changes.created_at keeps whole seconds
+            Set<Long> orderIds = new LinkedHashSet<>(orderChangeFeedService.orderIdsChangedSince(toLocalDateTime(since - 1000)));
+            for (Long orderId : orderIds) {
+                rebuild(orderId);
+            }
+            synchronized (this) {
+                lostSince = lostEvents == lostBefore ? NOT_LOST : startedAt;
+            }
+            log.info("Read model resynced {} orders changed since {}", orderIds.size(), toLocalDateTime(since));
+        } catch (Exception e) {
+            log.warn("Read model resync failed, retrying on the next pass: {}", e.getMessage());
+        }
+    }
+
+    // Now when caught up with the bus, the last applied event time while behind, held while events are lost
+    private long localWatermark() {
+        synchronized (this) {
+            if (lostSince != NOT_LOST) {
+                return lostSince;
+            }
+        }
+        return orderEventBus.lastClaimedSequence() <= lastAppliedSequence ? System.currentTimeMillis() : lastAppliedAt;
+    }
+
+    private void projectCreated(OrderEvent event) {
+        Order order = orderService.getObject().getOrderByOrderId(event.getOrderId());
+        Update update = new Update()
+                .set("customerId", order.getCustomerId())
+                .set("restaurantId", order.getRestaurantId())
+                .set("orderStatus", order.getOrderStatus())
+                .set("orderDetails", order.getOrderDetails())
+                .set("totalAmount", order.getTotalAmount())
+                .set("customerAddress", order.getCustomerAddress())
+                .set("isDeleted", order.getIsDeleted())
+                .set("isArchived", order.getIsArchived())
+                .set("createdAt", order.getCreatedAt())
+                .set("updatedAt", order.getUpdatedAt())
+                .setOnInsert("timeline", new ArrayList<>());
+        patch(event, update);
+    }
+
+    private void projectTransition(OrderEvent event) {
+        LocalDateTime occurredAt = toLocalDateTime(event.getOccurredAt());
+        OrderReadDocument.TimelineEntry entry = OrderReadDocument.TimelineEntry.builder()
+                .orderStatus(event.getToState().name())
+                .remarks(event.getRemarks())
+                .userType(event.getUserType() == null ? null : event.getUserType().name())
+                .userId(event.getUserId())
+                .timestamp(occurredAt)
+                .build();
+        Update update = new Update()
+                .set("orderStatus", event.getToState())
+                .set("updatedAt", occurredAt)
+                .set("projectedAt", occurredAt)
+                .push("timeline", entry);
+        // A resync may already have written this transition, and a later one with it
+        UpdateResult result = mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(event.getOrderId())
+                .and("timeline.orderStatus").ne(event.getToState().name())), update, OrderReadDocument.class, collection);
+        if (result.getMatchedCount() == 0
+                && !mongoTemplate.exists(Query.query(Criteria.where("_id").is(event.getOrderId())), collection)) {
+            patch(event, update);
+        }
+    }
+
+    private void patch(OrderEvent event, Update update) {
+        update.set("projectedAt", toLocalDateTime(event.getOccurredAt()));
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(event.getOrderId())), update, OrderReadDocument.class, collection);
+    }
+
+    /**
+     * Rewrites the whole document of {@code orderId} from the primary, unless an event newer than
+     * that read was applied meanwhile; the read is then repeated so it includes that event too.
+     */
+    private void rebuild(Long orderId) {
+        for (int attempt = 0; attempt < REBUILD_ATTEMPTS; attempt++) {
+            LocalDateTime readAt = LocalDateTime.now();
+            Order order = orderService.getObject().getOrderByOrderId(orderId);
+            List<OrderLog> orderLogs = shardRouter.onOrderShard(orderId, () -> orderLogRepository.findByOrderId(orderId));
+            OrderDeliveryAgent agent = shardRouter.onOrderShard(orderId, () -> orderDeliveryAgentRepository.findByOrderId(orderId));
+            List<OrderReadDocument.TimelineEntry> timeline = new ArrayList<>(orderLogs.size());
+            for (OrderLog orderLog : orderLogs) {
+                timeline.add(OrderReadDocument.TimelineEntry.builder()
+                        .orderStatus(orderLog.getOrderSubStatus())
+                        .remarks(orderLog.getRemarks())
+                        .userType(orderLog.getEnteredBy())
+                        .userId(orderLog.getEnteredById())
+                        .timestamp(orderLog.getCreatedAt())
+                        .build());
+            }
+            Update update = new Update()
+                    .set("customerId", order.getCustomerId())
+                    .set("restaurantId", order.getRestaurantId())
+                    .set("orderStatus", order.getOrderStatus())
+                    .set("orderDetails", order.getOrderDetails())
+                    .set("totalAmount", order.getTotalAmount())
+                    .set("customerAddress", order.getCustomerAddress())
+                    .set("isDeleted", order.getIsDeleted())
+                    .set("isArchived", order.getIsArchived())
+                    .set("createdAt", order.getCreatedAt())
+                    .set("updatedAt", order.getUpdatedAt())
+                    .set("deliveryAgentId", agent == null ? null : agent.getDeliveryAgentId())
+                    .set("timeline", timeline)
+                    .set("projectedAt", readAt);
+            Query notNewer = Query.query(Criteria.where("_id").is(orderId)
+                    .orOperator(Criteria.where("projectedAt").exists(false), Criteria.where("projectedAt").lt(readAt)));
+            try {
+                mongoTemplate.upsert(notNewer, update, OrderReadDocument.class, collection);
+                return;
+            } catch (DuplicateKeyException e) {
+                // The document exists with an event applied after readAt
+            }
+        }
+        log.warn("Read model document of order {} kept changing during resync, left to its next event", orderId);
+    }
+
+    private LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE);
+    }
+}
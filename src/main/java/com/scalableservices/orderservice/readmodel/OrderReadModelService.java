@@ -0,0 +1,204 @@
+package com.scalableservices.orderservice.readmodel;
+
+import com.scalableservices.orderservice.dto.order.OrderLogResponse;
+import com.scalableservices.orderservice.dto.order.OrderStateEntry;
+import com.scalableservices.orderservice.dto.order.OrderStatusBatchResponse;
+import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.projection.OrderField;
+import com.scalableservices.orderservice.projection.OrderProjectionReader;
+import com.scalableservices.orderservice.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Serves tracking, history and agent listings from the projected read model when the request
+ * asks for it and the projection is fresh enough, and from the primary otherwise. A missing or
+ * incomplete document, an empty result or a MongoDB error also falls back to the primary, so
+ * the read model can only make a read faster, never different in kind.
+ */
+@Slf4j
+@Service
+public class OrderReadModelService {
+
+    @Autowired
+    private ReadModelProperties properties;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private ObjectProvider<MongoTemplate> mongoTemplate;
+    @Autowired
+    private ObjectProvider<OrderReadModelProjector> projector;
+    @Autowired
+    private OrderProjectionReader orderProjectionReader;
+
+    public ReadMode resolveMode(String requested) {
+        if (requested == null || requested.isEmpty()) {
+            return properties.getDefaultMode();
+        }
+        try {
+            return ReadMode.valueOf(requested.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "Invalid read mode: " + requested);
+        }
+    }
+
+    public ReadResult<Order> trackOrder(Long orderId, ReadMode mode) {
+        return read(mode, () -> {
+            OrderReadDocument document = findDocument(orderId);
+            return document == null ? null : toOrder(document);
+        }, () -> orderService.trackOrder(orderId));
+    }
+
+    // Only the selected fields; the primary selects just those columns
+    public ReadResult<Map<String, Object>> trackOrder(Long orderId, Set<OrderField> fields, ReadMode mode) {
+        return read(mode, () -> {
+            OrderReadDocument document = findDocument(orderId);
+            Order order = document == null ? null : toOrder(document);
+            return order == null ? null : OrderField.project(order, fields);
+        }, () -> orderProjectionReader.findById(orderId, fields));
+    }
+
+    public ReadResult<List<OrderLogResponse>> getOrderLogs(Long orderId, ReadMode mode) {
+        return read(mode, () -> {
+            OrderReadDocument document = findDocument(orderId);
+            if (document == null || document.getTimeline() == null || document.getTimeline().isEmpty()) {
+                return null;
+            }
+            List<OrderLogResponse> logs = new ArrayList<>(document.getTimeline().size());
+            for (OrderReadDocument.TimelineEntry entry : document.getTimeline()) {
+                logs.add(OrderLogResponse.builder()
+                        .orderStatus(entry.getOrderStatus())
+                        .remarks(entry.getRemarks())
+                        .userType(entry.getUserType())
+                        .userId(entry.getUserId())
+                        .timestamp(entry.getTimestamp().toString())
+                        .build());
+            }
+            return logs;
+        }, () -> orderService.getOrderLogs(orderId));
+    }
+
+    // Falls back to the primary as a whole when any id has no complete document, so notFound only ever comes from the primary
+    public ReadResult<OrderStatusBatchResponse> getOrderStatuses(List<Long> orderIds, ReadMode mode) {
+        return read(mode, () -> {
+            // Invalid requests are left to the primary to turn down
+            if (orderIds == null || orderIds.isEmpty() || orderIds.size() > OrderService.MAX_STATUS_BATCH_SIZE) {
+                return null;
+            }
+            Set<Long> requested = new LinkedHashSet<>(orderIds);
+            requested.remove(null);
+            List<OrderReadDocument> documents = mongoTemplate.getObject().find(
+                    Query.query(Criteria.where("_id").in(requested)), OrderReadDocument.class, properties.getCollection());
+            List<OrderStateEntry> entries = new ArrayList<>(documents.size());
+            for (OrderReadDocument document : documents) {
+                if (document.getCreatedAt() == null) {
+                    return null;
+                }
+                entries.add(new OrderStateEntry(document.getOrderId(), document.getRestaurantId(), document.getOrderStatus(),
+                        document.getUpdatedAt()));
+            }
+            return entries.size() < requested.size() ? null : OrderService.toStatusBatch(requested, entries);
+        }, () -> orderService.getOrderStatuses(orderIds));
+    }
+
+    public ReadResult<List<Order>> getAgentOrders(Long deliveryAgentId, ReadMode mode) {
+        return read(mode, () -> {
+            List<OrderReadDocument> documents = mongoTemplate.getObject().find(
+                    Query.query(Criteria.where("deliveryAgentId").is(deliveryAgentId)), OrderReadDocument.class, properties.getCollection());
+            List<Order> orders = new ArrayList<>(documents.size());
+            for (OrderReadDocument document : documents) {
+                Order order = toOrder(document);
+                if (order == null) {
+                    return null;
+                }
+                orders.add(order);
+            }
+            return orders.isEmpty() ? null : orders;
+        }, () -> orderService.getAllOrdersMappedToDeliveryAgent(deliveryAgentId));
+    }
+
+    public ReadResult<List<Map<String, Object>>> getAgentOrders(Long deliveryAgentId, Set<OrderField> fields, ReadMode mode) {
+        return read(mode, () -> {
+            List<OrderReadDocument> documents = mongoTemplate.getObject().find(
+                    Query.query(Criteria.where("deliveryAgentId").is(deliveryAgentId)), OrderReadDocument.class, properties.getCollection());
+            List<Map<String, Object>> orders = new ArrayList<>(documents.size());
+            for (OrderReadDocument document : documents) {
+                Order order = toOrder(document);
+                if (order == null) {
+                    return null;
+                }
+                orders.add(OrderField.project(order, fields));
+            }
+            return orders.isEmpty() ? null : orders;
+        }, () -> orderProjectionReader.findMappedToDeliveryAgent(deliveryAgentId, fields));
+    }
+
+    private <T> ReadResult<T> read(ReadMode mode, Supplier<T> fromReadModel, Supplier<T> fromPrimary) {
+        LocalDateTime watermark = mode == ReadMode.READ_MODEL ? freshWatermark() : null;
+        if (watermark != null) {
+            try {
+                T data = fromReadModel.get();
+                if (data != null) {
+                    return new ReadResult<>(data, ReadMode.READ_MODEL, watermark);
+                }
+            } catch (Exception e) {
+                log.warn("Read model unavailable, reading from primary: {}", e.getMessage());
+            }
+        }
+        return new ReadResult<>(fromPrimary.get(), ReadMode.PRIMARY, null);
+    }
+
+    // Null when the read model is off, its watermark unknown, or it trails by more than the allowed staleness
+    private LocalDateTime freshWatermark() {
+        OrderReadModelProjector readModelProjector = properties.isEnabled() ? projector.getIfAvailable() : null;
+        if (readModelProjector == null) {
+            return null;
+        }
+        LocalDateTime watermark = readModelProjector.watermark();
+        if (watermark == null) {
+            return null;
+        }
+        long lagMs = Duration.between(watermark, LocalDateTime.now()).toMillis();
+        return lagMs <= properties.getMaxStalenessMs() ? watermark : null;
+    }
+
+    private OrderReadDocument findDocument(Long orderId) {
+        return mongoTemplate.getObject().findById(orderId, OrderReadDocument.class, properties.getCollection());
+    }
+
+    // Null for documents that only hold patches because their create was never projected
+    private Order toOrder(OrderReadDocument document) {
+        if (document.getCreatedAt() == null) {
+            return null;
+        }
+        return Order.builder()
+                .id(document.getOrderId())
+                .customerId(document.getCustomerId())
+                .restaurantId(document.getRestaurantId())
+                .orderStatus(document.getOrderStatus())
+                .orderDetails(document.getOrderDetails())
+                .totalAmount(document.getTotalAmount())
+                .customerAddress(document.getCustomerAddress())
+                .isDeleted(document.getIsDeleted())
+                .isArchived(document.getIsArchived())
+                .createdAt(document.getCreatedAt())
+                .updatedAt(document.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,11 @@
+package com.scalableservices.orderservice.readmodel;
+
+/**
+ * Where a read endpoint takes its data from. Chosen per request with the X-Read-Mode header.
+ */
+public enum ReadMode {
+    // The relational primary, always current
+    PRIMARY,
+    // The projected document when it is within the staleness bound, otherwise the primary
+    READ_MODEL
+}
@@ -0,0 +1,31 @@
+package com.scalableservices.orderservice.readmodel;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.read-model")
+public class ReadModelProperties {
+
+    // Projects order events into MongoDB and allows READ_MODEL reads; needs spring.data.mongodb.*
+    private boolean enabled = false;
+
+    // Used when a request does not send X-Read-Mode
+    private ReadMode defaultMode = ReadMode.PRIMARY;
+
+    // READ_MODEL reads go to the primary while the projection trails by more than this
+    private long maxStalenessMs = 2000;
+
+    // How often each instance reports its projection watermark and reads everyone else's
+    private long watermarkIntervalMs = 500;
+
+    // An instance that has not reported for this long no longer holds the shared watermark back
+    private long instanceExpiryMs = 10000;
+
+    // How often documents are rebuilt from the primary after the projector lost events
+    private long resyncIntervalMs = 10000;
+
+    private String collection = "order_read_model";
+}
@@ -0,0 +1,16 @@
+package com.scalableservices.orderservice.readmodel;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Data served by a read endpoint together with where it came from. The watermark is the time
+ * up to which the read model had applied every committed change; it is null for primary reads.
+ */
+@Value
+public class ReadResult<T> {
+    T data;
+    ReadMode source;
+    LocalDateTime watermark;
+}
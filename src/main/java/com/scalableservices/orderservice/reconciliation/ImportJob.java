@@ -0,0 +1,57 @@
+package com.scalableservices.orderservice.reconciliation;
+
+import com.scalableservices.orderservice.dto.reconciliation.ImportJobResponse;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one CSV import, updated by the importing thread and read by status requests.
+ */
+final class ImportJob {
+
+    enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    final String jobId;
+    final ReconciliationTable table;
+    final Path spoolFile;
+    final boolean gzip;
+    final long bytesTotal;
+    final AtomicLong bytesRead = new AtomicLong();
+    final AtomicLong rowsRead = new AtomicLong();
+    final AtomicLong rowsWritten = new AtomicLong();
+    final AtomicLong rowsRejected = new AtomicLong();
+    volatile Status status = Status.QUEUED;
+    volatile LocalDateTime startedAt;
+    volatile LocalDateTime finishedAt;
+    volatile String error;
+
+    ImportJob(String jobId, ReconciliationTable table, Path spoolFile, boolean gzip, long bytesTotal) {
+        this.jobId = jobId;
+        this.table = table;
+        this.spoolFile = spoolFile;
+        this.gzip = gzip;
+        this.bytesTotal = bytesTotal;
+    }
+
+    ImportJobResponse toResponse() {
+        long read = bytesRead.get();
+        return ImportJobResponse.builder()
+                .jobId(jobId)
+                .table(table.name())
+                .status(status.name())
+                .bytesTotal(bytesTotal)
+                .bytesRead(read)
+                .percentComplete(bytesTotal == 0 ? null : Math.min(100.0, Math.round(read * 1000.0 / bytesTotal) / 10.0))
+                .rowsRead(rowsRead.get())
+                .rowsWritten(rowsWritten.get())
+                .rowsRejected(rowsRejected.get())
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .error(error)
+                .build();
+    }
+}
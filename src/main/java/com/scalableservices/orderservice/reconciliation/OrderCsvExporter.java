@@ -0,0 +1,84 @@
+package com.scalableservices.orderservice.reconciliation;
+
+import com.opencsv.CSVWriter;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a date range of orders or order logs as CSV. Rows are read through a forward-only,
+ * read-only cursor and written straight to the output as they arrive, so memory use does not
+ * depend on the size of the range. Shards are dumped one after another.
+ */
+@Slf4j
+@Component
+public class OrderCsvExporter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+
+    public OrderCsvExporter(@Qualifier("fdsOrderDb") DataSource dataSource, ShardRouter shardRouter,
+                            ReconciliationProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(properties.getFetchSize());
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Writes every row of {@code table} for orders created on or after {@code from} and before
+     * {@code to}, headed by the column names. Returns the number of rows written.
+     */
+    public long export(ReconciliationTable table, LocalDate from, LocalDate to, boolean gzip, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        CSVWriter writer = new CSVWriter(new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024));
+        List<String> columns = table.getColumns();
+        writer.writeNext(columns.toArray(new String[0]), false);
+        String sql = table.exportSql();
+        Timestamp fromTimestamp = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp toTimestamp = Timestamp.valueOf(to.atStartOfDay());
+        long rows = 0;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            String[] line = new String[columns.size()];
+            long[] shardRows = {0};
+            shardRouter.onShard(shard, () -> {
+                jdbcTemplate.query(sql, resultSet -> {
+                    for (int column = 0; column < line.length; column++) {
+                        line[column] = resultSet.getString(column + 1);
+                    }
+                    writer.writeNext(line, false);
+                    shardRows[0]++;
+                    if (writer.getException() != null) {
+                        // The client went away; stop reading instead of draining the cursor
+                        throw new UncheckedIOException(writer.getException());
+                    }
+                }, fromTimestamp, toTimestamp);
+                return null;
+            });
+            rows += shardRows[0];
+        }
+        writer.flush();
+        if (writer.getException() != null) {
+            throw writer.getException();
+        }
+        if (gzip) {
+            ((GZIPOutputStream) target).finish();
+        }
+        log.info("Exported {} {} rows for {} to {} in {} ms", rows, table, from, to, System.currentTimeMillis() - started);
+        return rows;
+    }
+}
@@ -0,0 +1,275 @@
+package com.scalableservices.orderservice.reconciliation;
+
+import com.opencsv.CSVReader;
+import com.scalableservices.orderservice.dto.reconciliation.ImportJobResponse;
+import com.scalableservices.orderservice.exception.RejectedException;
+import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads CSV files in the export format back into orders or order logs.
+ * <p>
+ * An upload is spooled to disk as it arrives and imported by a background job, so the request
+ * returns a job id at once and neither side holds the file in memory. The job reads one row at
+ * a time, keeps a pending batch per shard and writes each full batch in its own transaction as
+ * an upsert, which makes a failed import safe to run again. Rollups and the read side are not
+ * updated; this is for loading reconciliation copies and repairing rows, not for taking orders.
+ */
+@Slf4j
+@Component
+public class OrderCsvImporter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final ReconciliationProperties properties;
+    private final ExecutorService importExecutor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public OrderCsvImporter(@Qualifier("fdsOrderDb") DataSource dataSource,
+                            @Qualifier("fdsOrderDbTransactionManager") PlatformTransactionManager transactionManager,
+                            ShardRouter shardRouter, ReconciliationProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.importExecutor = Executors.newFixedThreadPool(properties.getImportThreads(), r -> {
+            Thread thread = new Thread(r, "order-csv-import-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Spools {@code upload} to disk and queues its import. The upload is read to the end before
+     * this returns.
+     */
+    public ImportJobResponse startImport(ReconciliationTable table, InputStream upload, boolean gzip) {
+        evictFinishedJobs();
+        Path spoolFile = null;
+        try {
+            spoolFile = properties.getSpoolDirectory() == null
+                    ? Files.createTempFile("order-import-", ".csv")
+                    : Files.createTempFile(Paths.get(properties.getSpoolDirectory()), "order-import-", ".csv");
+            long bytes = Files.copy(upload, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+            ImportJob job = new ImportJob(UUID.randomUUID().toString(), table, spoolFile, gzip, bytes);
+            jobs.put(job.jobId, job);
+            importExecutor.execute(() -> run(job));
+            log.info("Queued {} import {} of {} bytes", table, job.jobId, bytes);
+            return job.toResponse();
+        } catch (IOException e) {
+            deleteQuietly(spoolFile);
+            log.error("Error while receiving {} import: {}", table, e.getMessage());
+            throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while receiving import file");
+        }
+    }
+
+    public ImportJobResponse getJob(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ServiceException(HttpStatus.NOT_FOUND, "Import job not found with id: " + jobId);
+        }
+        return job.toResponse();
+    }
+
+    private void run(ImportJob job) {
+        job.status = ImportJob.Status.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        List<String> statements = job.table.upsertSql();
+        List<String> columns = job.table.getColumns();
+        int batchSize = properties.getBatchSize();
+        Map<Integer, List<Object[][]>> batches = new HashMap<>();
+        try (InputStream raw = new CountingInputStream(new BufferedInputStream(Files.newInputStream(job.spoolFile), 64 * 1024), job);
+             InputStream content = job.gzip ? new GZIPInputStream(raw, 64 * 1024) : raw;
+             CSVReader reader = new CSVReader(new InputStreamReader(content, StandardCharsets.UTF_8))) {
+            int[] positions = columnPositions(reader.readNext(), columns);
+            int routingIndex = columns.indexOf(job.table.getRoutingColumn());
+            String[] line;
+            while ((line = reader.readNextSilently()) != null) {
+                job.rowsRead.incrementAndGet();
+                Object[] row = toRow(line, positions);
+                Integer shard = row == null ? null : shardFor(job.table, (String) row[routingIndex]);
+                Object[][] arguments = shard == null ? null : upsertArguments(job.table, row);
+                if (arguments == null) {
+                    job.rowsRejected.incrementAndGet();
+                    continue;
+                }
+                List<Object[][]> batch = batches.computeIfAbsent(shard, ignored -> new ArrayList<>(batchSize));
+                batch.add(arguments);
+                if (batch.size() >= batchSize) {
+                    writeBatch(job, shard, statements, batch);
+                }
+            }
+            for (Map.Entry<Integer, List<Object[][]>> entry : batches.entrySet()) {
+                writeBatch(job, entry.getKey(), statements, entry.getValue());
+            }
+            job.status = ImportJob.Status.COMPLETED;
+            log.info("Import {} of {} finished: {} rows written, {} rejected", job.jobId, job.table, job.rowsWritten.get(), job.rowsRejected.get());
+        } catch (Exception e) {
+            job.error = e.getMessage();
+            job.status = ImportJob.Status.FAILED;
+            log.error("Import {} of {} failed after {} rows: {}", job.jobId, job.table, job.rowsWritten.get(), e.getMessage());
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            deleteQuietly(job.spoolFile);
+        }
+    }
+
+    private void writeBatch(ImportJob job, int shard, List<String> statements, List<Object[][]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> {
+            for (int statement = 0; statement < statements.size(); statement++) {
+                List<Object[]> arguments = new ArrayList<>(batch.size());
+                for (Object[][] row : batch) {
+                    if (row[statement] != null) {
+                        arguments.add(row[statement]);
+                    }
+                }
+                if (!arguments.isEmpty()) {
+                    jdbcTemplate.batchUpdate(statements.get(statement), arguments);
+                }
+            }
+            return null;
+        }));
+        job.rowsWritten.addAndGet(batch.size());
+        batch.clear();
+    }
+
+    // Null for rows the table cannot load, such as unknown state names
+    private Object[][] upsertArguments(ReconciliationTable table, Object[] row) {
+        try {
+            return table.upsertArguments(row);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Null when the routing column is missing or does not map to a configured shard
+    private Integer shardFor(ReconciliationTable table, String routingValue) {
+        if (routingValue == null) {
+            return null;
+        }
+        try {
+            long key = Long.parseLong(routingValue);
+            return table == ReconciliationTable.ORDERS ? shardRouter.shardForRestaurant(key) : shardRouter.shardForOrder(key);
+        } catch (NumberFormatException | ServiceException | RejectedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Maps each expected column to its position in the file, so files with reordered columns
+     * still load. Every expected column must be present.
+     */
+    private int[] columnPositions(String[] header, List<String> columns) {
+        if (header == null) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "Import file is empty");
+        }
+        List<String> headerColumns = Arrays.asList(header);
+        int[] positions = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            positions[i] = headerColumns.indexOf(columns.get(i));
+            if (positions[i] < 0) {
+                throw new ServiceException(HttpStatus.BAD_REQUEST, "Import file has no column " + columns.get(i));
+            }
+        }
+        return positions;
+    }
+
+    // Empty cells load as NULL; rows with too few cells are rejected
+    private Object[] toRow(String[] line, int[] positions) {
+        Object[] row = new Object[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] >= line.length) {
+                return null;
+            }
+            String value = line[positions[i]];
+            row[i] = value.isEmpty() ? null : value;
+        }
+        return row;
+    }
+
+    private void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getJobRetention());
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete import spool file {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    // Counts compressed bytes for progress, since the row count of a file is unknown up front
+    private static final class CountingInputStream extends FilterInputStream {
+        private final ImportJob job;
+
+        private CountingInputStream(InputStream in, ImportJob job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                job.bytesRead.incrementAndGet();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                job.bytesRead.addAndGet(count);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.scalableservices.orderservice.reconciliation;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.reconciliation")
+public class ReconciliationProperties {
+
+    // Integer.MIN_VALUE makes MySQL Connector/J stream rows one at a time; with useCursorFetch=true
+    // on the jdbc url a positive value fetches that many rows per round trip from a server cursor
+    private int fetchSize = Integer.MIN_VALUE;
+
+    // Rows per JDBC batch and per transaction on import
+    private int batchSize = 1000;
+
+    // Imports running at once; further uploads queue
+    private int importThreads = 1;
+
+    // Finished import jobs are forgotten after this long
+    private Duration jobRetention = Duration.ofHours(24);
+
+    // Uploads are spooled here before they are imported; defaults to java.io.tmpdir
+    private String spoolDirectory;
+}
@@ -0,0 +1,120 @@
+package com.scalableservices.orderservice.reconciliation;
+
+import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Tables that can be dumped and loaded as CSV, with the column order used in the files.
+ * Orders are selected by their created_at; logs are those of the selected orders.
+ */
+public enum ReconciliationTable {
+    ORDERS("orders", "restaurant_id",
+            "id", "customer_id", "restaurant_id", "order_status", "order_details", "total_amount",
+            "is_deleted", "is_archived", "created_at", "updated_at", "customer_address") {
+        @Override
+        String exportSql() {
+            return "SELECT " + columnList("o.") + " FROM orders o WHERE o.created_at >= ? AND o.created_at < ? ORDER BY o.created_at, o.id";
+        }
+
+        @Override
+        List<String> upsertSql() {
+            return Collections.singletonList(upsert("orders", getColumns()));
+        }
+
+        @Override
+        Object[][] upsertArguments(Object[] row) {
+            return new Object[][]{row};
+        }
+    },
+    ORDER_LOGS("order_logs", "order_id",
+            "id", "order_id", "order_status", "remarks", "entered_by", "entered_by_id",
+            "is_deleted", "is_archived", "created_at") {
+        // order_log_entries keeps states and user types as codes and remarks in order_log_remarks; files keep names and remarks inline
+        @Override
+        String exportSql() {
+            return "SELECT l.id, l.order_id, " + codeToName("l.order_status", OrderStates.values(), OrderStates::getCode)
+                    + ", r.remarks, " + codeToName("l.entered_by", UserTypes.values(), UserTypes::getCode)
+                    + ", l.entered_by_id, l.is_deleted, l.is_archived, l.created_at"
+                    + " FROM order_log_entries l JOIN orders o ON o.id = l.order_id"
+                    + " LEFT JOIN order_log_remarks r ON r.order_log_id = l.id"
+                    + " WHERE o.created_at >= ? AND o.created_at < ?";
+        }
+
+        @Override
+        List<String> upsertSql() {
+            return Arrays.asList(
+                    upsert("order_log_entries", Arrays.asList("id", "order_id", "order_status", "entered_by", "entered_by_id",
+                            "is_deleted", "is_archived", "created_at")),
+                    upsert("order_log_remarks", Arrays.asList("order_log_id", "created_at", "remarks")));
+        }
+
+        @Override
+        Object[][] upsertArguments(Object[] row) {
+            if (row[2] == null || row[4] == null || row[8] == null) {
+                throw new IllegalArgumentException("order_status, entered_by and created_at are required for order logs");
+            }
+            Object[] log = {row[0], row[1], OrderStates.valueOf((String) row[2]).getCode(), UserTypes.valueOf((String) row[4]).getCode(),
+                    row[5], row[6], row[7], row[8]};
+            Object[] remarks = row[3] == null ? null : new Object[]{row[0], row[8], row[3]};
+            return new Object[][]{log, remarks};
+        }
+    };
+
+    private final String tableName;
+    // Column that decides which shard a row is written to
+    private final String routingColumn;
+    private final List<String> columns;
+
+    ReconciliationTable(String tableName, String routingColumn, String... columns) {
+        this.tableName = tableName;
+        this.routingColumn = routingColumn;
+        this.columns = Arrays.asList(columns);
+    }
+
+    abstract String exportSql();
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    String getRoutingColumn() {
+        return routingColumn;
+    }
+
+    String columnList(String alias) {
+        return columns.stream().map(column -> alias + column).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Statements that write one imported row, run together in the import transaction. Each
+     * overwrites a row with the same key, so a failed or repeated import can simply be run again.
+     */
+    abstract List<String> upsertSql();
+
+    /**
+     * Arguments for each of the {@link #upsertSql()} statements, or null where a statement has
+     * nothing to write for the row. Throws IllegalArgumentException for rows that cannot be loaded.
+     */
+    abstract Object[][] upsertArguments(Object[] row);
+
+    private static String upsert(String tableName, List<String> columns) {
+        String placeholders = columns.stream().map(column -> "?").collect(Collectors.joining(", "));
+        String updates = columns.stream().filter(column -> !column.equals("id"))
+                .map(column -> column + " = VALUES(" + column + ")").collect(Collectors.joining(", "));
+        return "INSERT INTO " + tableName + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ") ON DUPLICATE KEY UPDATE " + updates;
+    }
+
+    private static <E extends Enum<E>> String codeToName(String column, E[] values, ToIntFunction<E> code) {
+        StringBuilder sql = new StringBuilder("CASE ").append(column);
+        for (E value : values) {
+            sql.append(" WHEN ").append(code.applyAsInt(value)).append(" THEN '").append(value.name()).append('\'');
+        }
+        return sql.append(" END").toString();
+    }
+}
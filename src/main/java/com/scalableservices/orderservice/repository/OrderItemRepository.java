@@ -0,0 +1,22 @@
+package com.scalableservices.orderservice.repository;
+
+import com.scalableservices.orderservice.dto.order.MenuItemOrder;
+import com.scalableservices.orderservice.dto.order.MenuItemSales;
+import com.scalableservices.orderservice.model.OrderItem;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+    @Query("SELECT new com.scalableservices.orderservice.dto.order.MenuItemOrder(o.id, o.orderStatus, i.quantity, o.createdAt) FROM OrderItem i JOIN i.order o WHERE i.menuId = :menuId AND i.createdAt >= :since AND i.restaurantId = :restaurantId AND o.orderStatus IN :orderStatuses order by o.createdAt, o.id")
+    List<MenuItemOrder> findOrdersWithMenuItem(Long restaurantId, Long menuId, Collection<OrderStates> orderStatuses, LocalDateTime since);
+    @Query("SELECT new com.scalableservices.orderservice.dto.order.MenuItemSales(i.menuId, MAX(i.menuName), SUM(i.quantity), COUNT(DISTINCT i.order.id), SUM(i.totalPrice)) FROM OrderItem i WHERE i.restaurantId = :restaurantId AND i.createdAt >= :from AND i.createdAt < :to GROUP BY i.menuId order by SUM(i.quantity) desc")
+    List<MenuItemSales> findTopItems(Long restaurantId, LocalDateTime from, LocalDateTime to, Pageable pageable);
+}
@@ -1,10 +1,16 @@
 package com.scalableservices.orderservice.repository;
 
+import com.scalableservices.orderservice.dto.order.OrderStateEntry;
+import com.scalableservices.orderservice.dto.order.OrderSummary;
 import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,4 +18,12 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     public List<Order> findByRestaurantIdAndIsDeletedFalse(Long restaurantId);
     @Query("SELECT o FROM Order o inner join OrderDeliveryAgent oda on o.id = oda.order.id WHERE oda.deliveryAgentId = :deliveryAgentId AND o.restaurantId = :restaurantId AND o.orderStatus = 'READY' order by o.id")
     List<Order> getReadyForDeliveryOrders(Long deliveryAgentId, Long restaurantId);
+    @Query("SELECT new com.scalableservices.orderservice.dto.order.OrderSummary(o.id, o.restaurantId, o.orderStatus, o.totalAmount, o.createdAt) FROM Order o WHERE o.customerId = :customerId AND o.isDeleted = false order by o.createdAt desc, o.id desc")
+    List<OrderSummary> findCustomerOrderSummaries(Long customerId, Pageable pageable);
+    @Query("SELECT new com.scalableservices.orderservice.dto.order.OrderSummary(o.id, o.restaurantId, o.orderStatus, o.totalAmount, o.createdAt) FROM Order o WHERE o.customerId = :customerId AND o.isDeleted = false AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) order by o.createdAt desc, o.id desc")
+    List<OrderSummary> findCustomerOrderSummariesBefore(Long customerId, LocalDateTime createdAt, Long id, Pageable pageable);
+    @Query("SELECT new com.scalableservices.orderservice.dto.order.OrderStateEntry(o.id, o.restaurantId, o.orderStatus, o.updatedAt) FROM Order o WHERE o.orderStatus = :orderStatus AND o.isDeleted = false AND o.id > :afterId order by o.id")
+    List<OrderStateEntry> findOrdersInStateAfter(OrderStates orderStatus, Long afterId, Pageable pageable);
+    @Query("SELECT new com.scalableservices.orderservice.dto.order.OrderStateEntry(o.id, o.restaurantId, o.orderStatus, o.updatedAt) FROM Order o WHERE o.id IN :ids")
+    List<OrderStateEntry> findStateEntries(Collection<Long> ids);
 }
@@ -0,0 +1,41 @@
+package com.scalableservices.orderservice.repository;
+
+import com.scalableservices.orderservice.model.RestaurantOrderRollup;
+import com.scalableservices.orderservice.model.RestaurantOrderRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RestaurantOrderRollupRepository extends JpaRepository<RestaurantOrderRollup, RestaurantOrderRollupId> {
+    List<RestaurantOrderRollup> findByRestaurantIdAndBusinessDate(Long restaurantId, LocalDate businessDate);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO restaurant_order_rollups (restaurant_id, business_date, order_status, order_count, total_amount) " +
+            "VALUES (:restaurantId, :businessDate, :orderStatus, :countDelta, :amountDelta) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), total_amount = total_amount + VALUES(total_amount)", nativeQuery = true)
+    int addDelta(Long restaurantId, LocalDate businessDate, String orderStatus, long countDelta, BigDecimal amountDelta);
+
+    // Zeroes the day's rows of every restaurant with an order in the id range, ahead of recountDay
+    @Modifying
+    @Query(value = "UPDATE restaurant_order_rollups r " +
+            "JOIN (SELECT DISTINCT restaurant_id FROM orders WHERE id >= :fromId AND id < :toId) o ON o.restaurant_id = r.restaurant_id " +
+            "SET r.order_count = 0, r.total_amount = 0 WHERE r.business_date = :businessDate", nativeQuery = true)
+    int resetDay(LocalDate businessDate, long fromId, long toId);
+
+    @Modifying
+    @Query(value = "INSERT INTO restaurant_order_rollups (restaurant_id, business_date, order_status, order_count, total_amount) " +
+            "SELECT restaurant_id, :businessDate, order_status, COUNT(*), SUM(total_amount) FROM orders " +
+            "WHERE id >= :fromId AND id < :toId AND created_at >= :dayStart AND created_at < :dayEnd " +
+            "GROUP BY restaurant_id, order_status " +
+            "ON DUPLICATE KEY UPDATE order_count = VALUES(order_count), total_amount = VALUES(total_amount)", nativeQuery = true)
+    int recountDay(LocalDate businessDate, long fromId, long toId, Timestamp dayStart, Timestamp dayEnd);
+}
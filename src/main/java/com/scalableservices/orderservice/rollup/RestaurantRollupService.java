@@ -0,0 +1,233 @@
+package com.scalableservices.orderservice.rollup;
+
+import com.scalableservices.orderservice.dto.order.RestaurantRollupResponse;
+import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.idgen.TimeOrderedIdGenerator;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.model.RestaurantOrderRollup;
+import com.scalableservices.orderservice.repository.RestaurantOrderRollupRepository;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps per restaurant, per day order counts and totals by state without scanning orders.
+ * <p>
+ * createOrder and every transition add to striped in-memory counters; a scheduled flush
+ * moves the accumulated deltas into restaurant_order_rollups with additive upserts, so
+ * several instances can flush into the same rows. Reads combine the stored rows with this
+ * instance's unflushed deltas, which costs one primary key range read of at most one row
+ * per state.
+ * <p>
+ * Deltas lost with an instance that stopped without flushing, and orders written around the
+ * counters such as CSV imports, are corrected by a scheduled reconcile, which recounts the
+ * last {@code order.rollup.reconcile-days} closed days from orders and overwrites their rows.
+ * Today and yesterday are left alone: every instance still holds deltas for them, which
+ * would land on top of a recount.
+ */
+@Slf4j
+@Service
+public class RestaurantRollupService {
+
+    private static final OrderStates[] STATES = OrderStates.values();
+
+    @Autowired
+    private RestaurantOrderRollupRepository restaurantOrderRollupRepository;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private TimeOrderedIdGenerator idGenerator;
+    @Autowired
+    @Qualifier("fdsOrderDbTransactionManager")
+    private PlatformTransactionManager transactionManager;
+    @Value("${order.rollup.reconcile-days:7}")
+    private int reconcileDays;
+
+    private final Map<RollupKey, RollupCell> cells = new ConcurrentHashMap<>();
+    // A day's reset and recount commit together, so readers never see it zeroed
+    private TransactionTemplate reconcileTransaction;
+
+    @PostConstruct
+    public void initReconcile() {
+        reconcileTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    public void recordCreated(Order order) {
+        add(order, order.getOrderStatus(), 1, toCents(order.getTotalAmount()));
+    }
+
+    public void recordTransition(Order order, OrderStates fromState, OrderStates toState) {
+        long cents = toCents(order.getTotalAmount());
+        add(order, fromState, -1, -cents);
+        add(order, toState, 1, cents);
+    }
+
+    public RestaurantRollupResponse getRollup(Long restaurantId, LocalDate businessDate) {
+        try {
+            Map<OrderStates, Long> counts = new EnumMap<>(OrderStates.class);
+            Map<OrderStates, BigDecimal> amounts = new EnumMap<>(OrderStates.class);
+            for (OrderStates state : STATES) {
+                counts.put(state, 0L);
+                amounts.put(state, BigDecimal.ZERO.setScale(2));
+            }
+            List<RestaurantOrderRollup> rows = shardRouter.onRestaurantShard(restaurantId,
+                    () -> restaurantOrderRollupRepository.findByRestaurantIdAndBusinessDate(restaurantId, businessDate));
+            for (RestaurantOrderRollup row : rows) {
+                counts.merge(row.getOrderStatus(), row.getOrderCount(), Long::sum);
+                amounts.merge(row.getOrderStatus(), row.getTotalAmount(), BigDecimal::add);
+            }
+            RollupCell pending = cells.get(new RollupKey(restaurantId, businessDate));
+            if (pending != null) {
+                for (OrderStates state : STATES) {
+                    counts.merge(state, pending.counts[state.ordinal()].sum(), Long::sum);
+                    amounts.merge(state, BigDecimal.valueOf(pending.amountCents[state.ordinal()].sum(), 2), BigDecimal::add);
+                }
+            }
+            long totalOrders = counts.values().stream().mapToLong(Long::longValue).sum();
+            BigDecimal totalRevenue = amounts.entrySet().stream()
+                    .filter(entry -> entry.getKey() != OrderStates.CANCELLED)
+                    .map(Map.Entry::getValue)
+                    .reduce(BigDecimal.ZERO.setScale(2), BigDecimal::add);
+            return RestaurantRollupResponse.builder()
+                    .restaurantId(restaurantId)
+                    .businessDate(businessDate)
+                    .ordersByStatus(counts)
+                    .amountByStatus(amounts)
+                    .totalOrders(totalOrders)
+                    .totalRevenue(totalRevenue)
+                    .build();
+        } catch (ServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error while reading rollup for restaurant {}: {}", restaurantId, e.getMessage());
+            throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while fetching restaurant rollup");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.rollup.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        LocalDate retainFrom = LocalDate.now().minusDays(1);
+        for (Map.Entry<RollupKey, RollupCell> entry : cells.entrySet()) {
+            RollupKey key = entry.getKey();
+            RollupCell cell = entry.getValue();
+            if (!key.getBusinessDate().isBefore(retainFrom)) {
+                flushCell(key, cell);
+                continue;
+            }
+            // Older days rarely change, so their cell is dropped. Writers only add to it inside
+            // compute, so once it is out of the map nothing can reach it and one drain takes all.
+            if (cells.remove(key, cell) && !flushCell(key, cell)) {
+                cells.merge(key, cell, (current, evicted) -> {
+                    current.addAll(evicted);
+                    return current;
+                });
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${order.rollup.reconcile-initial-delay-ms:60000}",
+            fixedDelayString = "${order.rollup.reconcile-interval-ms:3600000}")
+    public synchronized void reconcile() {
+        // This instance's deltas for the recounted days go in first, not on top of the recount
+        flush();
+        LocalDate lastClosedDay = LocalDate.now().minusDays(2);
+        for (int day = 0; day < reconcileDays; day++) {
+            LocalDate businessDate = lastClosedDay.minusDays(day);
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                int currentShard = shard;
+                try {
+                    shardRouter.onShard(shard, () -> reconcileTransaction.execute(status -> reconcileDay(businessDate)));
+                } catch (Exception e) {
+                    log.warn("Rollup reconcile of {} failed on shard {}: {}", businessDate, currentShard, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private boolean flushCell(RollupKey key, RollupCell cell) {
+        boolean flushed = true;
+        for (OrderStates state : STATES) {
+            long countDelta = cell.counts[state.ordinal()].sumThenReset();
+            long centsDelta = cell.amountCents[state.ordinal()].sumThenReset();
+            if (countDelta == 0 && centsDelta == 0) {
+                continue;
+            }
+            try {
+                shardRouter.onRestaurantShard(key.getRestaurantId(), () -> restaurantOrderRollupRepository.addDelta(
+                        key.getRestaurantId(), key.getBusinessDate(), state.name(), countDelta, BigDecimal.valueOf(centsDelta, 2)));
+            } catch (Exception e) {
+                // Put the delta back so the next flush retries it
+                cell.add(state, countDelta, centsDelta);
+                flushed = false;
+                log.error("Error while flushing rollup for restaurant {} on {}: {}", key.getRestaurantId(), key.getBusinessDate(), e.getMessage());
+            }
+        }
+        return flushed;
+    }
+
+    private int reconcileDay(LocalDate businessDate) {
+        LocalDateTime dayStart = businessDate.atStartOfDay();
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+        // Ids are time ordered, so the day is a primary key range; the margin covers orders whose
+        // id was allocated a little after createdAt, and created_at decides the day
+        long margin = TimeUnit.MINUTES.toMillis(1);
+        long fromId = idGenerator.firstIdAt(epochMillis(dayStart) - margin);
+        long toId = idGenerator.firstIdAt(epochMillis(dayEnd) + margin);
+        restaurantOrderRollupRepository.resetDay(businessDate, fromId, toId);
+        return restaurantOrderRollupRepository.recountDay(businessDate, fromId, toId, Timestamp.valueOf(dayStart), Timestamp.valueOf(dayEnd));
+    }
+
+    private void add(Order order, OrderStates state, long count, long cents) {
+        LocalDate businessDate = order.getCreatedAt() == null ? LocalDate.now() : order.getCreatedAt().toLocalDate();
+        RollupKey key = new RollupKey(order.getRestaurantId(), businessDate);
+        if (businessDate.equals(LocalDate.now())) {
+            // Today's cell is never evicted, so it takes the uncontended striped path
+            cells.computeIfAbsent(key, ignored -> new RollupCell()).add(state, count, cents);
+            return;
+        }
+        // flush may evict older days; adding under the map's lock keeps the write out of an evicted cell
+        cells.compute(key, (ignored, cell) -> {
+            RollupCell target = cell == null ? new RollupCell() : cell;
+            target.add(state, count, cents);
+            return target;
+        });
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,33 @@
+package com.scalableservices.orderservice.rollup;
+
+import com.scalableservices.orderservice.statemachine.OrderStates;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Unflushed deltas for one restaurant and day. Amounts are kept in cents so they can be
+ * summed with striped {@link LongAdder}s and turned back into an exact BigDecimal at flush.
+ */
+class RollupCell {
+    final LongAdder[] counts = new LongAdder[OrderStates.values().length];
+    final LongAdder[] amountCents = new LongAdder[OrderStates.values().length];
+
+    RollupCell() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+            amountCents[i] = new LongAdder();
+        }
+    }
+
+    void add(OrderStates state, long count, long cents) {
+        counts[state.ordinal()].add(count);
+        amountCents[state.ordinal()].add(cents);
+    }
+
+    void addAll(RollupCell other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i].add(other.counts[i].sumThenReset());
+            amountCents[i].add(other.amountCents[i].sumThenReset());
+        }
+    }
+}
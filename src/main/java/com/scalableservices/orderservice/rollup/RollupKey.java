@@ -0,0 +1,11 @@
+package com.scalableservices.orderservice.rollup;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+@Value
+class RollupKey {
+    Long restaurantId;
+    LocalDate businessDate;
+}
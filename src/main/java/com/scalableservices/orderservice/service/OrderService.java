@@ -1,31 +1,73 @@
 package com.scalableservices.orderservice.service;
 
+import com.scalableservices.orderservice.admission.RestaurantAdmissionControl;
 import com.scalableservices.orderservice.dto.order.*;
 import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.events.OrderEventBus;
+import com.scalableservices.orderservice.exception.RejectedException;
+import com.scalableservices.orderservice.exception.Rejection;
 import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.feed.OrderChangeRecorder;
+import com.scalableservices.orderservice.groupcommit.OrderGroupCommitter;
+import com.scalableservices.orderservice.jfr.PlaceOrderEvent;
+import com.scalableservices.orderservice.journal.DegradedOrderIntake;
 import com.scalableservices.orderservice.model.Order;
 import com.scalableservices.orderservice.model.OrderDeliveryAgent;
 import com.scalableservices.orderservice.model.OrderLog;
+import com.scalableservices.orderservice.orderitems.OrderItemService;
+import com.scalableservices.orderservice.partitioning.LegacyOrderLogWriter;
+import com.scalableservices.orderservice.polling.StageDurationLearner;
 import com.scalableservices.orderservice.repository.OrderDeliveryAgentRepository;
 import com.scalableservices.orderservice.repository.OrderLogRepository;
 import com.scalableservices.orderservice.repository.OrderRepository;
+import com.scalableservices.orderservice.rollup.RestaurantRollupService;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.singleflight.SingleFlight;
+import com.scalableservices.orderservice.sla.OrderSlaScheduler;
 import com.scalableservices.orderservice.statemachine.OrderEvents;
 import com.scalableservices.orderservice.statemachine.OrderStates;
 import com.scalableservices.orderservice.statemachine.ProcessOrderEvent;
 import com.scalableservices.orderservice.utils.CommonOperations;
+import com.scalableservices.orderservice.utils.DatabaseFailures;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class OrderService {
 
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 20;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    public static final int MAX_STATUS_BATCH_SIZE = 50;
+    // entered_by_id of log rows written by the service itself
+    private static final Long SYSTEM_USER_ID = 0L;
+    private static final Comparator<OrderSummary> NEWEST_FIRST = Comparator
+            .comparing(OrderSummary::getCreatedAt).thenComparing(OrderSummary::getOrderId).reversed();
+
     @Autowired
     private OrderRepository orderRepository;
     @Autowired
@@ -33,31 +75,79 @@ public class OrderService {
     @Autowired
     private OrderLogRepository orderLogRepository;
     @Autowired
+    private LegacyOrderLogWriter legacyOrderLogWriter;
+    @Autowired
     private CommonOperations commonOperations;
     @Autowired
     private ProcessOrderEvent processOrderEvent;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private OrderItemService orderItemService;
+    @Autowired
+    private OrderEventBus orderEventBus;
+    @Autowired
+    private RestaurantRollupService restaurantRollupService;
+    @Autowired
+    private OrderSlaScheduler orderSlaScheduler;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private StageDurationLearner stageDurationLearner;
+    @Autowired
+    private OrderChangeRecorder orderChangeRecorder;
+    @Autowired
+    private RestaurantAdmissionControl restaurantAdmissionControl;
+    @Autowired
+    @Qualifier("fdsOrderDbTransactionManager")
+    private PlatformTransactionManager transactionManager;
+    // Only present with order.journal.enabled
+    @Autowired
+    private ObjectProvider<DegradedOrderIntake> degradedOrderIntake;
+    @Autowired
+    private ObjectProvider<OrderGroupCommitter> orderGroupCommitter;
+
+    // Polling clients ask for the same orders at the same moment; each distinct read runs once at a time
+    private SingleFlight<Long, Order> trackReads;
+    private SingleFlight<Long, List<OrderLogResponse>> orderLogReads;
+    private SingleFlight<Long, List<Order>> deliveryAgentReads;
+    // A transition's order, log and change feed rows commit together
+    private TransactionTemplate transitionTransaction;
+
+    @PostConstruct
+    public void initReadCoalescing() {
+        trackReads = new SingleFlight<>("trackOrder", meterRegistry);
+        orderLogReads = new SingleFlight<>("orderLogs", meterRegistry);
+        deliveryAgentReads = new SingleFlight<>("deliveryAgentOrders", meterRegistry);
+        transitionTransaction = new TransactionTemplate(transactionManager);
+    }
 
 
     public Order getOrderByOrderId(Long orderId) {
-        return orderRepository.findById(orderId).orElseThrow(() -> new ServiceException(HttpStatus.BAD_REQUEST, "Order not found with id: " + orderId));
+        return shardRouter.onOrderShard(orderId, () -> orderRepository.findById(orderId)
+                .orElseThrow(Rejection.ORDER_NOT_FOUND::exception));
     }
 
     public void addOrderDeliveryAgentMapping(Long orderId, Long deliveryAgentId) {
         try {
-            Order order = orderRepository.findById(orderId).orElseThrow(() -> new ServiceException(HttpStatus.BAD_REQUEST, "Order not found with id: " + orderId));
-            OrderDeliveryAgent existingMapping = orderDeliveryAgentRepository.findByDeliveryAgentId(deliveryAgentId);
-            if (existingMapping != null) {
-                existingMapping.setDeliveryAgentId(deliveryAgentId);
-                orderDeliveryAgentRepository.save(existingMapping);
-            } else {
-                orderDeliveryAgentRepository.save(OrderDeliveryAgent.builder()
-                        .order(order)
-                        .deliveryAgentId(deliveryAgentId)
-                        .isDeleted(false)
-                        .isArchived(false)
-                        .createdAt(LocalDateTime.now())
-                        .build());
-            }
+            Order order = shardRouter.onOrderShard(orderId, () -> {
+                Order mappedOrder = orderRepository.findById(orderId).orElseThrow(Rejection.ORDER_NOT_FOUND::exception);
+                OrderDeliveryAgent existingMapping = orderDeliveryAgentRepository.findByDeliveryAgentId(deliveryAgentId);
+                if (existingMapping != null) {
+                    existingMapping.setDeliveryAgentId(deliveryAgentId);
+                    orderDeliveryAgentRepository.save(existingMapping);
+                } else {
+                    orderDeliveryAgentRepository.save(OrderDeliveryAgent.builder()
+                            .order(mappedOrder)
+                            .deliveryAgentId(deliveryAgentId)
+                            .isDeleted(false)
+                            .isArchived(false)
+                            .createdAt(LocalDateTime.now())
+                            .build());
+                }
+                return mappedOrder;
+            });
+            orderEventBus.publishAgentAssigned(order, deliveryAgentId);
         }
         catch (Exception e) {
             throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while adding order delivery agent mapping");
@@ -66,7 +156,7 @@ public class OrderService {
 
     public void updateOrder(Order order) {
         try {
-            orderRepository.save(order);
+            shardRouter.onOrderShard(order.getId(), () -> orderRepository.save(order));
         }
         catch (Exception e) {
             throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while updating order");
@@ -75,7 +165,7 @@ public class OrderService {
 
     public void updateOrderLog(OrderLog orderLog) {
         try {
-            orderLogRepository.save(orderLog);
+            shardRouter.onOrderShard(orderLog.getOrder().getId(), () -> orderLogRepository.save(orderLog));
         }
         catch (Exception e) {
             throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while updating order log");
@@ -83,17 +173,32 @@ public class OrderService {
     }
 
     public List<Order> getReadyForDeliveryOrders(Long deliveryAgentId, Long restaurantId) {
-        List<Order> eligibleOrders = orderRepository.getReadyForDeliveryOrders(deliveryAgentId, restaurantId);
+        List<Order> eligibleOrders = shardRouter.onRestaurantShard(restaurantId,
+                () -> orderRepository.getReadyForDeliveryOrders(deliveryAgentId, restaurantId));
         if(eligibleOrders.isEmpty()) {
-            throw new ServiceException(HttpStatus.BAD_REQUEST, "No orders found ready for delivery agent: " + deliveryAgentId);
+            throw Rejection.NO_ORDERS_READY.exception();
         }
         return eligibleOrders;
     }
 
     public OrderResponse createOrder(OrderRequest orderRequest){
+        PlaceOrderEvent placeOrderEvent = new PlaceOrderEvent();
+        placeOrderEvent.begin();
+        placeOrderEvent.failed = true;
         try{
+            validateOrderRequest(orderRequest);
+            String orderDetails = commonOperations.getOrderMenuDetailsJson(orderRequest.getItems());
+            if (orderDetails == null) {
+                throw new ServiceException(HttpStatus.BAD_REQUEST, "Invalid items");
+            }
+            // After validation, so a malformed request takes none of the restaurant's tokens, and before
+            // anything touches the database, so a throttled restaurant costs no connection
+            if (restaurantAdmissionControl.tryAdmit(orderRequest.getRestaurantId()) > 0) {
+                placeOrderEvent.writePath = "throttled";
+                throw Rejection.RESTAURANT_THROTTLED.exception();
+            }
             Order order = Order.builder()
-                    .orderDetails(commonOperations.getOrderMenuDetailsJson(orderRequest.getItems()))
+                    .orderDetails(orderDetails)
                     .restaurantId(orderRequest.getRestaurantId())
                     .customerId(orderRequest.getCustomerId())
                     .orderStatus(OrderStates.PLACED)
@@ -104,25 +209,193 @@ public class OrderService {
                     .createdAt(LocalDateTime.now())
                     .updatedAt(LocalDateTime.now())
                     .build();
-            orderRepository.save(order);
-            return OrderResponse.builder().orderId(order.getId()).orderStatus(order.getOrderStatus().name()).build();
-        }catch (ServiceException e){
+            DegradedOrderIntake intake = degradedOrderIntake.getIfAvailable();
+            if (intake != null && intake.isDegraded()) {
+                placeOrderEvent.writePath = "journal";
+                return placeOrderEvent.placed(intake.accept(order, null));
+            }
+            try {
+                OrderGroupCommitter groupCommitter = orderGroupCommitter.getIfAvailable();
+                placeOrderEvent.writePath = groupCommitter != null ? "group-commit" : "direct";
+                if (groupCommitter != null) {
+                    groupCommitter.save(order, orderRequest.getItems());
+                } else {
+                    shardRouter.onRestaurantShard(order.getRestaurantId(), () -> {
+                        orderItemService.saveOrderWithItems(order, orderRequest.getItems());
+                        return null;
+                    });
+                }
+            } catch (DataAccessException | TransactionException e) {
+                // An order the database rejects fails on its own; only an unavailable database is worth journaling through
+                if (intake == null || !DatabaseFailures.isUnavailable(e)) {
+                    throw e;
+                }
+                placeOrderEvent.writePath = "journal";
+                return placeOrderEvent.placed(intake.accept(order, e));
+            }
+            restaurantRollupService.recordCreated(order);
+            orderSlaScheduler.onStateEntered(order.getId(), order.getOrderStatus(), order.getCreatedAt());
+            orderEventBus.publishCreated(order);
+            return placeOrderEvent.placed(OrderResponse.builder().orderId(order.getId()).orderStatus(order.getOrderStatus().name()).build());
+        }catch (ServiceException | RejectedException e){
             throw e;
         }
         catch (Exception e) {
             throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while creating order");
+        } finally {
+            placeOrderEvent.end();
+            if (placeOrderEvent.shouldCommit()) {
+                placeOrderEvent.restaurantId = orderRequest.getRestaurantId() == null ? 0 : orderRequest.getRestaurantId();
+                placeOrderEvent.items = orderRequest.getItems() == null ? 0 : orderRequest.getItems().size();
+                placeOrderEvent.commit();
+            }
         }
     }
 
+    // The columns orders requires; the annotations on OrderRequest are not enforced on this path
+    private static void validateOrderRequest(OrderRequest orderRequest) {
+        if (orderRequest.getCustomerId() == null) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "customerId is mandatory");
+        }
+        if (orderRequest.getRestaurantId() == null) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "restaurantId is mandatory");
+        }
+        if (orderRequest.getItems() == null || orderRequest.getItems().isEmpty()) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "items is mandatory");
+        }
+        if (orderRequest.getDeliveryAddress() == null || orderRequest.getDeliveryAddress().trim().isEmpty()) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "deliveryAddress is mandatory");
+        }
+        if (orderRequest.getTotalAmount() == null) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "totalAmount is mandatory");
+        }
+    }
+
+    /**
+     * Current status of each of {@code orderIds}, one IN-list query per shard holding any of
+     * them, run in parallel. Unknown ids are listed in notFound rather than failing the lookup.
+     */
+    public OrderStatusBatchResponse getOrderStatuses(List<Long> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "At least one order id is required");
+        }
+        if (orderIds.size() > MAX_STATUS_BATCH_SIZE) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "At most " + MAX_STATUS_BATCH_SIZE + " order ids can be looked up at once");
+        }
+        try {
+            List<List<Long>> idsByShard = new ArrayList<>();
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                idsByShard.add(new ArrayList<>());
+            }
+            Set<Long> requested = new LinkedHashSet<>();
+            for (Long orderId : orderIds) {
+                if (orderId == null || !requested.add(orderId)) {
+                    continue;
+                }
+                try {
+                    idsByShard.get(shardRouter.shardForOrder(orderId)).add(orderId);
+                } catch (RejectedException e) {
+                    // Shard bits no shard owns; reported as not found below
+                }
+            }
+            List<OrderStateEntry> found = shardRouter.fanOut(shard -> idsByShard.get(shard).isEmpty()
+                    ? Collections.<OrderStateEntry>emptyList() : orderRepository.findStateEntries(idsByShard.get(shard)));
+            return toStatusBatch(requested, found);
+        } catch (ServiceException e) {
+            log.error("Error while fetching statuses of {} orders: {}", orderIds.size(), e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            log.error("Error while fetching statuses of {} orders: {}", orderIds.size(), e.getMessage());
+            throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while fetching order statuses");
+        }
+    }
+
+    /**
+     * Lays {@code found} out in the order of {@code requested} and lists the ids it has no entry
+     * for as not found.
+     */
+    public static OrderStatusBatchResponse toStatusBatch(Collection<Long> requested, List<OrderStateEntry> found) {
+        Map<Long, OrderStateEntry> byId = new HashMap<>();
+        for (OrderStateEntry entry : found) {
+            byId.put(entry.getOrderId(), entry);
+        }
+        List<OrderStateEntry> orders = new ArrayList<>(byId.size());
+        List<Long> notFound = new ArrayList<>();
+        for (Long orderId : requested) {
+            OrderStateEntry entry = byId.get(orderId);
+            if (entry == null) {
+                notFound.add(orderId);
+            } else {
+                orders.add(entry);
+            }
+        }
+        return OrderStatusBatchResponse.builder().orders(orders).notFound(notFound).build();
+    }
+
     public Order trackOrder(Long orderId) {
-        return orderRepository.findById(orderId).orElseThrow(() -> new ServiceException(HttpStatus.BAD_REQUEST, "Order not found with id: " + orderId));
+        return trackReads.load(orderId, () -> getOrderByOrderId(orderId));
+    }
+
+    /**
+     * A page of the customer's orders, newest first. The cursor is the (created_at, id) of the
+     * last row of the previous page, so each page is a range scan on the customer history index
+     * however deep the customer pages.
+     */
+    public CustomerOrderHistoryResponse getCustomerOrders(Long customerId, String cursor, Integer limit) {
+        try {
+            int pageSize = limit == null ? DEFAULT_HISTORY_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_HISTORY_PAGE_SIZE);
+            // One extra row tells whether another page exists
+            PageRequest page = PageRequest.of(0, pageSize + 1);
+            OrderSummary after = decodeHistoryCursor(cursor);
+            List<OrderSummary> summaries = new ArrayList<>(shardRouter.fanOut(shard -> after == null
+                    ? orderRepository.findCustomerOrderSummaries(customerId, page)
+                    : orderRepository.findCustomerOrderSummariesBefore(customerId, after.getCreatedAt(), after.getOrderId(), page)));
+            summaries.sort(NEWEST_FIRST);
+            String nextCursor = null;
+            if (summaries.size() > pageSize) {
+                summaries = summaries.subList(0, pageSize);
+                nextCursor = encodeHistoryCursor(summaries.get(pageSize - 1));
+            }
+            return CustomerOrderHistoryResponse.builder().orders(summaries).nextCursor(nextCursor).build();
+        } catch (ServiceException e) {
+            log.error("Error while fetching orders for customer {}: {}", customerId, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            log.error("Error while fetching orders for customer {}: {}", customerId, e.getMessage());
+            throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while fetching customer orders");
+        }
+    }
+
+    private String encodeHistoryCursor(OrderSummary last) {
+        String raw = last.getCreatedAt() + "|" + last.getOrderId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private OrderSummary decodeHistoryCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return OrderSummary.builder()
+                    .createdAt(LocalDateTime.parse(raw.substring(0, separator)))
+                    .orderId(Long.parseLong(raw.substring(separator + 1)))
+                    .build();
+        } catch (Exception e) {
+            throw new ServiceException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
     }
 
     public List<OrderLogResponse> getOrderLogs(Long orderId) {
+        return orderLogReads.load(orderId, () -> loadOrderLogs(orderId));
+    }
+
+    private List<OrderLogResponse> loadOrderLogs(Long orderId) {
         try {
-            List<OrderLog> orderLogs = orderLogRepository.findByOrderId(orderId);
+            List<OrderLog> orderLogs = shardRouter.onOrderShard(orderId, () -> orderLogRepository.findByOrderId(orderId));
             if (orderLogs.isEmpty()) {
-                throw new ServiceException(HttpStatus.BAD_REQUEST, "No logs found for order: " + orderId);
+                throw Rejection.NO_ORDER_LOGS.exception();
             }
             List<OrderLogResponse> orderLogResponses = new ArrayList<>();
 
@@ -136,7 +409,7 @@ public class OrderService {
                         .build());
             }
             return orderLogResponses;
-        }catch (ServiceException e){
+        }catch (ServiceException | RejectedException e){
             throw e;
         }
         catch (Exception e) {
@@ -146,50 +419,9 @@ public class OrderService {
 
     public OrderStatusUpdateResponse updateOrderStatus(Long orderId, OrderStatusUpdateRequest requestPayload, UserTypes userType) {
         try {
-
-            Order order = orderRepository.findById(orderId).orElseThrow(
-                    () -> new ServiceException(HttpStatus.NOT_FOUND, "Order with ID " + orderId + " not found"));
-
-            if(!commonOperations.isEligibleOrderEvent(userType.name(), OrderEvents.valueOf(requestPayload.getOrderStatus().getOrderEvent()))) {
-                log.error("Restaurant owner is not eligible to perform this action");
-                throw new ServiceException(HttpStatus.BAD_REQUEST, "Restaurant owner is not eligible to perform this action");
-            }
-            if(!commonOperations.isOrderEventValid(requestPayload.getOrderStatus().getOrderEvent())) {
-                log.error("Invalid order status: {}", requestPayload.getOrderStatus().getOrderEvent());
-                throw new ServiceException(HttpStatus.BAD_REQUEST, "Invalid order status: " + requestPayload.getOrderStatus().getOrderEvent());
-            }
-            if (order.getOrderStatus() == OrderStates.DELIVERED || order.getOrderStatus() == OrderStates.CANCELLED) {
-                log.error("Order with id {} is {}", orderId, order.getOrderStatus());
-                throw new ServiceException(HttpStatus.BAD_REQUEST, "Order with id " + orderId + " is " + order.getOrderStatus());
-            }
-            OrderEvents orderEvent = OrderEvents.valueOf(requestPayload.getOrderStatus().getOrderEvent());
-            OrderStates orderStates = processOrderEvent.process(order.getId(), orderEvent);
-            if(order.getOrderStatus().ordinal() >= orderStates.ordinal()) {
-                log.error("Order state transition failed for order with id: {}", orderId);
-                throw new ServiceException(HttpStatus.BAD_REQUEST, "Order state transition failed for order with id: " + orderId);
-            }
-            else{
-                order.setOrderStatus(orderStates);
-                order.setUpdatedAt(LocalDateTime.now());
-                orderRepository.save(order);
-                OrderLog orderLog = OrderLog.builder()
-                        .order(order)
-                        .orderSubStatus(orderStates.name())
-                        .remarks(requestPayload.getOrderStatus().getComment())
-                        .enteredBy(userType.name())
-                        .enteredById(requestPayload.getUserId())
-                        .isDeleted(false)
-                        .isArchived(false)
-                        .createdAt(LocalDateTime.now())
-                        .build();
-                orderLogRepository.save(orderLog);
-            }
-            order = getOrderByOrderId(orderId);
-            log.info("Order states changed successfully by owner: {}", requestPayload.getUserId());
-            return OrderStatusUpdateResponse.builder()
-                    .orderId(orderId)
-                    .orderStatus(order.getOrderStatus())
-                    .build();
+            return shardRouter.onOrderShard(orderId, () -> applyOrderEvent(orderId, requestPayload, userType));
+        } catch (RejectedException e) {
+            throw e;
         } catch (ServiceException e) {
             log.error("Error while updating order status: {}", e.getMessage());
             throw e;
@@ -199,32 +431,98 @@ public class OrderService {
         }
     }
 
+    private OrderStatusUpdateResponse applyOrderEvent(Long orderId, OrderStatusUpdateRequest requestPayload, UserTypes userType) {
+        // Checked before the order is read, so malformed requests never reach the database
+        OrderEvents orderEvent = requestPayload.getOrderStatus() == null ? null
+                : commonOperations.toOrderEvent(requestPayload.getOrderStatus().getOrderEvent());
+        if (orderEvent == null) {
+            throw Rejection.INVALID_ORDER_EVENT.exception();
+        }
+        if(!commonOperations.isEligibleOrderEvent(userType.name(), orderEvent)) {
+            throw Rejection.ORDER_EVENT_NOT_ALLOWED.exception();
+        }
+        Order order = orderRepository.findById(orderId).orElseThrow(Rejection.ORDER_NOT_FOUND::exception);
+        if (order.getOrderStatus() == OrderStates.DELIVERED || order.getOrderStatus() == OrderStates.CANCELLED) {
+            throw Rejection.ORDER_CLOSED.exception();
+        }
+        OrderStates orderStates = processOrderEvent.process(order.getId(), orderEvent);
+        if(order.getOrderStatus().ordinal() >= orderStates.ordinal()) {
+            throw Rejection.TRANSITION_FAILED.exception();
+        }
+        else{
+            OrderStates previousState = order.getOrderStatus();
+            LocalDateTime previousStateEnteredAt = order.getUpdatedAt();
+            order.setOrderStatus(orderStates);
+            order.setUpdatedAt(LocalDateTime.now());
+            OrderLog orderLog = OrderLog.builder()
+                    .order(order)
+                    .orderSubStatus(orderStates.name())
+                    .remarks(remarksOrNull(requestPayload.getOrderStatus().getComment()))
+                    .enteredBy(userType.name())
+                    .enteredById(requestPayload.getUserId())
+                    .isDeleted(false)
+                    .isArchived(false)
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            Order transitioned = order;
+            transitionTransaction.execute(status -> {
+                orderRepository.save(transitioned);
+                orderLogRepository.save(orderLog);
+                legacyOrderLogWriter.write(orderLog);
+                orderChangeRecorder.recordTransition(transitioned, orderLog);
+                return null;
+            });
+            restaurantRollupService.recordTransition(order, previousState, orderStates);
+            stageDurationLearner.record(order.getRestaurantId(), previousState, previousStateEnteredAt, order.getUpdatedAt());
+            orderSlaScheduler.onStateEntered(order.getId(), orderStates, order.getUpdatedAt());
+            orderEventBus.publishTransition(order, previousState, orderStates, userType,
+                    requestPayload.getUserId(), requestPayload.getOrderStatus().getComment());
+        }
+        order = getOrderByOrderId(orderId);
+        log.info("Order states changed successfully by owner: {}", requestPayload.getUserId());
+        return OrderStatusUpdateResponse.builder()
+                .orderId(orderId)
+                .orderStatus(order.getOrderStatus())
+                .build();
+    }
+
+    // Blank comments are stored as no remarks, which saves a row in order_log_remarks
+    private String remarksOrNull(String comment) {
+        return comment == null || comment.trim().isEmpty() ? null : comment;
+    }
+
+    /**
+     * Cancels the order as the SYSTEM user if it is still in {@code expectedState}. Returns false
+     * when the order has already moved on.
+     */
+    public boolean cancelStalledOrder(Long orderId, OrderStates expectedState, String remarks) {
+        try {
+            return shardRouter.onOrderShard(orderId, () -> {
+                Order order = orderRepository.findById(orderId).orElse(null);
+                if (order == null || order.getOrderStatus() != expectedState) {
+                    return false;
+                }
+                OrderStatusUpdateRequest request = OrderStatusUpdateRequest.builder()
+                        .userId(SYSTEM_USER_ID)
+                        .orderStatus(OrderProcessData.builder().orderEvent(OrderEvents.CANCEL.name()).comment(remarks).build())
+                        .build();
+                applyOrderEvent(orderId, request, UserTypes.SYSTEM);
+                return true;
+            });
+        } catch (ServiceException | RejectedException e) {
+            log.error("Error while cancelling stalled order {}: {}", orderId, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            log.error("Error while cancelling stalled order {}: {}", orderId, e.getMessage());
+            throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred");
+        }
+    }
+
     public OrderDeliveryAgentMappingResponse mapOrderToDeliveryAgent(Long orderId, Long deliveryAgentId) {
         try {
-            Order order = orderRepository.findById(orderId).orElseThrow(() -> new ServiceException(HttpStatus.NOT_FOUND, "Order with ID " + orderId + " not found"));
-            if(order.getOrderStatus().equals(OrderStates.DELIVERED) || order.getOrderStatus().equals(OrderStates.CANCELLED)) {
-                throw new ServiceException(HttpStatus.BAD_REQUEST, "Order with id " + orderId + " is " + order.getOrderStatus());
-            }
-            if(!order.getOrderStatus().equals(OrderStates.READY)) {
-                throw new ServiceException(HttpStatus.BAD_REQUEST, "Order with id " + orderId + " is not ready for delivery");
-            }
-            OrderDeliveryAgent existingMapping = orderDeliveryAgentRepository.findByOrderId(orderId);
-            if (existingMapping != null) {
-                existingMapping.setDeliveryAgentId(deliveryAgentId);
-                orderDeliveryAgentRepository.save(existingMapping);
-            } else {
-                orderDeliveryAgentRepository.save(OrderDeliveryAgent.builder()
-                        .order(order)
-                        .deliveryAgentId(deliveryAgentId)
-                        .isDeleted(false)
-                        .isArchived(false)
-                        .createdAt(LocalDateTime.now())
-                        .build());
-            }
-            return OrderDeliveryAgentMappingResponse.builder()
-                    .orderId(orderId)
-                    .deliveryAgentId(deliveryAgentId)
-                    .build();
+            return shardRouter.onOrderShard(orderId, () -> assignDeliveryAgent(orderId, deliveryAgentId));
+        } catch (RejectedException e) {
+            throw e;
         } catch (ServiceException e) {
             log.error("Error while mapping order to delivery agent: {}", e.getMessage());
             throw e;
@@ -234,17 +532,52 @@ public class OrderService {
         }
     }
 
+    private OrderDeliveryAgentMappingResponse assignDeliveryAgent(Long orderId, Long deliveryAgentId) {
+        Order order = orderRepository.findById(orderId).orElseThrow(Rejection.ORDER_NOT_FOUND::exception);
+        if(order.getOrderStatus().equals(OrderStates.DELIVERED) || order.getOrderStatus().equals(OrderStates.CANCELLED)) {
+            throw Rejection.ORDER_CLOSED.exception();
+        }
+        if(!order.getOrderStatus().equals(OrderStates.READY)) {
+            throw Rejection.NOT_READY_FOR_DELIVERY.exception();
+        }
+        OrderDeliveryAgent existingMapping = orderDeliveryAgentRepository.findByOrderId(orderId);
+        if (existingMapping != null) {
+            existingMapping.setDeliveryAgentId(deliveryAgentId);
+            orderDeliveryAgentRepository.save(existingMapping);
+        } else {
+            orderDeliveryAgentRepository.save(OrderDeliveryAgent.builder()
+                    .order(order)
+                    .deliveryAgentId(deliveryAgentId)
+                    .isDeleted(false)
+                    .isArchived(false)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        }
+        orderEventBus.publishAgentAssigned(order, deliveryAgentId);
+        return OrderDeliveryAgentMappingResponse.builder()
+                .orderId(orderId)
+                .deliveryAgentId(deliveryAgentId)
+                .build();
+    }
+
     public List<Order> getAllOrdersMappedToDeliveryAgent(Long deliveryAgentId) {
+        return deliveryAgentReads.load(deliveryAgentId, () -> loadOrdersMappedToDeliveryAgent(deliveryAgentId));
+    }
+
+    private List<Order> loadOrdersMappedToDeliveryAgent(Long deliveryAgentId) {
         try {
-            List<OrderDeliveryAgent> orderDeliveryAgents = orderDeliveryAgentRepository.findAllByDeliveryAgentId(deliveryAgentId);
+            // An agent picks up from restaurants on any shard, so every shard is asked in parallel
+            List<OrderDeliveryAgent> orderDeliveryAgents = shardRouter.fanOut(shard -> orderDeliveryAgentRepository.findAllByDeliveryAgentId(deliveryAgentId));
             if (orderDeliveryAgents.isEmpty()) {
-                throw new ServiceException(HttpStatus.BAD_REQUEST, "No orders found for delivery agent: " + deliveryAgentId);
+                throw Rejection.NO_DELIVERY_AGENT_ORDERS.exception();
             }
             List<Order> orders = new ArrayList<>();
             for (OrderDeliveryAgent orderDeliveryAgent : orderDeliveryAgents) {
                 orders.add(orderDeliveryAgent.getOrder());
             }
             return orders;
+        } catch (RejectedException e) {
+            throw e;
         } catch (ServiceException e) {
             log.error("Error while fetching orders mapped to delivery agent: {}", e.getMessage());
             throw e;
@@ -0,0 +1,36 @@
+package com.scalableservices.orderservice.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the shard the current thread is working against.
+ * <p>
+ * The value is only read when a connection is borrowed, so it has to be set before a
+ * repository call opens its transaction. Once a transaction is bound to a connection,
+ * changing the shard has no effect until that transaction ends.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T callOn(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
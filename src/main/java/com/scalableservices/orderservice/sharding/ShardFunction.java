@@ -0,0 +1,29 @@
+package com.scalableservices.orderservice.sharding;
+
+/**
+ * Maps a restaurant id onto one of {@code shardCount} shards.
+ */
+public enum ShardFunction {
+    // Plain modulo, handy when restaurant ids are already well distributed
+    MODULO {
+        @Override
+        public int shardFor(long restaurantId, int shardCount) {
+            return (int) Math.floorMod(restaurantId, (long) shardCount);
+        }
+    },
+    // Mixes the id first so that sequential restaurant ids do not pile onto neighbouring shards
+    HASH {
+        @Override
+        public int shardFor(long restaurantId, int shardCount) {
+            long h = restaurantId;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return (int) Math.floorMod(h, (long) shardCount);
+        }
+    };
+
+    public abstract int shardFor(long restaurantId, int shardCount);
+}
@@ -0,0 +1,167 @@
+package com.scalableservices.orderservice.sharding;
+
+import com.scalableservices.orderservice.exception.RejectedException;
+import com.scalableservices.orderservice.exception.Rejection;
+import com.scalableservices.orderservice.exception.ServiceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard an order lives on and runs repository work against it.
+ * <p>
+ * An order, its logs, its delivery agent rows and its state machine row are all placed on
+ * the shard of the order's restaurant. The id generator writes the shard index into the low
+ * {@code shardBits} bits of every id, so anything that only has the order id can route
+ * without asking every shard. With sharding disabled every call runs inline on the single
+ * configured database.
+ */
+@Slf4j
+@Component
+public class ShardRouter {
+
+    private final ShardingProperties properties;
+    private final int shardCount;
+    private final long shardMask;
+    private final ExecutorService fanOutExecutor;
+
+    public ShardRouter(ShardingProperties properties) {
+        this.properties = properties;
+        if (properties.isEnabled()) {
+            int slots = 1 << properties.getShardBits();
+            this.shardCount = properties.getShards().size();
+            if (shardCount == 0 || shardCount > slots) {
+                throw new IllegalStateException("order.sharding.shards must hold between 1 and " + slots + " entries for shard-bits "
+                        + properties.getShardBits() + ", found " + shardCount);
+            }
+            for (Map.Entry<Long, Integer> override : properties.getRestaurantOverrides().entrySet()) {
+                Integer shard = override.getValue();
+                if (shard == null || shard < 0 || shard >= shardCount) {
+                    throw new IllegalStateException("order.sharding.restaurant-overrides pins restaurant " + override.getKey()
+                            + " to shard " + shard + ", but only shards 0 to " + (shardCount - 1) + " are configured");
+                }
+            }
+            this.shardMask = slots - 1;
+            AtomicInteger threadIndex = new AtomicInteger();
+            this.fanOutExecutor = Executors.newFixedThreadPool(properties.getFanOutThreads(), r -> {
+                Thread thread = new Thread(r, "shard-fan-out-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.shardCount = 1;
+            this.shardMask = 0;
+            this.fanOutExecutor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int getShardBits() {
+        return properties.isEnabled() ? properties.getShardBits() : 0;
+    }
+
+    public int shardForRestaurant(Long restaurantId) {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        Integer pinned = properties.getRestaurantOverrides().get(restaurantId);
+        if (pinned != null) {
+            return pinned;
+        }
+        return properties.getFunction().shardFor(restaurantId, shardCount);
+    }
+
+    public int shardForOrder(Long orderId) {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        int shard = (int) (orderId & shardMask);
+        if (shard >= shardCount) {
+            throw Rejection.ORDER_NOT_FOUND.exception();
+        }
+        return shard;
+    }
+
+    public <T> T onRestaurantShard(Long restaurantId, Supplier<T> action) {
+        return onShard(shardForRestaurant(restaurantId), action);
+    }
+
+    public <T> T onOrderShard(Long orderId, Supplier<T> action) {
+        return onShard(shardForOrder(orderId), action);
+    }
+
+    public <T> T onShard(int shard, Supplier<T> action) {
+        if (!properties.isEnabled()) {
+            return action.get();
+        }
+        return ShardContext.callOn(shard, action);
+    }
+
+    /**
+     * Runs the query on every shard in parallel and concatenates the results in shard order.
+     * Callers that need a global ordering sort the merged list themselves.
+     */
+    public <T> List<T> fanOut(IntFunction<List<T>> query) {
+        if (!properties.isEnabled()) {
+            return query.apply(0);
+        }
+        List<Future<List<T>>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            final int target = shard;
+            futures.add(fanOutExecutor.submit(() -> ShardContext.callOn(target, () -> query.apply(target))));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getFanOutTimeoutMs());
+        List<T> merged = new ArrayList<>();
+        try {
+            for (Future<List<T>> future : futures) {
+                merged.addAll(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+            return merged;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServiceException) {
+                throw (ServiceException) e.getCause();
+            }
+            if (e.getCause() instanceof RejectedException) {
+                throw (RejectedException) e.getCause();
+            }
+            log.error("Error while reading from shards: {}", e.getCause().getMessage());
+            throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while reading from shards");
+        } catch (TimeoutException e) {
+            log.error("Timed out after {} ms while reading from shards", properties.getFanOutTimeoutMs());
+            throw new ServiceException(HttpStatus.GATEWAY_TIMEOUT, "Timed out while reading from shards");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Interrupted while reading from shards");
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdownNow();
+        }
+    }
+}
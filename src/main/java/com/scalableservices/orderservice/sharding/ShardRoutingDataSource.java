@@ -0,0 +1,15 @@
+package com.scalableservices.orderservice.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Picks the shard DataSource from {@link ShardContext}. Callers that never set a shard
+ * (Flyway, Hibernate metadata lookups) fall through to shard 0.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
@@ -0,0 +1,45 @@
+package com.scalableservices.orderservice.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    private ShardFunction function = ShardFunction.HASH;
+
+    // Low bits of every order id reserved for the shard index, so at most 2^shardBits shards
+    private int shardBits = 4;
+
+    // Pins individual restaurants to a shard, takes precedence over the shard function
+    private Map<Long, Integer> restaurantOverrides = new HashMap<>();
+
+    private int fanOutThreads = 8;
+
+    private long fanOutTimeoutMs = 5000;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String jdbcUrl;
+        private String username;
+        private String password;
+        private String driver = "com.mysql.cj.jdbc.Driver";
+        private int maximumPoolSize = 10;
+        private int minimumIdle = 1;
+        private long connectionTimeout = 10000;
+        private long idleTimeout = 300000;
+        private long maxLifetime = 1800000;
+    }
+}
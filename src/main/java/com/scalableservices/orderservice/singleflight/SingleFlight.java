@@ -0,0 +1,77 @@
+package com.scalableservices.orderservice.singleflight;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one.
+ * <p>
+ * The first caller for a key runs the loader; callers arriving while it runs wait for and
+ * share its result or exception. Nothing is cached: the key is released before the result is
+ * handed out, so a caller arriving after that starts a fresh load and nobody receives a value
+ * from a load that had already finished when they asked. Values are shared between callers and
+ * must not be modified.
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.leaders = meterRegistry.counter("order.singleflight.calls", "name", name, "role", "leader");
+        this.followers = meterRegistry.counter("order.singleflight.calls", "name", name, "role", "follower");
+        Gauge.builder("order.singleflight.inflight", inFlight, Map::size).tag("name", name).register(meterRegistry);
+        // Share of calls since startup that were answered by another caller's load
+        Gauge.builder("order.singleflight.coalescing.ratio", this, SingleFlight::coalescingRatio).tag("name", name).register(meterRegistry);
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            followers.increment();
+            return await(existing);
+        }
+        leaders.increment();
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, own);
+            own.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, own);
+        own.complete(value);
+        return value;
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Rethrow the leader's exception as is so callers handle it like their own
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private double coalescingRatio() {
+        double followerCount = followers.count();
+        double total = followerCount + leaders.count();
+        return total == 0 ? 0 : followerCount / total;
+    }
+}
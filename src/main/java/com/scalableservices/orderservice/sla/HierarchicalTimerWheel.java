@@ -0,0 +1,175 @@
+package com.scalableservices.orderservice.sla;
+
+import java.util.function.Consumer;
+
+/**
+ * Hashed hierarchical timer wheel in the style of the Linux kernel timers.
+ * <p>
+ * Level 0 has one bucket per tick; each level above covers {@code wheelSize} times the span
+ * of the level below. A timeout lands in the lowest level whose span reaches its deadline and
+ * is cascaded down as the wheel turns, so scheduling and cancelling are O(1) list operations
+ * however many timeouts are pending. Deadlines past the top level are parked in its farthest
+ * bucket and re-placed when they come round.
+ * <p>
+ * Not thread safe: one thread owns the wheel and applies every schedule, cancel and advance.
+ */
+final class HierarchicalTimerWheel<T> {
+
+    static final class Timeout<T> {
+        final long deadlineTick;
+        final T payload;
+        volatile boolean cancelled;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private Bucket<T> bucket;
+
+        Timeout(long deadlineTick, T payload) {
+            this.deadlineTick = deadlineTick;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+        private Timeout<T> tail;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        Timeout<T> detachAll() {
+            Timeout<T> first = head;
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+
+    private final int bits;
+    private final int levels;
+    private final long mask;
+    private final long maxSpan;
+    private final Bucket<T>[][] buckets;
+    private long currentTick;
+    private long pending;
+
+    @SuppressWarnings("unchecked")
+    HierarchicalTimerWheel(int wheelSize, int levels, long startTick) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two");
+        }
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.levels = levels;
+        this.mask = wheelSize - 1;
+        this.maxSpan = bits * levels >= 62 ? Long.MAX_VALUE / 2 : 1L << (bits * levels);
+        this.buckets = new Bucket[levels][wheelSize];
+        for (int level = 0; level < levels; level++) {
+            for (int index = 0; index < wheelSize; index++) {
+                buckets[level][index] = new Bucket<>();
+            }
+        }
+        this.currentTick = startTick;
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    long pending() {
+        return pending;
+    }
+
+    void schedule(Timeout<T> timeout) {
+        if (timeout.cancelled) {
+            return;
+        }
+        place(timeout, currentTick + 1);
+        pending++;
+    }
+
+    void cancel(Timeout<T> timeout) {
+        timeout.cancelled = true;
+        if (timeout.bucket != null) {
+            timeout.bucket.remove(timeout);
+            pending--;
+        }
+    }
+
+    /**
+     * Turns the wheel one tick at a time up to {@code targetTick}, handing every due timeout
+     * to {@code expired}.
+     */
+    void advanceTo(long targetTick, Consumer<T> expired) {
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = levels - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    replaceAll(buckets[level][(int) ((currentTick >>> (bits * level)) & mask)].detachAll());
+                }
+            }
+            Timeout<T> timeout = buckets[0][(int) (currentTick & mask)].detachAll();
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.bucket = null;
+                timeout.prev = null;
+                timeout.next = null;
+                if (timeout.deadlineTick <= currentTick) {
+                    pending--;
+                    if (!timeout.cancelled) {
+                        expired.accept(timeout.payload);
+                    }
+                } else {
+                    place(timeout, currentTick + 1);
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private void replaceAll(Timeout<T> timeout) {
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+            // Cascading runs before this tick's level 0 bucket, so anything due now still fires now
+            place(timeout, currentTick);
+            timeout = next;
+        }
+    }
+
+    private void place(Timeout<T> timeout, long earliestTick) {
+        // Overdue timeouts fire at the earliest tick still to be processed; far ones wait in the top level's last bucket
+        long placement = Math.min(Math.max(timeout.deadlineTick, earliestTick), currentTick + maxSpan - 1);
+        long delta = placement - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= (1L << (bits * (level + 1)))) {
+            level++;
+        }
+        buckets[level][(int) ((placement >>> (bits * level)) & mask)].add(timeout);
+    }
+}
@@ -0,0 +1,320 @@
+package com.scalableservices.orderservice.sla;
+
+import com.scalableservices.orderservice.dto.order.OrderStateEntry;
+import com.scalableservices.orderservice.events.OrderEventBus;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.repository.OrderRepository;
+import com.scalableservices.orderservice.service.OrderService;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tracks a deadline for every order sitting in a state that has an SLA rule.
+ * <p>
+ * Entering a state replaces whatever deadline the order had; entering a state without a rule
+ * just drops it. Requests are queued and applied by a single wheel thread that owns a
+ * {@link HierarchicalTimerWheel}, so callers never block and scheduling stays O(1) with
+ * millions of orders pending. Expired deadlines are handed to a small executor that re-reads
+ * the order and only acts if it is still in the state the deadline was set for. Deadlines live
+ * in memory only and are reloaded from the orders table on startup, by every replica, so an
+ * escalation is first claimed with a row in order_sla_escalations and only published by the
+ * replica that inserted it. Auto-cancels need no claim: the state machine turns down the second.
+ * A reloaded deadline that had already passed before the reload is only ever escalated, so
+ * starting the scheduler, or changing a rule, never cancels orders that were already late.
+ */
+@Slf4j
+@Component
+public class OrderSlaScheduler implements SmartLifecycle {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    // Claims the escalation only while the order is still in the breached state
+    private static final String CLAIM_ESCALATION_SQL = "INSERT IGNORE INTO order_sla_escalations (order_id, order_status)"
+            + " SELECT id, ? FROM orders WHERE id = ? AND order_status = ?";
+
+    private final SlaProperties properties;
+    private final ObjectProvider<OrderService> orderService;
+    // Resolved lazily so the scheduler does not pull JPA into context startup
+    private final ObjectProvider<OrderRepository> orderRepository;
+    private final OrderEventBus orderEventBus;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentLinkedQueue<Request> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    // Owned by the wheel thread
+    private final Map<Long, HierarchicalTimerWheel.Timeout<Deadline>> deadlines = new HashMap<>();
+    private final Map<SlaAction, Counter> expiredCounters = new EnumMap<>(SlaAction.class);
+    private final Counter skippedCounter;
+    private final Counter claimedElsewhereCounter;
+
+    private HierarchicalTimerWheel<Deadline> wheel;
+    private volatile long pending;
+    private Thread wheelThread;
+    private ExecutorService actionExecutor;
+    private volatile boolean running;
+
+    public OrderSlaScheduler(SlaProperties properties, ObjectProvider<OrderService> orderService, ObjectProvider<OrderRepository> orderRepository,
+                             OrderEventBus orderEventBus, ShardRouter shardRouter, @Qualifier("fdsOrderDb") DataSource dataSource,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.orderService = orderService;
+        this.orderRepository = orderRepository;
+        this.orderEventBus = orderEventBus;
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        for (SlaAction action : SlaAction.values()) {
+            expiredCounters.put(action, meterRegistry.counter("order.sla.expired", "action", action.name()));
+        }
+        this.skippedCounter = meterRegistry.counter("order.sla.skipped");
+        this.claimedElsewhereCounter = meterRegistry.counter("order.sla.claimed-elsewhere");
+        Gauge.builder("order.sla.pending", this, scheduler -> scheduler.pending).register(meterRegistry);
+        Gauge.builder("order.sla.queued", queued, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Records that the order entered {@code state} at {@code enteredAt}, replacing any earlier
+     * deadline for it.
+     */
+    public void onStateEntered(Long orderId, OrderStates state, LocalDateTime enteredAt) {
+        if (!running) {
+            return;
+        }
+        enqueue(new Request(orderId, state, deadlineMillis(state, enteredAt), false, false));
+    }
+
+    private void enqueue(Request request) {
+        requests.offer(request);
+        queued.incrementAndGet();
+    }
+
+    private long deadlineMillis(OrderStates state, LocalDateTime enteredAt) {
+        SlaProperties.Rule rule = properties.getRules().get(state);
+        if (rule == null || rule.getDeadline() == null) {
+            return -1;
+        }
+        LocalDateTime from = enteredAt == null ? LocalDateTime.now() : enteredAt;
+        return from.atZone(ZONE).toInstant().toEpochMilli() + rule.getDeadline().toMillis();
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            log.info("Order SLA scheduler is disabled");
+            return;
+        }
+        wheel = new HierarchicalTimerWheel<>(properties.getWheelSize(), properties.getLevels(), currentTick());
+        AtomicInteger threadIndex = new AtomicInteger();
+        actionExecutor = Executors.newFixedThreadPool(properties.getActionThreads(), r -> {
+            Thread thread = new Thread(r, "order-sla-action-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        wheelThread = new Thread(this::runWheel, "order-sla-wheel");
+        wheelThread.setDaemon(true);
+        wheelThread.start();
+        if (properties.isRebuildOnStartup()) {
+            Thread rebuildThread = new Thread(this::rebuild, "order-sla-rebuild");
+            rebuildThread.setDaemon(true);
+            rebuildThread.start();
+        }
+        log.info("Order SLA scheduler started with rules {}", properties.getRules().keySet());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        wheelThread.interrupt();
+        try {
+            wheelThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        actionExecutor.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private long currentTick() {
+        return System.currentTimeMillis() / properties.getTickMs();
+    }
+
+    private void runWheel() {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(properties.getTickMs());
+        while (running) {
+            try {
+                drainRequests();
+                wheel.advanceTo(currentTick(), this::expire);
+                pending = wheel.pending();
+            } catch (Exception e) {
+                log.error("Error while turning the SLA wheel: {}", e.getMessage());
+            }
+            LockSupport.parkNanos(tickNanos);
+        }
+    }
+
+    private void drainRequests() {
+        Request request;
+        while ((request = requests.poll()) != null) {
+            queued.decrementAndGet();
+            HierarchicalTimerWheel.Timeout<Deadline> existing = deadlines.get(request.orderId);
+            if (request.onlyIfAbsent && existing != null) {
+                continue;
+            }
+            if (existing != null) {
+                wheel.cancel(existing);
+                deadlines.remove(request.orderId);
+            }
+            if (request.deadlineMillis >= 0) {
+                // Round up so a deadline never fires before it is due
+                long deadlineTick = (request.deadlineMillis + properties.getTickMs() - 1) / properties.getTickMs();
+                HierarchicalTimerWheel.Timeout<Deadline> timeout =
+                        new HierarchicalTimerWheel.Timeout<>(deadlineTick, new Deadline(request.orderId, request.state, request.escalateOnly));
+                wheel.schedule(timeout);
+                deadlines.put(request.orderId, timeout);
+            }
+        }
+    }
+
+    private void expire(Deadline deadline) {
+        deadlines.remove(deadline.orderId);
+        actionExecutor.execute(() -> act(deadline));
+    }
+
+    private void act(Deadline deadline) {
+        SlaProperties.Rule rule = properties.getRules().get(deadline.state);
+        if (rule == null) {
+            return;
+        }
+        SlaAction action = deadline.escalateOnly ? SlaAction.ESCALATE : rule.getAction();
+        try {
+            boolean acted;
+            if (action == SlaAction.AUTO_CANCEL) {
+                acted = orderService.getObject().cancelStalledOrder(deadline.orderId, deadline.state,
+                        "Cancelled automatically after SLA deadline in " + deadline.state);
+            } else {
+                Order order = orderService.getObject().getOrderByOrderId(deadline.orderId);
+                acted = order.getOrderStatus() == deadline.state;
+                if (acted && !claimEscalation(deadline)) {
+                    claimedElsewhereCounter.increment();
+                    return;
+                }
+                if (acted) {
+                    orderEventBus.publishSlaEscalated(order, deadline.state);
+                }
+            }
+            if (acted) {
+                expiredCounters.get(action).increment();
+                log.info("SLA deadline passed for order {} in {}, applied {}", deadline.orderId, deadline.state, action);
+            } else {
+                // The order moved on between the deadline firing and the action running
+                skippedCounter.increment();
+            }
+        } catch (Exception e) {
+            log.error("Error while applying SLA action {} to order {}: {}", action, deadline.orderId, e.getMessage());
+        }
+    }
+
+    // False when another replica escalated this breach first, or the order has just moved on
+    private boolean claimEscalation(Deadline deadline) {
+        int claimed = shardRouter.onOrderShard(deadline.orderId, () -> jdbcTemplate.update(CLAIM_ESCALATION_SQL,
+                deadline.state.getCode(), deadline.orderId, deadline.state.name()));
+        return claimed == 1;
+    }
+
+    /**
+     * Walks every tracked state on every shard by id and queues a deadline for each order found.
+     * Live transitions queued meanwhile win over what the walk read. Deadlines already past when
+     * the walk started are queued to escalate whatever the rule's action.
+     */
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        long loaded = 0;
+        PageRequest page = PageRequest.of(0, properties.getRebuildPageSize());
+        try {
+            OrderRepository repository = orderRepository.getObject();
+            for (OrderStates state : properties.getRules().keySet()) {
+                for (int shard = 0; shard < shardRouter.getShardCount() && running; shard++) {
+                    long afterId = 0;
+                    while (running) {
+                        final long after = afterId;
+                        List<OrderStateEntry> entries = shardRouter.onShard(shard,
+                                () -> repository.findOrdersInStateAfter(state, after, page));
+                        for (OrderStateEntry entry : entries) {
+                            long deadlineMillis = deadlineMillis(state, entry.getEnteredAt());
+                            enqueue(new Request(entry.getOrderId(), state, deadlineMillis, true, deadlineMillis < started));
+                        }
+                        loaded += entries.size();
+                        if (entries.size() < page.getPageSize()) {
+                            break;
+                        }
+                        afterId = entries.get(entries.size() - 1).getOrderId();
+                    }
+                }
+            }
+            log.info("Reloaded {} SLA deadlines in {} ms", loaded, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Error while reloading SLA deadlines after {} orders: {}", loaded, e.getMessage());
+        }
+    }
+
+    private static final class Request {
+        private final Long orderId;
+        private final OrderStates state;
+        // Negative when the state has no deadline
+        private final long deadlineMillis;
+        private final boolean onlyIfAbsent;
+        private final boolean escalateOnly;
+
+        private Request(Long orderId, OrderStates state, long deadlineMillis, boolean onlyIfAbsent, boolean escalateOnly) {
+            this.orderId = orderId;
+            this.state = state;
+            this.deadlineMillis = deadlineMillis;
+            this.onlyIfAbsent = onlyIfAbsent;
+            this.escalateOnly = escalateOnly;
+        }
+    }
+
+    private static final class Deadline {
+        private final Long orderId;
+        private final OrderStates state;
+        // Overdue before the rebuild read it, so never auto-cancelled
+        private final boolean escalateOnly;
+
+        private Deadline(Long orderId, OrderStates state, boolean escalateOnly) {
+            this.orderId = orderId;
+            this.state = state;
+            this.escalateOnly = escalateOnly;
+        }
+    }
+}
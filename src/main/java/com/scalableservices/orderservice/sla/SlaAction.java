@@ -0,0 +1,11 @@
+package com.scalableservices.orderservice.sla;
+
+/**
+ * What happens to an order that is still in a state when its SLA deadline passes.
+ */
+public enum SlaAction {
+    // Cancel through the normal transition path as the SYSTEM user
+    AUTO_CANCEL,
+    // Leave the order alone and publish an SLA_ESCALATED event for whoever follows up
+    ESCALATE
+}
@@ -0,0 +1,42 @@
+package com.scalableservices.orderservice.sla;
+
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.sla")
+public class SlaProperties {
+
+    private boolean enabled = true;
+
+    // Resolution of the wheel; deadlines fire up to one tick late
+    private long tickMs = 1000;
+
+    // Buckets per level, must be a power of two. 512 buckets over 4 levels spans about 2 years at 1s ticks
+    private int wheelSize = 512;
+
+    private int levels = 4;
+
+    // Reload deadlines of orders sitting in a tracked state when the service starts
+    private boolean rebuildOnStartup = true;
+
+    private int rebuildPageSize = 1000;
+
+    private int actionThreads = 2;
+
+    // States without a rule have no deadline
+    private Map<OrderStates, Rule> rules = new EnumMap<>(OrderStates.class);
+
+    @Data
+    public static class Rule {
+        private Duration deadline;
+        private SlaAction action = SlaAction.ESCALATE;
+    }
+}
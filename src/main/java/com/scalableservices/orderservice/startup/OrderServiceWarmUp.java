@@ -0,0 +1,312 @@
+package com.scalableservices.orderservice.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalableservices.orderservice.dto.common.ApiResponse;
+import com.scalableservices.orderservice.dto.order.OrderMenuDetails;
+import com.scalableservices.orderservice.dto.order.OrderRequest;
+import com.scalableservices.orderservice.dto.order.OrderStateEntry;
+import com.scalableservices.orderservice.dto.order.OrderStatusUpdateResponse;
+import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.feed.OrderChangeRecorder;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.model.OrderLog;
+import com.scalableservices.orderservice.orderitems.OrderItemService;
+import com.scalableservices.orderservice.readmodel.OrderReadModelService;
+import com.scalableservices.orderservice.repository.OrderLogRepository;
+import com.scalableservices.orderservice.repository.OrderRepository;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.statemachine.OrderEvents;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import com.scalableservices.orderservice.statemachine.ProcessOrderEvent;
+import com.scalableservices.orderservice.utils.CommonOperations;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms a new instance up before it reports ready. Application runners finish before Spring
+ * Boot moves readiness to ACCEPTING_TRAFFIC, so while this runs the readiness probe keeps the
+ * pod out of the load balancer and liveness stays CORRECT. It:
+ * <ul>
+ *     <li>opens {@code pool-connections} connections in every pool and keeps them as the minimum idle</li>
+ *     <li>reads up to {@code preload-orders} open orders through the tracking read path, which
+ *     pulls their pages into the database buffer pool and the read model's cache</li>
+ *     <li>places synthetic orders and moves each through every transition to delivery, writing
+ *     orders, items, logs, state machine contexts and change feed rows, serializes the
+ *     responses, and rolls every one of them back. Rounds repeat until one leaves the JIT with
+ *     little left to compile.</li>
+ * </ul>
+ * Each phase is best effort: a failure is logged and the next phase runs, and
+ * {@code max-duration} caps the whole warm-up.
+ */
+@Slf4j
+@Component
+public class OrderServiceWarmUp implements ApplicationRunner {
+
+    private static final Set<OrderStates> OPEN_STATES = EnumSet.complementOf(EnumSet.of(OrderStates.DELIVERED, OrderStates.CANCELLED));
+    private static final List<OrderEvents> DELIVERY_PATH = Arrays.asList(OrderEvents.CONFIRM, OrderEvents.START_PREPARING,
+            OrderEvents.MARK_READY, OrderEvents.ACCEPT_DELIVERY, OrderEvents.START_DELIVERY, OrderEvents.COMPLETE_DELIVERY);
+    private static final Long SYSTEM_USER_ID = 0L;
+
+    private final WarmUpProperties properties;
+    private final ShardRouter shardRouter;
+    private final DataSource dataSource;
+    private final OrderRepository orderRepository;
+    private final OrderLogRepository orderLogRepository;
+    private final OrderItemService orderItemService;
+    private final OrderChangeRecorder orderChangeRecorder;
+    private final OrderReadModelService orderReadModelService;
+    private final ProcessOrderEvent processOrderEvent;
+    private final CommonOperations commonOperations;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong pooledConnections = new AtomicLong();
+    private final AtomicLong preloadedOrders = new AtomicLong();
+    private final AtomicLong syntheticOrders = new AtomicLong();
+    private final AtomicLong firstRoundMicrosPerOrder = new AtomicLong();
+    private final AtomicLong lastRoundMicrosPerOrder = new AtomicLong();
+    private final AtomicLong compileMs = new AtomicLong();
+
+    public OrderServiceWarmUp(WarmUpProperties properties, ShardRouter shardRouter, @Qualifier("fdsOrderDb") DataSource dataSource,
+                              OrderRepository orderRepository, OrderLogRepository orderLogRepository, OrderItemService orderItemService,
+                              OrderChangeRecorder orderChangeRecorder, OrderReadModelService orderReadModelService,
+                              ProcessOrderEvent processOrderEvent, CommonOperations commonOperations, ObjectMapper objectMapper,
+                              @Qualifier("fdsOrderDbTransactionManager") PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.dataSource = dataSource;
+        this.orderRepository = orderRepository;
+        this.orderLogRepository = orderLogRepository;
+        this.orderItemService = orderItemService;
+        this.orderChangeRecorder = orderChangeRecorder;
+        this.orderReadModelService = orderReadModelService;
+        this.processOrderEvent = processOrderEvent;
+        this.commonOperations = commonOperations;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("order.warm-up.pool.connections", pooledConnections);
+        meterRegistry.gauge("order.warm-up.preloaded.orders", preloadedOrders);
+        meterRegistry.gauge("order.warm-up.synthetic.orders", syntheticOrders);
+        // Cost of one synthetic order and its transitions in the first and the last round, i.e. what warm-up saved
+        meterRegistry.gauge("order.warm-up.synthetic.first.round.micros", firstRoundMicrosPerOrder);
+        meterRegistry.gauge("order.warm-up.synthetic.last.round.micros", lastRoundMicrosPerOrder);
+        meterRegistry.gauge("order.warm-up.jit.compile.ms", compileMs);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long started = System.nanoTime();
+        long deadline = started + properties.getMaxDuration().toNanos();
+        long compileAtStart = compileTimeMs();
+        phase("pool", this::openPools);
+        phase("preload", () -> preloadOpenOrders(deadline));
+        phase("synthetic", () -> runSyntheticOrders(deadline));
+        compileMs.set(compileTimeMs() - compileAtStart);
+        long elapsed = System.nanoTime() - started;
+        meterRegistry.timer("order.warm-up.duration").record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Warm-up finished in {} ms: {} pooled connections, {} open orders read, {} synthetic orders, {} us per synthetic order"
+                        + " in the first round and {} us in the last, {} ms of JIT compilation",
+                TimeUnit.NANOSECONDS.toMillis(elapsed), pooledConnections.get(), preloadedOrders.get(), syntheticOrders.get(),
+                firstRoundMicrosPerOrder.get(), lastRoundMicrosPerOrder.get(), compileMs.get());
+    }
+
+    private void phase(String name, Runnable phase) {
+        long started = System.nanoTime();
+        try {
+            phase.run();
+        } catch (Exception e) {
+            log.warn("Warm-up phase {} failed, carrying on: {}", name, e.getMessage());
+        }
+        meterRegistry.timer("order.warm-up.phase", "phase", name).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private void openPools() {
+        List<DataSource> pools = new ArrayList<>();
+        if (dataSource instanceof AbstractRoutingDataSource) {
+            pools.addAll(((AbstractRoutingDataSource) dataSource).getResolvedDataSources().values());
+        } else {
+            pools.add(dataSource);
+        }
+        for (DataSource pool : pools) {
+            if (!(pool instanceof HikariDataSource)) {
+                continue;
+            }
+            HikariDataSource hikari = (HikariDataSource) pool;
+            int target = Math.min(properties.getPoolConnections(), hikari.getMaximumPoolSize());
+            if (hikari.getHikariConfigMXBean().getMinimumIdle() < target) {
+                hikari.getHikariConfigMXBean().setMinimumIdle(target);
+            }
+            // Holding them all at once makes the pool open that many
+            List<Connection> held = new ArrayList<>(target);
+            try {
+                for (int i = 0; i < target; i++) {
+                    held.add(hikari.getConnection());
+                }
+            } catch (SQLException e) {
+                log.warn("Could only open {} of {} connections in {}: {}", held.size(), target, hikari.getPoolName(), e.getMessage());
+            } finally {
+                for (Connection connection : held) {
+                    try {
+                        connection.close();
+                    } catch (SQLException e) {
+                        log.debug("Error while returning a warm-up connection: {}", e.getMessage());
+                    }
+                }
+            }
+            pooledConnections.addAndGet(held.size());
+        }
+    }
+
+    private void preloadOpenOrders(long deadline) {
+        int perShard = Math.max(1, properties.getPreloadOrders() / shardRouter.getShardCount());
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            List<Long> orderIds = new ArrayList<>();
+            for (OrderStates state : OPEN_STATES) {
+                if (orderIds.size() >= perShard) {
+                    break;
+                }
+                List<OrderStateEntry> entries = shardRouter.onShard(shard,
+                        () -> orderRepository.findOrdersInStateAfter(state, 0L, PageRequest.of(0, perShard - orderIds.size())));
+                for (OrderStateEntry entry : entries) {
+                    orderIds.add(entry.getOrderId());
+                }
+            }
+            for (Long orderId : orderIds) {
+                if (System.nanoTime() > deadline) {
+                    return;
+                }
+                orderReadModelService.trackOrder(orderId, orderReadModelService.resolveMode(null));
+                preloadedOrders.incrementAndGet();
+            }
+        }
+    }
+
+    private void runSyntheticOrders(long deadline) {
+        byte[] requestBody = syntheticRequestBody();
+        for (int round = 0; round < properties.getMaxSyntheticRounds() && System.nanoTime() < deadline; round++) {
+            long compileBefore = compileTimeMs();
+            long started = System.nanoTime();
+            for (int i = 0; i < properties.getSyntheticOrdersPerRound(); i++) {
+                shardRouter.onRestaurantShard(properties.getSyntheticRestaurantId(), () -> placeAndDeliver(requestBody));
+                syntheticOrders.incrementAndGet();
+            }
+            long microsPerOrder = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started) / properties.getSyntheticOrdersPerRound();
+            if (round == 0) {
+                firstRoundMicrosPerOrder.set(microsPerOrder);
+            }
+            lastRoundMicrosPerOrder.set(microsPerOrder);
+            if (round > 0 && compileTimeMs() - compileBefore < properties.getSettledCompileMs()) {
+                break;
+            }
+        }
+    }
+
+    // The database and serialization work of place-order and of every status update, rolled back
+    private Void placeAndDeliver(byte[] requestBody) {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            try {
+                OrderRequest request = objectMapper.readValue(requestBody, OrderRequest.class);
+                LocalDateTime now = LocalDateTime.now();
+                Order order = Order.builder()
+                        .orderDetails(commonOperations.getOrderMenuDetailsJson(request.getItems()))
+                        .restaurantId(request.getRestaurantId())
+                        .customerId(request.getCustomerId())
+                        .orderStatus(OrderStates.PLACED)
+                        .totalAmount(request.getTotalAmount())
+                        .customerAddress(request.getDeliveryAddress())
+                        .isDeleted(false)
+                        .isArchived(false)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build();
+                orderItemService.saveOrderWithItems(order, request.getItems());
+                orderRepository.flush();
+                for (OrderEvents event : DELIVERY_PATH) {
+                    OrderStates next = processOrderEvent.process(order.getId(), event);
+                    order.setOrderStatus(next);
+                    order.setUpdatedAt(LocalDateTime.now());
+                    OrderLog orderLog = OrderLog.builder()
+                            .order(order)
+                            .orderSubStatus(next.name())
+                            .enteredBy(UserTypes.SYSTEM.name())
+                            .enteredById(SYSTEM_USER_ID)
+                            .isDeleted(false)
+                            .isArchived(false)
+                            .createdAt(LocalDateTime.now())
+                            .build();
+                    orderRepository.save(order);
+                    orderLogRepository.save(orderLog);
+                    orderChangeRecorder.recordTransition(order, orderLog);
+                    orderRepository.flush();
+                    objectMapper.writeValueAsBytes(ApiResponse.<OrderStatusUpdateResponse>builder().status("success")
+                            .data(OrderStatusUpdateResponse.builder().orderId(order.getId()).orderStatus(next).build()).build());
+                }
+                objectMapper.writeValueAsBytes(ApiResponse.<Order>builder().status("success").data(order).build());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+    }
+
+    private byte[] syntheticRequestBody() {
+        List<OrderMenuDetails> items = new ArrayList<>();
+        for (int line = 0; line < 3; line++) {
+            items.add(OrderMenuDetails.builder()
+                    .menuId(900_000L + line)
+                    .menuName("Warm-up item " + line)
+                    .menuDescription("Never committed")
+                    .menuPrice(100.0)
+                    .menuQuantity(line + 1)
+                    .menuTotalPrice(100.0 * (line + 1))
+                    .build());
+        }
+        try {
+            return objectMapper.writeValueAsBytes(OrderRequest.builder()
+                    .customerId(0L)
+                    .restaurantId(properties.getSyntheticRestaurantId())
+                    .items(items)
+                    .deliveryAddress("Warm-up")
+                    .totalAmount(new BigDecimal("600.00"))
+                    .build());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long compileTimeMs() {
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        return compilation != null && compilation.isCompilationTimeMonitoringSupported() ? compilation.getTotalCompilationTime() : 0;
+    }
+}
@@ -0,0 +1,53 @@
+package com.scalableservices.orderservice.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures how long a pod takes to become useful: from JVM start to the application being
+ * ready, and to the first request that actually succeeded. The second figure includes
+ * whatever lazy initialisation the first request triggered.
+ */
+@Slf4j
+@Component
+public class StartupTimer {
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean firstSuccessRecorded = new AtomicBoolean();
+
+    public StartupTimer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        long elapsed = sinceJvmStart();
+        Timer.builder("order.startup.ready").register(meterRegistry).record(elapsed, TimeUnit.MILLISECONDS);
+        log.info("Order service ready {} ms after JVM start", elapsed);
+    }
+
+    /**
+     * Records the first successful call of {@code endpoint}; later calls are ignored.
+     */
+    public void firstSuccess(String endpoint) {
+        if (firstSuccessRecorded.get() || !firstSuccessRecorded.compareAndSet(false, true)) {
+            return;
+        }
+        long elapsed = sinceJvmStart();
+        Timer.builder("order.startup.first.success").tag("endpoint", endpoint).register(meterRegistry)
+                .record(elapsed, TimeUnit.MILLISECONDS);
+        log.info("First successful {} {} ms after JVM start", endpoint, elapsed);
+    }
+
+    private long sinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
@@ -0,0 +1,57 @@
+package com.scalableservices.orderservice.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Used when generating the class data sharing archive: once the application is up it calls
+ * its own track endpoint a few times so the request path is loaded too, then shuts the JVM
+ * down so -XX:ArchiveClassesAtExit writes the archive. See scripts/faststart.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order.startup.training-run", havingValue = "true")
+public class TrainingRunExit implements ApplicationRunner {
+
+    private final ConfigurableApplicationContext context;
+
+    @Value("${server.port:8080}")
+    private int port;
+    @Value("${order.startup.training-order-id:}")
+    private Long trainingOrderId;
+    @Value("${order.startup.training-requests:20}")
+    private int trainingRequests;
+
+    public TrainingRunExit(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (trainingOrderId != null) {
+            RestTemplate restTemplate = new RestTemplate();
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("X-UserType", "customer");
+            String url = "http://localhost:" + port + "/order/" + trainingOrderId + "/status";
+            for (int i = 0; i < trainingRequests; i++) {
+                try {
+                    restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+                } catch (Exception e) {
+                    log.warn("Training request {} failed: {}", i, e.getMessage());
+                }
+            }
+        }
+        log.info("Training run finished, exiting");
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
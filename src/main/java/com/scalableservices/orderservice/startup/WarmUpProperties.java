@@ -0,0 +1,33 @@
+package com.scalableservices.orderservice.startup;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.warm-up")
+public class WarmUpProperties {
+
+    private boolean enabled = true;
+
+    // Connections opened and then kept idle in every pool, i.e. the pools' minimum idle from then on
+    private int poolConnections = 5;
+
+    // Open orders read through the tracking path across all shards
+    private int preloadOrders = 1000;
+
+    // Synthetic orders per round; rounds go on until a round triggers little JIT compilation
+    private int syntheticOrdersPerRound = 20;
+    private int maxSyntheticRounds = 50;
+    // A round that spent less than this compiling means the hot paths are compiled
+    private long settledCompileMs = 20;
+
+    // Restaurant the synthetic orders are written for; they are always rolled back
+    private long syntheticRestaurantId = 0;
+
+    // Readiness is reported once this is spent, however far warm-up got
+    private Duration maxDuration = Duration.ofSeconds(60);
+}
@@ -1,5 +1,6 @@
 package com.scalableservices.orderservice.statemachine;
 
+import com.scalableservices.orderservice.jfr.StateMachinePersistEvent;
 import com.scalableservices.orderservice.mapper.StateEventMapper;
 import com.scalableservices.orderservice.model.StateMachineEntity;
 import org.springframework.statemachine.StateMachineContext;
@@ -24,6 +25,8 @@ public class JpaRepositoryStateMachinePersist implements StateMachinePersist<Ord
     @Override
     @Transactional
     public void write(StateMachineContext<OrderStates, OrderEvents> context, String contextObj) throws Exception {
+        StateMachinePersistEvent persistEvent = new StateMachinePersistEvent();
+        persistEvent.begin();
         // Write the state machine context to the database
         StateMachineEntity stateMachineEntity = entityManager.find(StateMachineEntity.class, contextObj);
         if (stateMachineEntity == null) {
@@ -44,13 +47,29 @@ public class JpaRepositoryStateMachinePersist implements StateMachinePersist<Ord
 
         // Persist the entity
         entityManager.persist(stateMachineEntity);
+        persistEvent.end();
+        if (persistEvent.shouldCommit()) {
+            persistEvent.operation = "write";
+            persistEvent.machineId = contextObj;
+            persistEvent.state = stateMachineEntity.getState();
+            persistEvent.commit();
+        }
     }
 
     @Override
     public StateMachineContext<OrderStates, OrderEvents> read(String contextObj) throws Exception {
         // Read the state machine context from the database
         // Query the state machine entity using the provided contextObj
+        StateMachinePersistEvent persistEvent = new StateMachinePersistEvent();
+        persistEvent.begin();
         StateMachineEntity stateMachineEntity = entityManager.find(StateMachineEntity.class, contextObj);
+        persistEvent.end();
+        if (persistEvent.shouldCommit()) {
+            persistEvent.operation = "read";
+            persistEvent.machineId = contextObj;
+            persistEvent.state = stateMachineEntity == null ? null : stateMachineEntity.getState();
+            persistEvent.commit();
+        }
         if (stateMachineEntity == null) {
             return null; // Return null if the state machine context is not found
         }
@@ -1,5 +1,25 @@
 package com.scalableservices.orderservice.statemachine;
 
 public enum OrderStates {
-    PLACED, CONFIRMED, PREPARING, READY, ACCEPTED_BY_DELIVERY_AGENT, OUT_FOR_DELIVERY, DELIVERED, CANCELLED
+    PLACED(1), CONFIRMED(2), PREPARING(3), READY(4), ACCEPTED_BY_DELIVERY_AGENT(5), OUT_FOR_DELIVERY(6), DELIVERED(7), CANCELLED(8);
+
+    // Stored in order_log_entries.order_status; never reuse or renumber a code
+    private final int code;
+
+    OrderStates(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public static OrderStates fromCode(int code) {
+        for (OrderStates state : values()) {
+            if (state.code == code) {
+                return state;
+            }
+        }
+        throw new IllegalArgumentException("Unknown order state code: " + code);
+    }
 }
@@ -1,6 +1,7 @@
 package com.scalableservices.orderservice.statemachine;
 
 import com.scalableservices.orderservice.exception.ServiceException;
+import com.scalableservices.orderservice.jfr.OrderTransitionEvent;
 import com.scalableservices.orderservice.repository.OrderRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,36 +26,62 @@ public class ProcessOrderEvent {
     private JpaRepositoryStateMachinePersist jpaRepositoryStateMachinePersist;
 
     public OrderStates process(Long orderId, OrderEvents event) {
+        OrderTransitionEvent transition = new OrderTransitionEvent();
+        transition.begin();
+        StateMachineContext<OrderStates, OrderEvents> context = null;
+        StateMachine<OrderStates, OrderEvents> stateMachine = null;
+        OrderStates state = null;
+        boolean eventSent = false;
+        Exception failure = null;
         try {
             // Retrieve the state machine context from the database
-            StateMachineContext<OrderStates, OrderEvents> context = jpaRepositoryStateMachinePersist.read(orderId.toString());
+            context = jpaRepositoryStateMachinePersist.read(orderId.toString());
 
             // Create or retrieve the state machine
-            StateMachine<OrderStates, OrderEvents> stateMachine = stateMachineFactory.getStateMachine(String.valueOf(orderId));
+            stateMachine = stateMachineFactory.getStateMachine(String.valueOf(orderId));
 
             // Start the state machine if it's not already started
             stateMachine.start();
 
             // Set the restored context
             if (context != null) {
+                StateMachineContext<OrderStates, OrderEvents> restored = context;
                 // Use the state and event from the context to initialize the state machine
                 stateMachine.getStateMachineAccessor().doWithAllRegions(sm -> {
                     sm.resetStateMachine(new DefaultStateMachineContext<>(
-                            context.getState(), context.getEvent(), null, null));
+                            restored.getState(), restored.getEvent(), null, null));
                 });
             }
 
             // Now you can send the event and process the order
-            boolean eventSent = stateMachine.sendEvent(event);
+            eventSent = stateMachine.sendEvent(event);
             if (eventSent) {
                 persister.persist(stateMachine, orderId.toString());
             }
 
-            return stateMachine.getState().getId();
+            state = stateMachine.getState().getId();
+            return state;
 
         } catch (Exception e) {
+            failure = e;
             log.error("Error processing orderId: {}", orderId, e);
             throw new ServiceException(HttpStatus.INTERNAL_SERVER_ERROR, "Error occurred while processing the order event");
+        } finally {
+            // Failed transitions are recorded too, they are often the slow ones
+            transition.end();
+            if (transition.shouldCommit()) {
+                transition.orderId = orderId;
+                transition.event = event.name();
+                if (context != null) {
+                    transition.fromState = context.getState().name();
+                } else if (stateMachine != null) {
+                    transition.fromState = stateMachine.getInitialState().getId().name();
+                }
+                transition.toState = state == null ? null : state.name();
+                transition.accepted = eventSent;
+                transition.failure = failure == null ? null : failure.getClass().getName();
+                transition.commit();
+            }
         }
     }
 }
@@ -8,13 +8,23 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Component
 @Slf4j
 public class CommonOperations {
 
+    private static final Map<String, OrderEvents> ORDER_EVENTS = new HashMap<>();
+
+    static {
+        for (OrderEvents orderEvent : OrderEvents.values()) {
+            ORDER_EVENTS.put(orderEvent.name(), orderEvent);
+        }
+    }
+
     public boolean isEligibleOrderEvent(String role, OrderEvents orderEvent) {
         Set<OrderEvents> eligibleEvents;
 
@@ -31,6 +41,9 @@ public class CommonOperations {
             case "RESTAURANT_OWNER":
                 eligibleEvents = EnumSet.of(OrderEvents.CONFIRM, OrderEvents.START_PREPARING, OrderEvents.MARK_READY);
                 break;
+            case "SYSTEM":
+                eligibleEvents = EnumSet.of(OrderEvents.CANCEL);
+                break;
             default:
                 eligibleEvents = EnumSet.noneOf(OrderEvents.class);
         }
@@ -67,8 +80,11 @@ public class CommonOperations {
     }
 
     public boolean isOrderEventValid(String orderStatus) {
-        return EnumSet.allOf(OrderEvents.class)
-                .stream()
-                .anyMatch(state -> state.name().equals(orderStatus));
+        return toOrderEvent(orderStatus) != null;
+    }
+
+    // Null for unknown names; unlike OrderEvents.valueOf this never throws on client input
+    public OrderEvents toOrderEvent(String orderStatus) {
+        return orderStatus == null ? null : ORDER_EVENTS.get(orderStatus);
     }
 }
@@ -0,0 +1,50 @@
+-- Contract step of compacting order_logs (see db/migration/V202610190005). Not on the default
+-- flyway locations: add classpath:db/contract to spring.flyway.locations only once
+--   * no instance runs a release older than the one that created order_log_entries,
+--   * order_logs_backfill.caught_up is set on every shard, and
+--   * every instance runs with order.legacy-order-logs.enabled=false, so nothing writes order_logs.
+-- Keep this the next version until it has run everywhere, or migrations added after it are ignored
+-- without spring.flyway.out-of-order.
+--
+-- The copy below is the last backfill pass; it finds nothing when the conditions above hold.
+-- Unknown names map to NULL and fail the insert rather than being stored as a wrong code.
+-- fk_order_logs_order_id goes with the table: order_log_entries is partitioned and cannot have one.
+
+INSERT INTO order_log_entries (id, order_id, order_status, entered_by, entered_by_id, is_deleted, is_archived, created_at)
+SELECT l.id,
+       l.order_id,
+       CASE l.order_status
+           WHEN 'PLACED' THEN 1
+           WHEN 'CONFIRMED' THEN 2
+           WHEN 'PREPARING' THEN 3
+           WHEN 'READY' THEN 4
+           WHEN 'ACCEPTED_BY_DELIVERY_AGENT' THEN 5
+           WHEN 'OUT_FOR_DELIVERY' THEN 6
+           WHEN 'DELIVERED' THEN 7
+           WHEN 'CANCELLED' THEN 8
+       END,
+       CASE l.entered_by
+           WHEN 'CUSTOMER' THEN 1
+           WHEN 'DELIVERY_AGENT' THEN 2
+           WHEN 'RESTAURANT_OWNER' THEN 3
+           WHEN 'ADMIN' THEN 4
+           WHEN 'SYSTEM' THEN 5
+       END,
+       l.entered_by_id,
+       l.is_deleted,
+       l.is_archived,
+       COALESCE(l.created_at, o.created_at, CURRENT_TIMESTAMP)
+FROM order_logs l
+JOIN orders o ON o.id = l.order_id
+WHERE NOT EXISTS (SELECT 1 FROM order_log_entries e WHERE e.id = l.id);
+
+INSERT INTO order_log_remarks (order_log_id, created_at, remarks)
+SELECT l.id, e.created_at, l.remarks
+FROM order_logs l
+JOIN order_log_entries e ON e.id = l.id
+WHERE l.remarks IS NOT NULL AND TRIM(l.remarks) <> ''
+  AND NOT EXISTS (SELECT 1 FROM order_log_remarks r WHERE r.order_log_id = l.id);
+
+DROP TABLE order_logs;
+
+DROP TABLE order_logs_backfill;
@@ -0,0 +1,4 @@
+-- Serves keyset pagination of a customer's orders on (customer_id, created_at, id).
+-- The old single column index is a prefix of the new one and is dropped.
+CREATE INDEX idx_customer_orders_customer_id_created_at_id ON orders (customer_id, created_at, id);
+DROP INDEX idx_customer_orders_customer_id ON orders;
@@ -0,0 +1,11 @@
+-- Per restaurant and business day: how many of that day's orders sit in each state and
+-- the sum of their totals. Maintained incrementally by RestaurantRollupService.
+CREATE TABLE restaurant_order_rollups (
+    restaurant_id BIGINT NOT NULL,
+    business_date DATE NOT NULL,
+    order_status VARCHAR(50) NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    total_amount DECIMAL(16,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (`restaurant_id`, `business_date`, `order_status`)
+);
@@ -0,0 +1,2 @@
+-- Lets the SLA scheduler reload orders sitting in a state by walking (order_status, id) on startup.
+CREATE INDEX idx_customer_orders_order_status ON orders (order_status);
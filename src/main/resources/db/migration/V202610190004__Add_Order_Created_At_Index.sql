@@ -0,0 +1,2 @@
+-- Lets reconciliation exports read a created_at range of orders in index order instead of scanning the table.
+CREATE INDEX idx_customer_orders_created_at ON orders (created_at);
@@ -0,0 +1,58 @@
+-- Expand step of compacting order_logs, the largest table. The compact copy lives in new tables:
+--   * order_log_entries keeps order_status and entered_by as TINYINT codes (OrderStates.getCode(),
+--     UserTypes.getCode()); the entity converts them back to names, so the API is unchanged.
+--   * remarks move to order_log_remarks, which only has a row for transitions that carry remarks,
+--     stamped with the created_at of its log row.
+--   * both are range partitioned by month of created_at, so a month can be dropped or exchanged
+--     out at once. OrderLogPartitionMaintainer adds the monthly partitions ahead of time.
+--
+-- order_logs itself is left as it is, so instances still on the previous release keep writing
+-- names and inline remarks into it while this one rolls out. Instances on this release write
+-- both tables in the same transaction and LegacyOrderLogBackfill copies the rows only the old
+-- table has. Once no instance runs the previous release and the backfill has caught up, legacy
+-- writes are turned off and db/contract/V202610190009 drops order_logs; see LegacyOrderLogProperties.
+--
+-- Partitioned InnoDB tables support neither foreign keys nor unique keys without the partitioning
+-- column, so order_log_entries has no fk_order_logs_order_id and its primary key includes created_at.
+-- The foreign key stays on order_logs until the contract step; entries are only written in the
+-- transaction that updates their order.
+
+CREATE TABLE order_log_entries (
+    id BIGINT NOT NULL,
+    order_id BIGINT NOT NULL,
+    order_status TINYINT UNSIGNED NOT NULL,
+    entered_by TINYINT UNSIGNED NOT NULL,
+    entered_by_id BIGINT NOT NULL,
+    is_deleted BOOLEAN NOT NULL DEFAULT false,
+    is_archived BOOLEAN NOT NULL DEFAULT false,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`, `created_at`),
+    KEY `idx_order_log_entries_order_id` (`order_id`),
+    KEY `idx_order_log_entries_entered_by_id` (`entered_by_id`)
+)
+PARTITION BY RANGE (UNIX_TIMESTAMP(created_at)) (
+    PARTITION p_history VALUES LESS THAN (UNIX_TIMESTAMP('2026-11-01 00:00:00')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+
+-- No default: created_at is always copied from the log row, which also decides the partition
+CREATE TABLE order_log_remarks (
+    order_log_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    remarks VARCHAR(500) NOT NULL,
+    PRIMARY KEY (`order_log_id`, `created_at`)
+)
+PARTITION BY RANGE (UNIX_TIMESTAMP(created_at)) (
+    PARTITION p_history VALUES LESS THAN (UNIX_TIMESTAMP('2026-11-01 00:00:00')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+
+-- Progress of LegacyOrderLogBackfill on this database, shared by every instance
+CREATE TABLE order_logs_backfill (
+    id TINYINT NOT NULL,
+    last_id BIGINT NOT NULL,
+    caught_up BOOLEAN NOT NULL,
+    PRIMARY KEY (`id`)
+);
+
+INSERT INTO order_logs_backfill (id, last_id, caught_up) VALUES (1, 0, false);
@@ -0,0 +1,20 @@
+-- One row per line of orders.order_details, so item questions are index range reads instead of
+-- parsing the JSON of every order. Written with the order; older orders are loaded by the item backfill.
+CREATE TABLE order_items (
+    id BIGINT NOT NULL,
+    order_id BIGINT NOT NULL,
+    line_no SMALLINT UNSIGNED NOT NULL,
+    restaurant_id BIGINT NOT NULL,
+    menu_id BIGINT NOT NULL,
+    menu_name VARCHAR(255),
+    quantity INT NOT NULL,
+    unit_price DECIMAL(10,2),
+    total_price DECIMAL(10,2),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`),
+    -- Also serves lookups by order_id, and lets the backfill insert idempotently
+    UNIQUE KEY `uk_order_items_order_id_line_no` (`order_id`, `line_no`),
+    KEY `idx_order_items_menu_id_created_at` (`menu_id`, `created_at`),
+    KEY `idx_order_items_restaurant_id_created_at` (`restaurant_id`, `created_at`),
+    CONSTRAINT `fk_order_items_order_id` FOREIGN KEY (`order_id`) REFERENCES `orders` (`id`)
+);
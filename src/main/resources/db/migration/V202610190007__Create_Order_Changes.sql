@@ -0,0 +1,26 @@
+-- Change feed outbox: one row per order created or transitioned, written in the same transaction
+-- as the change. feed_seq is NULL until OrderChangeSequencer stamps the row after it commits, so
+-- sequence numbers follow commit order and a reader that has seen N has seen everything below N.
+CREATE TABLE order_changes (
+    id BIGINT NOT NULL,
+    feed_seq BIGINT NULL,
+    order_id BIGINT NOT NULL,
+    restaurant_id BIGINT NOT NULL,
+    order_status TINYINT UNSIGNED NOT NULL,
+    -- The order_log_entries row of a transition, NULL for a created order; created_at matches its created_at
+    order_log_id BIGINT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`),
+    -- Feed pages are range scans on this; unstamped rows sit at its NULL end
+    UNIQUE KEY `uk_order_changes_feed_seq` (`feed_seq`),
+    KEY `idx_order_changes_created_at` (`created_at`)
+);
+
+-- Last feed_seq handed out; locked while a batch is stamped so sequencers on several instances take turns
+CREATE TABLE order_change_sequence (
+    id TINYINT NOT NULL,
+    last_seq BIGINT NOT NULL,
+    PRIMARY KEY (`id`)
+);
+
+INSERT INTO order_change_sequence (id, last_seq) VALUES (1, 0);
@@ -0,0 +1,9 @@
+-- One row per SLA breach escalated. Every replica tracks the deadlines it reloaded on startup, so
+-- several fire for the same breach; only the one whose insert lands publishes the escalation.
+CREATE TABLE order_sla_escalations (
+    order_id BIGINT NOT NULL,
+    -- OrderStates.getCode() of the state whose deadline passed
+    order_status TINYINT UNSIGNED NOT NULL,
+    escalated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`order_id`, `order_status`)
+);
@@ -0,0 +1,289 @@
+package com.scalableservices.orderservice.stress;
+
+import com.scalableservices.orderservice.OrderServiceApplication;
+import com.scalableservices.orderservice.dto.order.OrderMenuDetails;
+import com.scalableservices.orderservice.dto.order.OrderProcessData;
+import com.scalableservices.orderservice.dto.order.OrderRequest;
+import com.scalableservices.orderservice.dto.order.OrderStatusUpdateRequest;
+import com.scalableservices.orderservice.enums.UserTypes;
+import com.scalableservices.orderservice.exception.RejectedException;
+import com.scalableservices.orderservice.service.OrderService;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.statemachine.OrderEvents;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import com.scalableservices.orderservice.stress.StressReport.Operation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.statemachine.config.StateMachineFactory;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Drives many threads through order transitions on a small set of hot orders, the way a rush
+ * hour does, and checks what ends up in the database against the configured state machine.
+ * <p>
+ * Each thread repeatedly picks a hot order, reads its state and sends an event that is valid
+ * from it: usually the next forward event, sometimes CANCEL, and for READY orders sometimes a
+ * delivery agent reassignment. Other threads race it on the same order, so many calls are
+ * rejected; rejections are expected and only counted. Closed orders are replaced with new ones.
+ * <p>
+ * Once the run ends every order it touched is verified:
+ * <ul>
+ *     <li>lost update: a state change the service acknowledged that has no order_log_entries row, or an
+ *     orders row whose state differs from its last log</li>
+ *     <li>duplicate log: the same state logged more than once for an order</li>
+ *     <li>illegal transition: consecutive logged states with no transition between them</li>
+ *     <li>duplicate assignment: more than one order_delivery_agents row for an order</li>
+ * </ul>
+ * The process exits with 1 when any of these are found and {@code stress.fail-on-anomaly} is
+ * set, or when calls failed with something other than a rejection.
+ */
+@Slf4j
+public class OrderTransitionStress {
+
+    private static final int MAX_REPORTED_ANOMALIES = 20;
+
+    private final StressSettings settings;
+    private final OrderService orderService;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransitionModel model;
+    private final StressReport report = new StressReport();
+    private final Map<Long, TrackedOrder> orders = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Long> hotOrders;
+    private int reportedAnomalies;
+
+    @SuppressWarnings("unchecked")
+    private OrderTransitionStress(ConfigurableApplicationContext context) {
+        this.settings = Binder.get(context.getEnvironment()).bindOrCreate("stress", StressSettings.class);
+        this.orderService = context.getBean(OrderService.class);
+        this.shardRouter = context.getBean(ShardRouter.class);
+        this.jdbcTemplate = new JdbcTemplate(context.getBean("fdsOrderDb", DataSource.class));
+        ResolvableType factoryType = ResolvableType.forClassWithGenerics(StateMachineFactory.class, OrderStates.class, OrderEvents.class);
+        this.model = TransitionModel.from((StateMachineFactory<OrderStates, OrderEvents>) context.getBeanProvider(factoryType).getObject());
+        this.hotOrders = new AtomicReferenceArray<>(settings.getHotOrders());
+    }
+
+    public static void main(String[] args) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(OrderServiceApplication.class)
+                .profiles("stress")
+                .run(args);
+        int status;
+        try {
+            status = new OrderTransitionStress(context).run();
+        } catch (Exception e) {
+            log.error("Stress run failed", e);
+            status = 2;
+        } finally {
+            context.close();
+        }
+        System.exit(status);
+    }
+
+    private int run() throws InterruptedException {
+        long seed = settings.getSeed() != 0 ? settings.getSeed() : System.nanoTime();
+        log.info("Stress run with {} threads on {} hot orders for {}, seed {}",
+                settings.getThreads(), settings.getHotOrders(), settings.getDuration(), seed);
+        for (int slot = 0; slot < settings.getHotOrders(); slot++) {
+            hotOrders.set(slot, createOrder());
+        }
+        long deadline = System.nanoTime() + settings.getDuration().toNanos();
+        CountDownLatch finished = new CountDownLatch(settings.getThreads());
+        for (int index = 0; index < settings.getThreads(); index++) {
+            Random random = new Random(seed + index);
+            Thread worker = new Thread(() -> {
+                try {
+                    drive(random, deadline);
+                } finally {
+                    finished.countDown();
+                }
+            }, "stress-worker-" + index);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        long reportNanos = settings.getReportInterval().toNanos();
+        while (!finished.await(reportNanos > 0 ? reportNanos : TimeUnit.SECONDS.toNanos(1), TimeUnit.NANOSECONDS)) {
+            if (reportNanos > 0) {
+                report.logInterval();
+            }
+        }
+        log.info("Verifying {} orders", orders.size());
+        for (TrackedOrder order : orders.values()) {
+            verify(order);
+        }
+        report.logTotals();
+        boolean anomalies = report.anomalies() > 0 && settings.isFailOnAnomaly();
+        return anomalies || report.failures() > 0 ? 1 : 0;
+    }
+
+    private void drive(Random random, long deadline) {
+        while (System.nanoTime() < deadline) {
+            int slot = random.nextInt(settings.getHotOrders());
+            Long orderId = hotOrders.get(slot);
+            OrderStates state = readState(orderId);
+            if (state == null) {
+                continue;
+            }
+            if (model.isTerminal(state)) {
+                Long replacement = createOrder();
+                if (replacement != null) {
+                    hotOrders.compareAndSet(slot, orderId, replacement);
+                }
+                continue;
+            }
+            if (state == OrderStates.READY && random.nextDouble() < settings.getAssignRatio()) {
+                assign(orderId, 1L + random.nextInt(settings.getDeliveryAgents()));
+            } else {
+                sendEvent(orderId, chooseEvent(state, random));
+            }
+        }
+    }
+
+    private OrderEvents chooseEvent(OrderStates state, Random random) {
+        List<OrderEvents> events = model.eventsFrom(state);
+        boolean cancel = events.contains(OrderEvents.CANCEL) && random.nextDouble() < settings.getCancelRatio();
+        if (cancel || events.size() == 1) {
+            return cancel ? OrderEvents.CANCEL : events.get(0);
+        }
+        events.remove(OrderEvents.CANCEL);
+        return events.get(random.nextInt(events.size()));
+    }
+
+    private Long createOrder() {
+        OrderRequest request = OrderRequest.builder()
+                .customerId(1L)
+                .restaurantId(settings.getRestaurantId())
+                .items(Collections.singletonList(OrderMenuDetails.builder()
+                        .menuId(1L).menuName("Stress item").menuPrice(100.0).menuQuantity(1).menuTotalPrice(100.0).build()))
+                .deliveryAddress("Stress street")
+                .totalAmount(BigDecimal.valueOf(100))
+                .build();
+        long started = System.nanoTime();
+        try {
+            Long orderId = orderService.createOrder(request).getOrderId();
+            report.succeeded(Operation.CREATE, started);
+            orders.put(orderId, new TrackedOrder(orderId));
+            return orderId;
+        } catch (Exception e) {
+            report.failed(Operation.CREATE, started);
+            log.warn("Creating an order failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private OrderStates readState(Long orderId) {
+        long started = System.nanoTime();
+        try {
+            OrderStates state = orderService.getOrderByOrderId(orderId).getOrderStatus();
+            report.succeeded(Operation.READ, started);
+            return state;
+        } catch (Exception e) {
+            report.failed(Operation.READ, started);
+            log.warn("Reading order {} failed: {}", orderId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void sendEvent(Long orderId, OrderEvents event) {
+        OrderStatusUpdateRequest request = OrderStatusUpdateRequest.builder()
+                .userId(1L)
+                .orderStatus(OrderProcessData.builder().orderEvent(event.name()).build())
+                .build();
+        long started = System.nanoTime();
+        try {
+            orderService.updateOrderStatus(orderId, request, UserTypes.ADMIN);
+            report.succeeded(Operation.EVENT, started);
+            OrderStates target = model.targetOf(event);
+            if (target != null) {
+                orders.get(orderId).acknowledged.incrementAndGet(target.ordinal());
+            }
+        } catch (RejectedException e) {
+            report.rejected(Operation.EVENT, e.getRejection(), started);
+        } catch (Exception e) {
+            report.failed(Operation.EVENT, started);
+            log.warn("{} on order {} failed: {}", event, orderId, e.getMessage());
+        }
+    }
+
+    private void assign(Long orderId, Long deliveryAgentId) {
+        long started = System.nanoTime();
+        try {
+            orderService.mapOrderToDeliveryAgent(orderId, deliveryAgentId);
+            report.succeeded(Operation.ASSIGN, started);
+        } catch (RejectedException e) {
+            report.rejected(Operation.ASSIGN, e.getRejection(), started);
+        } catch (Exception e) {
+            report.failed(Operation.ASSIGN, started);
+            log.warn("Assigning order {} failed: {}", orderId, e.getMessage());
+        }
+    }
+
+    private void verify(TrackedOrder order) {
+        Long orderId = order.orderId;
+        List<OrderStates> logged = shardRouter.onOrderShard(orderId, () -> jdbcTemplate.query(
+                "SELECT order_status FROM order_log_entries WHERE order_id = ? ORDER BY id",
+                (resultSet, rowNum) -> OrderStates.fromCode(resultSet.getInt(1)), orderId));
+        String current = shardRouter.onOrderShard(orderId, () -> jdbcTemplate.queryForObject(
+                "SELECT order_status FROM orders WHERE id = ?", String.class, orderId));
+        Integer assignments = shardRouter.onOrderShard(orderId, () -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_delivery_agents WHERE order_id = ?", Integer.class, orderId));
+
+        int[] loggedCounts = new int[OrderStates.values().length];
+        OrderStates previous = OrderStates.PLACED;
+        for (OrderStates state : logged) {
+            if (!model.allows(previous, state)) {
+                anomaly(report.illegalTransitions, 1, "order {} logged {} after {}: {}", orderId, state, previous, logged);
+            }
+            if (++loggedCounts[state.ordinal()] == 2) {
+                anomaly(report.duplicateLogs, 1, "order {} logged {} more than once: {}", orderId, state, logged);
+            }
+            previous = state;
+        }
+        for (OrderStates state : OrderStates.values()) {
+            int missing = order.acknowledged.get(state.ordinal()) - loggedCounts[state.ordinal()];
+            if (missing > 0) {
+                anomaly(report.lostUpdates, missing, "order {} acknowledged {} {} times but logged it {} times: {}",
+                        orderId, state, order.acknowledged.get(state.ordinal()), loggedCounts[state.ordinal()], logged);
+            }
+        }
+        if (!previous.name().equals(current)) {
+            anomaly(report.lostUpdates, 1, "order {} is {} but its last log is {}: {}", orderId, current, previous, logged);
+        }
+        if (assignments != null && assignments > 1) {
+            anomaly(report.duplicateAssignments, 1, "order {} has {} delivery agent rows", orderId, assignments);
+        }
+    }
+
+    // Only the first anomalies are logged in full, so a badly broken soak does not flood the log
+    private void anomaly(AtomicLong counter, int count, String message, Object... arguments) {
+        counter.addAndGet(count);
+        if (++reportedAnomalies <= MAX_REPORTED_ANOMALIES) {
+            log.error(message, arguments);
+        }
+    }
+
+    private static final class TrackedOrder {
+        private final Long orderId;
+        // Successful calls per target state, by ordinal
+        private final AtomicIntegerArray acknowledged = new AtomicIntegerArray(OrderStates.values().length);
+
+        private TrackedOrder(Long orderId) {
+            this.orderId = orderId;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.scalableservices.orderservice.stress;
+
+import com.scalableservices.orderservice.exception.Rejection;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counts and latencies of a stress run, recorded by the worker threads and summarised per
+ * interval and for the whole run. Latencies go into HDR histograms, so a soak keeps constant
+ * memory however many calls it makes.
+ */
+@Slf4j
+final class StressReport {
+
+    enum Operation {
+        CREATE, READ, EVENT, ASSIGN
+    }
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final Map<Rejection, LongAdder> rejections = new EnumMap<>(Rejection.class);
+    private final long startedAt = System.nanoTime();
+    private long intervalStartedAt = startedAt;
+
+    final AtomicLong lostUpdates = new AtomicLong();
+    final AtomicLong duplicateLogs = new AtomicLong();
+    final AtomicLong illegalTransitions = new AtomicLong();
+    final AtomicLong duplicateAssignments = new AtomicLong();
+
+    StressReport() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+        for (Rejection rejection : Rejection.values()) {
+            rejections.put(rejection, new LongAdder());
+        }
+    }
+
+    void succeeded(Operation operation, long startedNanos) {
+        OperationStats operationStats = stats.get(operation);
+        operationStats.recorder.recordValue(Math.min(System.nanoTime() - startedNanos, MAX_LATENCY_NANOS));
+        operationStats.succeeded.increment();
+    }
+
+    void rejected(Operation operation, Rejection rejection, long startedNanos) {
+        OperationStats operationStats = stats.get(operation);
+        operationStats.recorder.recordValue(Math.min(System.nanoTime() - startedNanos, MAX_LATENCY_NANOS));
+        operationStats.rejected.increment();
+        rejections.get(rejection).increment();
+    }
+
+    void failed(Operation operation, long startedNanos) {
+        OperationStats operationStats = stats.get(operation);
+        operationStats.recorder.recordValue(Math.min(System.nanoTime() - startedNanos, MAX_LATENCY_NANOS));
+        operationStats.failed.increment();
+    }
+
+    long failures() {
+        long failures = 0;
+        for (OperationStats operationStats : stats.values()) {
+            failures += operationStats.failed.sum();
+        }
+        return failures;
+    }
+
+    long anomalies() {
+        return lostUpdates.get() + duplicateLogs.get() + illegalTransitions.get() + duplicateAssignments.get();
+    }
+
+    /**
+     * Logs throughput and latency percentiles of the calls since the previous interval and folds
+     * them into the run totals.
+     */
+    synchronized void logInterval() {
+        long now = System.nanoTime();
+        double seconds = (now - intervalStartedAt) / 1e9;
+        intervalStartedAt = now;
+        log.info("--- interval of {}s ---", String.format("%.1f", seconds));
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            Histogram interval = entry.getValue().recorder.getIntervalHistogram();
+            entry.getValue().total.add(interval);
+            logLatencies(entry.getKey(), interval, seconds);
+        }
+    }
+
+    synchronized void logTotals() {
+        logInterval();
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        log.info("=== stress run of {}s ===", String.format("%.1f", seconds));
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats operationStats = entry.getValue();
+            logLatencies(entry.getKey(), operationStats.total, seconds);
+            if (operationStats.total.getTotalCount() > 0) {
+                log.info("{}: {} succeeded, {} rejected, {} failed", entry.getKey(),
+                        operationStats.succeeded.sum(), operationStats.rejected.sum(), operationStats.failed.sum());
+            }
+        }
+        for (Map.Entry<Rejection, LongAdder> entry : rejections.entrySet()) {
+            if (entry.getValue().sum() > 0) {
+                log.info("rejected {}: {}", entry.getKey(), entry.getValue().sum());
+            }
+        }
+        log.info("lost updates: {}, duplicate logs: {}, illegal transitions: {}, duplicate assignments: {}",
+                lostUpdates.get(), duplicateLogs.get(), illegalTransitions.get(), duplicateAssignments.get());
+    }
+
+    private void logLatencies(Operation operation, Histogram histogram, double seconds) {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        log.info("{}: {} calls, {}/s, p50 {}ms, p90 {}ms, p99 {}ms, p99.9 {}ms, max {}ms", operation,
+                histogram.getTotalCount(), String.format("%.1f", histogram.getTotalCount() / seconds),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+
+    private static final class OperationStats {
+        private final Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+        private final Histogram total = new Histogram(MAX_LATENCY_NANOS, 3);
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+    }
+}
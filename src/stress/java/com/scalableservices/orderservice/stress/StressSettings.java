@@ -0,0 +1,23 @@
+package com.scalableservices.orderservice.stress;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * The {@code stress.*} properties, see application-stress.properties.
+ */
+@Data
+public class StressSettings {
+
+    private int threads = 16;
+    private int hotOrders = 8;
+    private Duration duration = Duration.ofSeconds(30);
+    private Duration reportInterval = Duration.ZERO;
+    private double cancelRatio = 0.05;
+    private double assignRatio = 0.3;
+    private long restaurantId = 900001;
+    private int deliveryAgents = 4;
+    private long seed;
+    private boolean failOnAnomaly = true;
+}
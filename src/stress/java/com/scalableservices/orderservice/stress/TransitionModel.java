@@ -0,0 +1,65 @@
+package com.scalableservices.orderservice.stress;
+
+import com.scalableservices.orderservice.statemachine.OrderEvents;
+import com.scalableservices.orderservice.statemachine.OrderStates;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.config.StateMachineFactory;
+import org.springframework.statemachine.transition.Transition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The order transitions as configured in StateMachineConfig, read from a machine built by the
+ * application's factory so the run checks against what the service actually enforces.
+ */
+final class TransitionModel {
+
+    private final Map<OrderStates, Map<OrderEvents, OrderStates>> transitions = new EnumMap<>(OrderStates.class);
+    private final Map<OrderEvents, Set<OrderStates>> targets = new EnumMap<>(OrderEvents.class);
+
+    private TransitionModel() {
+    }
+
+    static TransitionModel from(StateMachineFactory<OrderStates, OrderEvents> factory) {
+        TransitionModel model = new TransitionModel();
+        StateMachine<OrderStates, OrderEvents> machine = factory.getStateMachine("stress-model");
+        for (Transition<OrderStates, OrderEvents> transition : machine.getTransitions()) {
+            OrderStates source = transition.getSource().getId();
+            OrderStates target = transition.getTarget().getId();
+            OrderEvents event = transition.getTrigger().getEvent();
+            model.transitions.computeIfAbsent(source, state -> new EnumMap<>(OrderEvents.class)).put(event, target);
+            model.targets.computeIfAbsent(event, ignored -> EnumSet.noneOf(OrderStates.class)).add(target);
+        }
+        return model;
+    }
+
+    boolean allows(OrderStates from, OrderStates to) {
+        return events(from).values().contains(to);
+    }
+
+    boolean isTerminal(OrderStates state) {
+        return events(state).isEmpty();
+    }
+
+    // Events accepted in {@code state}, in declaration order
+    List<OrderEvents> eventsFrom(OrderStates state) {
+        return new ArrayList<>(events(state).keySet());
+    }
+
+    // The state {@code event} always leads to, or null when it depends on the source
+    OrderStates targetOf(OrderEvents event) {
+        Set<OrderStates> eventTargets = targets.get(event);
+        return eventTargets != null && eventTargets.size() == 1 ? eventTargets.iterator().next() : null;
+    }
+
+    private Map<OrderEvents, OrderStates> events(OrderStates state) {
+        Map<OrderEvents, OrderStates> events = transitions.get(state);
+        return events == null ? Collections.emptyMap() : events;
+    }
+}
@@ -0,0 +1,207 @@
+package com.scalableservices.orderservice.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.scalableservices.orderservice.events.OrderEventBus;
+import com.scalableservices.orderservice.feed.OrderChangeRecorder;
+import com.scalableservices.orderservice.idgen.TimeOrderedIdGenerator;
+import com.scalableservices.orderservice.model.Order;
+import com.scalableservices.orderservice.orderitems.OrderItemService;
+import com.scalableservices.orderservice.rollup.RestaurantRollupService;
+import com.scalableservices.orderservice.sharding.ShardRouter;
+import com.scalableservices.orderservice.sharding.ShardingProperties;
+import com.scalableservices.orderservice.sla.OrderSlaScheduler;
+import com.scalableservices.orderservice.utils.CommonOperations;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DegradedOrderIntakeReplayTest {
+
+    @TempDir
+    Path directory;
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement existingQuery = mock(PreparedStatement.class);
+    private final PreparedStatement insert = mock(PreparedStatement.class);
+    private final OrderItemService orderItemService = mock(OrderItemService.class);
+    private final RestaurantRollupService restaurantRollupService = mock(RestaurantRollupService.class);
+
+    private JournalProperties properties;
+    private OrderJournal journal;
+    private long lastOrderIdBound;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new JournalProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSizeBytes(4096);
+        properties.setSyncIntervalMs(1);
+        journal = new OrderJournal(properties);
+        journal.open();
+
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            return sql.startsWith("SELECT id FROM orders") ? existingQuery : insert;
+        });
+        when(existingQuery.executeQuery()).thenAnswer(invocation -> resultSetOf());
+        when(insert.executeUpdate()).thenReturn(1);
+        Statement probe = mock(Statement.class);
+        when(probe.executeQuery("SELECT 1")).thenAnswer(invocation -> resultSetOf(1L));
+        when(connection.createStatement()).thenReturn(probe);
+    }
+
+    @AfterEach
+    void closeJournal() {
+        journal.close();
+    }
+
+    @Test
+    void unavailableDatabaseLeavesRecordsInTheJournal() throws Exception {
+        appendDurably(1, 2, 3);
+        when(dataSource.getConnection()).thenThrow(new SQLNonTransientConnectionException("Communications link failure", "08S01"));
+        DegradedOrderIntake intake = intake();
+
+        intake.replay();
+
+        assertEquals(3, journal.backlog());
+        assertTrue(intake.isDegraded());
+        assertFalse(Files.exists(deadLetters()));
+        verify(orderItemService, never()).insertItems(any(), any());
+    }
+
+    @Test
+    void recordsTheDatabaseRejectsAreDeadLetteredAndTheRestReplayed() throws Exception {
+        appendDurably(1, 2, 3);
+        when(dataSource.getConnection()).thenReturn(connection);
+        // Only the order with id 2 is rejected; the batch fails as a whole, then each record is written alone
+        when(insert.executeUpdate()).thenAnswer(invocation -> {
+            if (lastOrderIdBound == 2L) {
+                throw new SQLDataException("Data too long for column 'customer_address' at row 1", "22001", 1406);
+            }
+            return 1;
+        });
+        trackBoundOrderId();
+        DegradedOrderIntake intake = intake();
+
+        intake.replay();
+
+        assertEquals(0, journal.backlog());
+        assertFalse(intake.isDegraded());
+        List<String> lines = Files.readAllLines(deadLetters());
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains("\"orderId\":2"), lines.get(0));
+        verify(restaurantRollupService, times(2)).recordCreated(any());
+        verify(restaurantRollupService, never()).recordCreated(argThat(order -> order.getId() == 2L));
+    }
+
+    @Test
+    void ordersAlreadyInTheDatabaseAreNotInsertedAgain() throws Exception {
+        appendDurably(1, 2);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(existingQuery.executeQuery()).thenAnswer(invocation -> resultSetOf(1L));
+        DegradedOrderIntake intake = intake();
+
+        intake.replay();
+
+        assertEquals(0, journal.backlog());
+        verify(insert, times(1)).executeUpdate();
+        verify(orderItemService, times(1)).insertItems(argThat(order -> order.getId() == 2L), any());
+        verify(restaurantRollupService, times(1)).recordCreated(any(Order.class));
+    }
+
+    // The order id is the first parameter of the insert
+    private void trackBoundOrderId() throws SQLException {
+        doAnswer(invocation -> {
+            if ((int) invocation.getArgument(0) == 1) {
+                lastOrderIdBound = ((Number) invocation.getArgument(1)).longValue();
+            }
+            return null;
+        }).when(insert).setObject(anyInt(), any());
+    }
+
+    private DegradedOrderIntake intake() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        CommonOperations commonOperations = mock(CommonOperations.class);
+        when(commonOperations.getOrderMenuDetails(anyString())).thenReturn(Collections.emptyList());
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return new DegradedOrderIntake(properties, journal, new ShardRouter(new ShardingProperties()),
+                mock(TimeOrderedIdGenerator.class), restaurantRollupService, mock(OrderSlaScheduler.class),
+                mock(OrderEventBus.class), orderItemService, commonOperations, mock(OrderChangeRecorder.class),
+                new JournalDeadLetters(properties, objectMapper), dataSource, transactionManager, new SimpleMeterRegistry());
+    }
+
+    private void appendDurably(long... orderIds) {
+        long last = 0;
+        for (long orderId : orderIds) {
+            last = journal.append(JournalEntry.builder()
+                    .orderId(orderId)
+                    .customerId(100 + orderId)
+                    .restaurantId(7)
+                    .totalAmount(new BigDecimal("12.50"))
+                    .orderDetails("[]")
+                    .customerAddress("1 Test Street")
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        }
+        assertTrue(journal.awaitDurable(last, 5000), "records were not synced");
+    }
+
+    private Path deadLetters() {
+        return directory.resolve(JournalDeadLetters.FILE_NAME);
+    }
+
+    // A single-column result set over the given values
+    private static ResultSet resultSetOf(long... values) throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        int[] row = {-1};
+        when(resultSet.next()).thenAnswer(invocation -> ++row[0] < values.length);
+        when(resultSet.getLong(1)).thenAnswer(invocation -> values[row[0]]);
+        when(resultSet.getInt(1)).thenAnswer(invocation -> (int) values[row[0]]);
+        return resultSet;
+    }
+}
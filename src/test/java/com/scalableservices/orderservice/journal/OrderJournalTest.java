@@ -0,0 +1,172 @@
+package com.scalableservices.orderservice.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private OrderJournal journal;
+
+    @AfterEach
+    void closeJournal() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void unacknowledgedRecordsAreReplayedAfterRestart() throws IOException {
+        journal = open(4096);
+        appendDurably(1, 2, 3);
+        journal.close();
+
+        journal = open(4096);
+        assertEquals(3, journal.backlog());
+        List<JournalEntry> replayed = journal.readBatch(10);
+        assertEquals(List.of(1L, 2L, 3L), orderIds(replayed));
+        assertEquals(List.of(1L, 2L, 3L), replayed.stream().map(JournalEntry::getSequence).collect(Collectors.toList()));
+        assertEquals(new BigDecimal("12.50"), replayed.get(0).getTotalAmount());
+    }
+
+    @Test
+    void acknowledgedRecordsAreNotReplayedAfterRestart() throws IOException {
+        journal = open(4096);
+        appendDurably(1, 2, 3);
+        List<JournalEntry> batch = journal.readBatch(2);
+        journal.acknowledge(batch.get(batch.size() - 1).getSequence());
+        journal.close();
+
+        journal = open(4096);
+        assertEquals(1, journal.backlog());
+        assertEquals(List.of(3L), orderIds(journal.readBatch(10)));
+    }
+
+    @Test
+    void rewindReadsUnacknowledgedRecordsAgain() throws IOException {
+        journal = open(4096);
+        appendDurably(1, 2, 3);
+        journal.acknowledge(journal.readBatch(1).get(0).getSequence());
+        assertEquals(List.of(2L, 3L), orderIds(journal.readBatch(10)));
+
+        journal.rewind();
+        assertEquals(List.of(2L, 3L), orderIds(journal.readBatch(10)));
+    }
+
+    @Test
+    void recoveryStopsAtATornRecordAndAppendsContinueAfterIt() throws IOException {
+        journal = open(4096);
+        appendDurably(1, 2, 3);
+        journal.close();
+        Path segment = segmentFiles().get(0);
+        int third = recordOffset(segment, 2);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // One flipped payload byte, as a crash halfway through the record would leave it
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), third + OrderJournal.RECORD_HEADER_BYTES);
+        }
+
+        journal = open(4096);
+        assertEquals(2, journal.backlog());
+        appendDurably(4);
+        assertEquals(List.of(1L, 2L, 4L), orderIds(journal.readBatch(10)));
+    }
+
+    @Test
+    void recordsAreReadInOrderAcrossSegmentsAndReplayedSegmentsAreDeleted() throws IOException {
+        journal = open(512);
+        long[] orderIds = new long[20];
+        for (int i = 0; i < orderIds.length; i++) {
+            orderIds[i] = i + 1;
+        }
+        appendDurably(orderIds);
+        int segmentsWritten = segmentFiles().size();
+        assertTrue(segmentsWritten > 2, "expected the records to span several segments, found " + segmentsWritten);
+
+        List<JournalEntry> replayed = journal.readBatch(100);
+        assertEquals(20, replayed.size());
+        for (int i = 0; i < replayed.size(); i++) {
+            assertEquals(i + 1, replayed.get(i).getOrderId());
+        }
+        journal.acknowledge(replayed.get(replayed.size() - 1).getSequence());
+        assertEquals(0, journal.backlog());
+        assertTrue(segmentFiles().size() < segmentsWritten);
+    }
+
+    @Test
+    void segmentsArePreallocatedToTheirFullSize() throws IOException {
+        journal = open(512);
+        appendDurably(1, 2, 3, 4, 5, 6, 7, 8);
+        for (Path segment : segmentFiles()) {
+            assertEquals(512, Files.size(segment));
+        }
+    }
+
+    private OrderJournal open(int segmentSizeBytes) throws IOException {
+        JournalProperties properties = new JournalProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSizeBytes(segmentSizeBytes);
+        properties.setSyncIntervalMs(1);
+        OrderJournal opened = new OrderJournal(properties);
+        opened.open();
+        return opened;
+    }
+
+    private void appendDurably(long... orderIds) {
+        long last = 0;
+        for (long orderId : orderIds) {
+            last = journal.append(entry(orderId));
+        }
+        assertTrue(journal.awaitDurable(last, 5000), "records were not synced");
+    }
+
+    private static JournalEntry entry(long orderId) {
+        return JournalEntry.builder()
+                .orderId(orderId)
+                .customerId(100 + orderId)
+                .restaurantId(7)
+                .totalAmount(new BigDecimal("12.50"))
+                .orderDetails("[{\"itemId\":1,\"quantity\":2}]")
+                .customerAddress("1 Test Street")
+                .createdAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS))
+                .build();
+    }
+
+    private static List<Long> orderIds(List<JournalEntry> entries) {
+        return entries.stream().map(JournalEntry::getOrderId).collect(Collectors.toList());
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static int recordOffset(Path segment, int index) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int offset = 0;
+        for (int i = 0; i < index; i++) {
+            offset += OrderJournal.RECORD_HEADER_BYTES + buffer.getInt(offset);
+        }
+        return offset;
+    }
+}